@@ -0,0 +1,84 @@
+package chess;
+
+import chess.archive.ArchiveReader;
+import chess.archive.PgnConverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Compares a game archive with the PGN it was converted from: size on disk, then games per second
+ * decoded in order, at random and reading only the tags.
+ * Arguments: a PGN file to convert, or the number of random games to write to a temporary file (default 20000).
+ * @author Ryan Gisleson
+ */
+public class ArchiveBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Path pgn;
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            pgn = Paths.get(args[0]);
+        } else {
+            int count = (args.length > 0) ? Integer.parseInt(args[0]) : 20_000;
+            pgn = Files.createTempFile("games", ".pgn");
+            pgn.toFile().deleteOnExit();
+            PgnBenchmark.writeRandomGames(pgn, count);
+        }
+        File file = File.createTempFile("games", ".archive");
+        file.delete();
+        file.deleteOnExit();
+        Path archive = file.toPath();
+        Path index = Paths.get(archive + ".idx");
+        index.toFile().deleteOnExit();
+
+        long start = System.nanoTime();
+        long games = PgnConverter.convert(pgn, archive);
+        System.out.printf("converted %d games in %.1fs%n", games, (System.nanoTime() - start) / 1e9);
+
+        try (ArchiveReader reader = new ArchiveReader(archive)) {
+            long plies = 0;
+            for (long i = 0; i < games; i++)
+                plies += reader.getPlyCount(i);
+            long pgnBytes = Files.size(pgn);
+            long archiveBytes = Files.size(archive) + Files.size(index);
+            System.out.printf("pgn %.1f MB, archive %.1f MB with index (%.0f%%), %.2f archive bytes per ply%n",
+                    pgnBytes / 1e6, archiveBytes / 1e6, 100.0 * archiveBytes / pgnBytes, (double) archiveBytes / plies);
+            System.out.printf("%-10s %12s %12s%n", "mode", "games/s", "plies/s");
+            for (int round = 0; round < 3; round++) { // the first round warms up the JIT
+                Game game = new Game(GameType.STANDARD);
+                start = System.nanoTime();
+                for (long i = 0; i < games; i++)
+                    reader.replay(i, game, reader.getPlyCount(i));
+                report("in order", games, plies, start);
+
+                Random rand = new Random(round);
+                long randomPlies = 0;
+                start = System.nanoTime();
+                for (long i = 0; i < games; i++) {
+                    long n = (long) (rand.nextDouble() * games);
+                    int count = reader.getPlyCount(n);
+                    reader.replay(n, game, count);
+                    randomPlies += count;
+                }
+                report("random", games, randomPlies, start);
+
+                long tags = 0;
+                start = System.nanoTime();
+                for (long i = 0; i < games; i++)
+                    tags += reader.getTags(i).size();
+                report("tags only", games, 0, start);
+                if (tags == 0)
+                    System.out.println("no tags");
+            }
+        }
+    }
+
+    private static void report(String mode, long games, long plies, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-10s %12.0f %12.0f%n", mode, games / seconds, plies / seconds);
+    }
+}
@@ -0,0 +1,81 @@
+package chess;
+
+import chess.book.BookBuilder;
+import chess.book.OpeningBook;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Builds an opening book from random standard and custom games and measures lookup latency:
+ * the raw hash search, and getMoves, which also checks each book move is legal.
+ * Arguments: the number of random games (default 100000).
+ * @author Ryan Gisleson
+ */
+public class BookBenchmark {
+
+    private static final int PLIES = 16;
+
+    public static void main(String[] args) throws IOException {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        Random rand = new Random(1);
+        int[] moves = new int[Moves.MAX_MOVES];
+        Game[] probes = new Game[1000];
+        BookBuilder builder = new BookBuilder(PLIES);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Game game = new Game((i % 2 == 0) ? GameType.STANDARD : GameType.CUSTOM);
+            int plies = (i < probes.length) ? rand.nextInt(PLIES) : PLIES;
+            for (int ply = 0; ply < plies; ply++) {
+                int legal = game.getLegalMoves(game.getTurn(), moves);
+                if (legal == 0)
+                    break;
+                game.makeMove(moves[rand.nextInt(legal)]);
+            }
+            String[] results = {"1-0", "0-1", "1/2-1/2"};
+            builder.add(game, results[rand.nextInt(results.length)]);
+            if (i < probes.length)
+                probes[i] = game; // in the book, at every depth
+        }
+        File file = File.createTempFile("opening", ".book");
+        file.deleteOnExit();
+        Path path = file.toPath();
+        long entries = builder.write(path, 1);
+        System.out.printf("%d games, %d positions, %d entries, %.1f MB, built in %.1fs%n", count,
+                builder.getPositionCount(), entries, Files.size(path) / 1e6, (System.nanoTime() - start) / 1e9);
+
+        try (OpeningBook book = new OpeningBook(path)) {
+            Game miss = Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+            for (int round = 0; round < 3; round++) { // the first round warms up the JIT
+                int rounds = 200;
+                long found = 0;
+                start = System.nanoTime();
+                for (int r = 0; r < rounds; r++)
+                    for (Game probe : probes)
+                        found += book.contains(probe) ? 1 : 0;
+                report("contains", rounds * probes.length, start);
+
+                start = System.nanoTime();
+                for (int r = 0; r < rounds; r++)
+                    for (Game probe : probes)
+                        found += book.getMoves(probe).size();
+                report("getMoves", rounds * probes.length, start);
+
+                start = System.nanoTime();
+                for (int r = 0; r < rounds * probes.length; r++)
+                    found += book.contains(miss) ? 1 : 0;
+                report("miss", rounds * probes.length, start);
+                if (found == 0)
+                    System.out.println("nothing found");
+            }
+        }
+    }
+
+    private static void report(String mode, long probes, long start) {
+        double micros = (System.nanoTime() - start) / 1e3 / probes;
+        System.out.printf("%-10s %8.2f us per probe%n", mode, micros);
+    }
+}
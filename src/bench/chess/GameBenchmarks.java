@@ -0,0 +1,228 @@
+package chess;
+
+import chess.engine.Perft;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the hot paths of the game logic: move generation per piece type, check and checkmate
+ * detection, making and undoing moves, draw detection and FEN loading, on standard and custom positions.
+ * Run the main method, optionally with a name filter, e.g. "inCheck", to run them with the GC profiler.
+ * @author Ryan Gisleson
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmarks {
+
+    // an open middlegame reached from both setups: both sides develop, open the centre and trade pawns
+    private static final int[] MIDDLEGAME = {
+            4, 6, 4, 4,  4, 1, 4, 3,
+            3, 6, 3, 4,  3, 1, 3, 3,
+            4, 4, 3, 3,  2, 1, 2, 2,
+            3, 3, 2, 2,  1, 1, 2, 2,
+            6, 6, 6, 5,  6, 1, 6, 2};
+
+    // white is mated by the black queen on h4
+    private static final int[] FOOLS_MATE = {5, 6, 5, 5,  4, 1, 4, 3,  6, 6, 6, 4,  3, 0, 7, 4};
+
+    /**
+     * One of the benchmark positions, with the king of the side to move.
+     */
+    @State(Scope.Thread)
+    public static class Position {
+        @Param({"standard", "custom", "standardMiddlegame", "customMiddlegame"})
+        public String position;
+
+        Game game;
+        Board board;
+        Piece king;
+
+        @Setup
+        public void setUp() {
+            game = create(position);
+            board = game.getBoard();
+            king = game.getKing(game.getTurn());
+        }
+    }
+
+    /**
+     * A piece of each type in the custom positions, which have every type.
+     */
+    @State(Scope.Thread)
+    public static class PieceMoves {
+        @Param({"custom", "customMiddlegame"})
+        public String position;
+
+        @Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING", "ARCHBISHOP", "SQUIRREL"})
+        public PieceType type;
+
+        Board board;
+        Piece piece;
+
+        @Setup
+        public void setUp() {
+            Game game = create(position);
+            board = game.getBoard();
+            piece = findPiece(game, type);
+            if (piece == null)
+                throw new IllegalStateException("No " + type + " to move in " + position + ".");
+        }
+    }
+
+    /**
+     * Positions for the benchmarks that only run on one.
+     */
+    @State(Scope.Thread)
+    public static class Fixed {
+        Game mated;
+        Piece matedKing;
+        Game custom;
+        String fen;
+        Game loaded;
+
+        @Setup
+        public void setUp() {
+            mated = play(new Game(GameType.STANDARD), FOOLS_MATE);
+            matedKing = mated.getKing(Team.WHITE);
+            custom = create("customMiddlegame");
+            fen = Fen.write(custom);
+            loaded = new Game();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String filter = (args.length > 0) ? args[0] : "";
+        new Runner(new OptionsBuilder()
+                .include(GameBenchmarks.class.getSimpleName() + "\\..*" + filter)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Benchmark
+    public int getMoves(PieceMoves state) {
+        return state.piece.getMoves(state.board).length;
+    }
+
+    @Benchmark
+    public boolean inCheck(Position state) {
+        return state.game.inCheck(state.king, state.king.getX(), state.king.getY());
+    }
+
+    @Benchmark
+    public boolean inCheckmate(Position state) {
+        return state.game.inCheckmate(state.king, state.king.getX(), state.king.getY());
+    }
+
+    @Benchmark
+    public long legalMoves(Position state) {
+        Game game = state.game;
+        long count = 0;
+        for (Piece piece : game.getPieces(game.getTurn()))
+            if (!piece.isCaptured())
+                count += game.getLegalMoves(piece).length;
+        return count;
+    }
+
+    @Benchmark
+    public long attemptUndo(Position state) {
+        Game game = state.game;
+        long count = 0;
+        for (Piece piece : game.getPieces(game.getTurn())) {
+            if (piece.isCaptured()) continue;
+            for (int[] move : piece.getMoves(state.board)) {
+                if (game.attemptMove(piece, move[0], move[1]) == 0) {
+                    game.undoMove(game.getLastMove());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // the checks a search makes at every node
+    @Benchmark
+    public boolean drawChecks(Position state) {
+        Game game = state.game;
+        return game.isInsufficientMaterial() || game.isRepetition(2)
+                || game.getHalfmoveClock() >= Game.FIFTY_MOVE_PLIES;
+    }
+
+    // the full check, with the legal move set already kept
+    @Benchmark
+    public DrawRule getDraw(Position state) {
+        Game game = state.game;
+        game.getLegalMoveSet(game.getTurn());
+        return game.getDraw();
+    }
+
+    @Benchmark
+    public boolean inCheckmateFoolsMate(Fixed state) {
+        return state.mated.inCheckmate(state.matedKing, state.matedKing.getX(), state.matedKing.getY());
+    }
+
+    @Benchmark
+    public long perft2CustomMiddlegame(Fixed state) {
+        return new Perft(state.custom).count(2);
+    }
+
+    @Benchmark
+    public long fenLoadCustomMiddlegame(Fixed state) {
+        Fen.load(state.loaded, state.fen);
+        return state.loaded.getHash();
+    }
+
+    @Benchmark
+    public String fenWriteCustomMiddlegame(Fixed state) {
+        return Fen.write(state.custom);
+    }
+
+    private static Game create(String position) {
+        switch (position) {
+            case "standard":
+                return new Game(GameType.STANDARD);
+            case "custom":
+                return new Game(GameType.CUSTOM);
+            case "standardMiddlegame":
+                return play(new Game(GameType.STANDARD), MIDDLEGAME);
+            case "customMiddlegame":
+                return play(new Game(GameType.CUSTOM), MIDDLEGAME);
+            default:
+                throw new IllegalArgumentException("Unknown position " + position + ".");
+        }
+    }
+
+    private static Piece findPiece(Game game, PieceType type) {
+        for (Piece piece : game.getPieces(game.getTurn()))
+            if (!piece.isCaptured() && piece.getType() == type)
+                return piece;
+        return null;
+    }
+
+    private static Game play(Game game, int[] moves) {
+        for (int i = 0; i < moves.length; i += 4) {
+            Piece piece = game.getBoard().getPiece(moves[i], moves[i + 1]);
+            if (piece == null || game.attemptMove(piece, moves[i + 2], moves[i + 3]) != 0)
+                throw new IllegalStateException("Benchmark position has an illegal move at " + i / 4);
+            game.nextTurn();
+        }
+        return game;
+    }
+}
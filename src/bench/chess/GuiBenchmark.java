@@ -0,0 +1,84 @@
+package chess;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the GUI's drawing. First paints full frames of the board view for 8x8 and 16x16 boards
+ * off screen and prints the frame time percentiles. Then, when there is a display, plays random moves
+ * through the GUI by clicking their squares and prints how many squares were repainted and how many
+ * sprites were read per move.
+ * Arguments: the number of moves and frames (default 200).
+ * @author Ryan Gisleson
+ */
+public class GuiBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        for (int size : new int[]{8, 16})
+            measureFrames(size, count);
+        if (GraphicsEnvironment.isHeadless()) {
+            System.out.println("No display, skipping the clicks.");
+            return;
+        }
+        measureClicks(count);
+        System.exit(0);
+    }
+
+    private static void measureFrames(int size, int count) {
+        Random rand = new Random(size);
+        Game game = new Game(size, size);
+        PieceType[] types = PieceType.values();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (rand.nextInt(3) == 0) // a third of the squares taken
+                    game.addPiece(types[rand.nextInt(types.length)].create(rand.nextBoolean() ? Team.WHITE : Team.BLACK), x, y);
+            }
+        }
+        BoardView view = new BoardView(new SpriteCache(), (x, y) -> {});
+        view.setBoard(game.getBoard());
+        view.setSize(500, 500);
+        BufferedImage frame = new BufferedImage(500, 500, BufferedImage.TYPE_INT_RGB);
+        long[] nanos = new long[count];
+        for (int i = -count; i < count; i++) { // the first half warms up
+            Graphics2D g = frame.createGraphics();
+            long start = System.nanoTime();
+            view.paint(g);
+            if (i >= 0)
+                nanos[i] = System.nanoTime() - start;
+            g.dispose();
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%dx%d board: frame p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", size, size,
+                nanos[count / 2] / 1e6, nanos[count * 99 / 100] / 1e6, nanos[count - 1] / 1e6);
+    }
+
+    private static void measureClicks(int count) throws Exception {
+        Game game = new Game(GameType.CUSTOM);
+        GUI[] gui = new GUI[1];
+        SwingUtilities.invokeAndWait(() -> gui[0] = new GUI(game));
+        Random rand = new Random(1);
+        int[] moves = new int[Moves.MAX_MOVES];
+        long repaints = gui[0].getRepaintCount();
+        int loads = gui[0].getImageLoadCount();
+        long start = System.nanoTime();
+        int played = 0;
+        for (; played < count; played++) {
+            int legal = game.getLegalMoves(game.getTurn(), moves);
+            if (legal == 0)
+                break;
+            int move = moves[rand.nextInt(legal)];
+            SwingUtilities.invokeAndWait(() -> {
+                gui[0].click(Moves.getFromX(move), Moves.getFromY(move));
+                gui[0].click(Moves.getToX(move), Moves.getToY(move));
+            });
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%d moves, %.2f squares repainted and %.2f sprites read per move, %.2f ms per move%n",
+                played, (gui[0].getRepaintCount() - repaints) / (double) played,
+                (gui[0].getImageLoadCount() - loads) / (double) played, millis / played);
+    }
+}
@@ -0,0 +1,84 @@
+package chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the full-board canMove scan against the move generators of each piece type.
+ * Both are timed for every piece of both sides, on the standard and the custom setup.
+ * @author Ryan Gisleson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+
+    @Param({"standard", "custom"})
+    public String position;
+
+    private Game game;
+
+    @Setup
+    public void setUp() {
+        game = new Game(position.equals("custom") ? GameType.CUSTOM : GameType.STANDARD);
+        if (run(game, true) != run(game, false))
+            throw new IllegalStateException("Move generators disagree with canMove scan.");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoveGenerationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Benchmark
+    public long scan() {
+        return run(game, true);
+    }
+
+    @Benchmark
+    public long getMoves() {
+        return run(game, false);
+    }
+
+    private static int[][] scanMoves(Piece piece, Board board) {
+        ArrayList<int[]> moves = new ArrayList<>();
+        for (int x = 0; x < board.getWidth(); x++)
+            for (int y = 0; y < board.getHeight(); y++)
+                if (piece.canMove(board, x, y))
+                    moves.add(new int[]{x, y});
+        return moves.toArray(new int[0][]);
+    }
+
+    private static long run(Game game, boolean scan) {
+        long total = 0;
+        Board board = game.getBoard();
+        for (Team team : Team.values()) {
+            for (Piece piece : game.getPieces(team)) {
+                if (piece == null) break;
+                total += scan ? scanMoves(piece, board).length : piece.getMoves(board).length;
+            }
+        }
+        return total;
+    }
+}
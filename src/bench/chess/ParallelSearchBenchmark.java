@@ -0,0 +1,69 @@
+package chess;
+
+import chess.engine.ParallelSearch;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+
+/**
+ * Measures the time-to-depth speedup of the parallel search against a single thread on a fixed set of
+ * positions. Each search starts from an empty table.
+ * Arguments: depth (default 6), thread count (default all cores), table size in MB (default 64).
+ * @author Ryan Gisleson
+ */
+public class ParallelSearchBenchmark {
+
+    private static final int[] OPENING = {4, 6, 4, 4,  4, 1, 4, 3,  6, 7, 5, 5,  1, 0, 2, 2};
+    private static final int[] MIDDLEGAME = {
+            4, 6, 4, 4,  4, 1, 4, 3,
+            3, 6, 3, 4,  3, 1, 3, 3,
+            4, 4, 3, 3,  2, 1, 2, 2,
+            3, 3, 2, 2,  1, 1, 2, 2,
+            6, 6, 6, 5,  6, 1, 6, 2};
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 6;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int megabytes = (args.length > 2) ? Integer.parseInt(args[2]) : 64;
+        TranspositionTable table = new TranspositionTable(megabytes);
+
+        Game[] positions = {
+                new Game(GameType.STANDARD),
+                new Game(GameType.CUSTOM),
+                play(new Game(GameType.STANDARD), OPENING),
+                play(new Game(GameType.CUSTOM), OPENING),
+                play(new Game(GameType.STANDARD), MIDDLEGAME),
+                play(new Game(GameType.CUSTOM), MIDDLEGAME)};
+        String[] names = {"standard", "custom", "standardOpening", "customOpening",
+                "standardMiddlegame", "customMiddlegame"};
+
+        System.out.printf("depth %d, 1 vs %d threads, %d MB table%n", depth, threads, megabytes);
+        System.out.printf("%-20s %10s %10s %8s %12s%n", "position", "1 thread", threads + " threads", "speedup", "nps ratio");
+        double logSum = 0;
+        for (int i = 0; i < positions.length; i++) {
+            SearchResult single = timeToDepth(positions[i], 1, depth, table);
+            SearchResult parallel = timeToDepth(positions[i], threads, depth, table);
+            double speedup = (double) single.getMillis() / Math.max(1, parallel.getMillis());
+            double npsRatio = (double) parallel.getNodesPerSecond() / Math.max(1, single.getNodesPerSecond());
+            logSum += Math.log(speedup);
+            System.out.printf("%-20s %8dms %8dms %7.2fx %11.2fx%n", names[i], single.getMillis(), parallel.getMillis(),
+                    speedup, npsRatio);
+        }
+        System.out.printf("geometric mean speedup %.2fx%n", Math.exp(logSum / positions.length));
+    }
+
+    private static SearchResult timeToDepth(Game game, int threads, int depth, TranspositionTable table) {
+        table.clear();
+        table.newSearch();
+        return new ParallelSearch(game, threads, table).search(depth, Long.MAX_VALUE);
+    }
+
+    private static Game play(Game game, int[] moves) {
+        for (int i = 0; i < moves.length; i += 4) {
+            Piece piece = game.getBoard().getPiece(moves[i], moves[i + 1]);
+            if (piece == null || game.attemptMove(piece, moves[i + 2], moves[i + 3]) != 0)
+                throw new IllegalStateException("Benchmark position has an illegal move at " + i / 4);
+            game.nextTurn();
+        }
+        return game;
+    }
+}
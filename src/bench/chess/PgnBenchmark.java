@@ -0,0 +1,100 @@
+package chess;
+
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+import chess.pgn.PgnWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures PGN reading in games per second: through the file channel, memory mapped, and split over all
+ * cores. Every move is resolved against the legal moves, so this is the full cost of loading a game.
+ * Arguments: a PGN file to read, or the number of random games to write to a temporary file (default 20000).
+ * @author Ryan Gisleson
+ */
+public class PgnBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Path path;
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            path = Paths.get(args[0]);
+        } else {
+            int count = (args.length > 0) ? Integer.parseInt(args[0]) : 20_000;
+            path = Files.createTempFile("games", ".pgn");
+            path.toFile().deleteOnExit();
+            long start = System.nanoTime();
+            writeRandomGames(path, count);
+            System.out.printf("wrote %d random games in %.1fs%n", count, (System.nanoTime() - start) / 1e9);
+        }
+        long bytes = Files.size(path);
+        System.out.printf("%s, %.1f MB, %d cores%n", path, bytes / 1e6, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %10s %12s %10s %8s%n", "mode", "games", "games/s", "MB/s", "errors");
+        for (int round = 0; round < 3; round++) { // the first round warms up the JIT
+            measure("channel", bytes, p -> count(PgnReader.stream(p)), path);
+            measure("mapped", bytes, p -> {
+                if (Files.size(p) > Integer.MAX_VALUE)
+                    return -1;
+                try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+                    return count(PgnReader.map(channel).stream());
+                }
+            }, path);
+            measure("parallel", bytes, p -> count(PgnReader.parallelStream(p)), path);
+        }
+    }
+
+    private interface Reading {
+        long read(Path path) throws IOException;
+    }
+
+    private static long errors; // games of the last count that had a move that could not be read
+
+    private static long count(Stream<PgnGame> games) {
+        try (Stream<PgnGame> stream = games) {
+            LongSummaryStatistics invalid = stream.mapToLong(game -> game.isValid() ? 0 : 1).summaryStatistics();
+            errors = invalid.getSum();
+            return invalid.getCount();
+        }
+    }
+
+    private static void measure(String mode, long bytes, Reading reading, Path path) throws IOException {
+        long start = System.nanoTime();
+        long games = reading.read(path);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (games < 0)
+            System.out.printf("%-10s %10s%n", mode, "over 2GB");
+        else
+            System.out.printf("%-10s %10d %12.0f %10.1f %8d%n", mode, games, games / seconds, bytes / 1e6 / seconds, errors);
+    }
+
+    static void writeRandomGames(Path path, int count) throws IOException {
+        Random rand = new Random(1);
+        int[] moves = new int[Moves.MAX_MOVES];
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            PgnWriter writer = new PgnWriter(out);
+            for (int i = 0; i < count; i++) {
+                Game game = new Game((i % 2 == 0) ? GameType.STANDARD : GameType.CUSTOM);
+                for (int ply = 0; ply < 80; ply++) {
+                    int legal = game.getLegalMoves(game.getTurn(), moves);
+                    if (legal == 0)
+                        break;
+                    game.makeMove(moves[rand.nextInt(legal)]);
+                }
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Event", "Random games");
+                tags.put("Round", Integer.toString(i + 1));
+                writer.write(game, tags);
+            }
+        }
+    }
+}
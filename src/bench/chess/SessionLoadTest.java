@@ -0,0 +1,128 @@
+package chess;
+
+import chess.server.GameServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test for the game server: opens many sessions over HTTP and plays random legal moves in all of
+ * them at once, then prints latency percentiles per move. Runs at 1k and 10k sessions by default.
+ * Arguments: moves per session (default 4), client threads (default 64), then session counts.
+ * @author Ryan Gisleson
+ */
+public class SessionLoadTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\":\"(\\d+)\"");
+    private static final Pattern LEGAL = Pattern.compile("\"legalMoves\":\\[([^\\]]*)\\]");
+
+    public static void main(String[] args) throws Exception {
+        int movesPerSession = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        int clients = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+        int[] sessionCounts = {1_000, 10_000};
+        if (args.length > 2) {
+            sessionCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++)
+                sessionCounts[i - 2] = Integer.parseInt(args[i]);
+        }
+        GameServer server = new GameServer(0);
+        server.start();
+        System.out.println("server on port " + server.getPort()
+                + (server.usesVirtualThreads() ? ", virtual threads" : ", thread pool (no virtual threads in this JDK)"));
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            System.out.printf("%8s %8s %9s %9s %9s %9s %9s %10s%n",
+                    "sessions", "moves", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "moves/s");
+            for (int sessions : sessionCounts)
+                run(client, pool, server.getPort(), sessions, movesPerSession, clients);
+        } finally {
+            pool.shutdown();
+            server.stop();
+        }
+    }
+
+    private static void run(HttpClient client, ExecutorService pool, int port, int sessions, int movesPerSession,
+                            int clients) throws Exception {
+        String base = "http://127.0.0.1:" + port + "/games";
+        String[] ids = new String[sessions];
+        String[] states = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            String body = send(client, HttpRequest.newBuilder(URI.create(base + (i % 2 == 0 ? "" : "?type=custom")))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build());
+            Matcher matcher = ID.matcher(body);
+            if (!matcher.find())
+                throw new IllegalStateException("No id in " + body);
+            ids[i] = matcher.group(1);
+            states[i] = body;
+        }
+
+        long[] latencies = new long[sessions * movesPerSession]; // 0 where a finished game had no move to play
+        List<Future<?>> tasks = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int client0 = c;
+            tasks.add(pool.submit(() -> {
+                Random rand = new Random(client0);
+                // every client plays its share of the sessions one move at a time, round after round
+                for (int round = 0; round < movesPerSession; round++) {
+                    for (int s = client0; s < sessions; s += clients) {
+                        String[] legal = legalMoves(states[s]);
+                        if (legal.length == 0)
+                            continue; // game over
+                        String move = legal[rand.nextInt(legal.length)];
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/" + ids[s] + "/moves"))
+                                .POST(HttpRequest.BodyPublishers.ofString("{\"move\":\"" + move + "\"}")).build();
+                        long sent = System.nanoTime();
+                        states[s] = send(client, request);
+                        latencies[round * sessions + s] = Math.max(1, System.nanoTime() - sent);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> task : tasks)
+            task.get();
+        long elapsed = System.nanoTime() - start;
+
+        long[] samples = Arrays.stream(latencies).filter(latency -> latency > 0).sorted().toArray();
+        int total = samples.length;
+        System.out.printf("%8d %8d %9d %9d %9d %9d %9d %10.0f%n", sessions, total,
+                percentile(samples, 50), percentile(samples, 90), percentile(samples, 99), percentile(samples, 99.9),
+                samples[total - 1] / 1000, total / (elapsed / 1e9));
+        for (String id : ids)
+            client.send(HttpRequest.newBuilder(URI.create(base + "/" + id)).DELETE().build(),
+                    HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static String send(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300)
+            throw new IllegalStateException(response.statusCode() + " " + response.body());
+        return response.body();
+    }
+
+    private static String[] legalMoves(String state) {
+        Matcher matcher = LEGAL.matcher(state);
+        if (!matcher.find() || matcher.group(1).isEmpty())
+            return new String[0];
+        return matcher.group(1).replace("\"", "").split(",");
+    }
+
+    // in microseconds
+    private static long percentile(long[] sorted, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000;
+    }
+}
@@ -0,0 +1,180 @@
+package chess;
+
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import chess.pgn.San;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import javax.swing.*;
+
+/**
+ * Runs the GUI's searches and position checks on a thread of their own, so the window keeps answering
+ * clicks however long they take. Every task works on a copy of the game taken when it was started.
+ * Starting a task or cancelling stops the search that is running. A search's result is only handed to the
+ * event thread if no other task was started in the meantime, and a check's if no other check was, so asking
+ * for a move does not drop the check of the move before it.
+ * @author Ryan Gisleson
+ */
+class Analysis {
+
+    private static final int TABLE_MB = 16;
+    private static final int LINE_MOVES = 6; // moves of the best line shown
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "analysis");
+        thread.setDaemon(true); // never keeps the program running after the window closes
+        return thread;
+    });
+    private final TranspositionTable table = new TranspositionTable(TABLE_MB);
+    private final AtomicInteger searches = new AtomicInteger(); // bumped by every task and cancel
+    private final AtomicInteger checks = new AtomicInteger(); // bumped by every check and cancel
+    private final AtomicReference<Search> running = new AtomicReference<>();
+
+    /**
+     * Searches the game until told to stop or the time runs out, handing a line describing the
+     * search to the event thread after each depth.
+     * @param millis Time budget, Long.MAX_VALUE to search until cancelled
+     * @param progress Takes each line, see describe
+     */
+    void analyse(Game game, long millis, Consumer<String> progress) {
+        Game copy = new Game(game);
+        Game display = new Game(game);
+        int mine = stopSearch();
+        executor.execute(() -> {
+            Search search = start(copy, mine, result -> {
+                String line = describe(display, result);
+                deliver(searches, mine, () -> progress.accept(line));
+            });
+            if (search == null)
+                return;
+            search.search(Integer.MAX_VALUE, Long.MAX_VALUE, millis);
+            running.compareAndSet(search, null);
+        });
+    }
+
+    /**
+     * Searches for the best move of the side to move and hands it to the event thread.
+     * @param millis Time budget
+     * @param done Takes the move, Moves.NONE if there is no legal move
+     */
+    void findMove(Game game, long millis, IntConsumer done) {
+        Game copy = new Game(game);
+        int mine = stopSearch();
+        executor.execute(() -> {
+            Search search = start(copy, mine, result -> {});
+            if (search == null)
+                return;
+            SearchResult result = search.search(Integer.MAX_VALUE, Long.MAX_VALUE, millis);
+            running.compareAndSet(search, null);
+            int[] best = result.getBestMove();
+            int move = (best == null) ? Moves.NONE : Moves.of(copy.getBoard(), best[0], best[1], best[2], best[3]);
+            deliver(searches, mine, () -> done.accept(move));
+        });
+    }
+
+    /**
+     * Works something out about the game on the analysis thread and hands the answer to the event thread.
+     * @param work Runs on a copy of the game
+     * @param done Takes the answer
+     */
+    <T> void check(Game game, Function<Game, T> work, Consumer<T> done) {
+        Game copy = new Game(game);
+        stopSearch();
+        int mine = checks.incrementAndGet();
+        executor.execute(() -> {
+            if (checks.get() != mine)
+                return;
+            T answer = work.apply(copy);
+            deliver(checks, mine, () -> done.accept(answer));
+        });
+    }
+
+    /**
+     * Stops the running search and drops the results of everything started so far.
+     */
+    void cancel() {
+        checks.incrementAndGet();
+        stopSearch();
+    }
+
+    void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Stops the running search and drops the results of the searches started so far.
+     * @return The new search generation, which searches started after this belong to
+     */
+    private int stopSearch() {
+        int next = searches.incrementAndGet();
+        Search search = running.get();
+        if (search != null)
+            search.stop();
+        return next;
+    }
+
+    /**
+     * Makes the search for a task, or returns null if the task was cancelled before it began.
+     */
+    private Search start(Game copy, int mine, Consumer<SearchResult> listener) {
+        Search search = new Search(copy, table);
+        running.set(search);
+        // a cancel between here and the search starting is seen after its first depth
+        search.setListener(result -> {
+            if (searches.get() != mine)
+                search.stop();
+            else
+                listener.accept(result);
+        });
+        if (searches.get() != mine) {
+            running.compareAndSet(search, null);
+            return null;
+        }
+        return search;
+    }
+
+    private static void deliver(AtomicInteger generation, int mine, Runnable result) {
+        if (generation.get() != mine)
+            return;
+        SwingUtilities.invokeLater(() -> {
+            if (generation.get() == mine) // nothing started since it was handed over
+                result.run();
+        });
+    }
+
+    /**
+     * Describes a search result for the bottom bar, e.g. "depth 7  +0.35  e4 e5 Nf3".
+     * The score is from white's side, in pawns, or "M3" when white mates in 3 and "-M3" when black does.
+     * @param game The position the search started from, left as it was
+     */
+    static String describe(Game game, SearchResult result) {
+        int score = (game.getTurn() == Team.WHITE) ? result.getScore() : -result.getScore();
+        StringBuilder line = new StringBuilder("depth ").append(result.getDepth()).append("  ");
+        if (Search.isMateScore(score))
+            line.append((score > 0) ? "M" : "-M").append(Math.abs(Search.getMateDistance(score)));
+        else
+            line.append(String.format("%+.2f", score / 100.0));
+        line.append(' ');
+        List<int[]> pv = result.getPrincipalVariation();
+        int played = 0;
+        for (int[] step : pv) {
+            if (played == LINE_MOVES)
+                break;
+            int move = Moves.of(game.getBoard(), step[0], step[1], step[2], step[3]);
+            line.append(' ').append(San.write(game, move));
+            game.makeMove(move);
+            played++;
+        }
+        game.undoToPly(game.getPly() - played);
+        return line.toString();
+    }
+}
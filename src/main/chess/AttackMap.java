@@ -0,0 +1,94 @@
+package chess;
+
+/**
+ * Keeps the set of squares each team attacks on an 8x8 board.
+ * Every piece's attacks are stored by the square it stands on. When the board changes only the pieces
+ * on changed squares and the sliders whose rays touched a changed square are recomputed.
+ * Kings are see-through for the opposing team's sliders, so a king stepping back along a ray
+ * it is checked on still counts as attacked.
+ * @author Ryan Gisleson
+ */
+class AttackMap implements BoardListener {
+
+    private static final Team[] TEAMS = Team.values(); // values() copies the array on every call
+
+    private final Board board;
+    private final long[] attacksFrom = new long[64]; // attacks of the piece on each square
+    private final long[] teamAttacks = new long[TEAMS.length];
+    private long changed = ~0L; // squares changed since the last update, everything to begin with
+
+    AttackMap(Board board) {
+        if (!board.hasBitboards())
+            throw new IllegalArgumentException("Attack maps need an 8x8 board.");
+        this.board = board;
+        board.addListener(this);
+    }
+
+    @Override
+    public void pieceAdded(Piece piece, int x, int y) {
+        changed |= Bitboards.bit(x, y);
+    }
+
+    @Override
+    public void pieceRemoved(Piece piece, int x, int y) {
+        changed |= Bitboards.bit(x, y);
+    }
+
+    /**
+     * @param team The attacking team
+     * @return Mask of every square the team attacks, including squares held by its own pieces
+     */
+    long getAttacks(Team team) {
+        update();
+        return teamAttacks[team.ordinal()];
+    }
+
+    boolean isAttacked(int x, int y, Team team) {
+        return (getAttacks(team) & Bitboards.bit(x, y)) != 0;
+    }
+
+    private void update() {
+        if (changed == 0) return;
+        long occupied = board.getOccupied();
+        long recompute = changed;
+        long sliders = 0L;
+        for (Team team : TEAMS) {
+            sliders |= board.getPieces(team, PieceType.ROOK) | board.getPieces(team, PieceType.BISHOP)
+                    | board.getPieces(team, PieceType.QUEEN) | board.getPieces(team, PieceType.ARCHBISHOP);
+        }
+        long untyped = board.getUntypedPieces();
+        long candidates = (sliders | untyped) & ~changed;
+        while (candidates != 0) {
+            int square = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            // untyped pieces could depend on any square, so they are always redone
+            if ((attacksFrom[square] & changed) != 0 || (untyped & (1L << square)) != 0)
+                recompute |= 1L << square;
+        }
+        changed = 0;
+
+        while (recompute != 0) {
+            int square = Long.numberOfTrailingZeros(recompute);
+            recompute &= recompute - 1;
+            Piece piece = board.getPiece(Bitboards.getX(square), Bitboards.getY(square));
+            attacksFrom[square] = (piece == null) ? 0L : computeAttacks(piece, square, occupied);
+        }
+        for (Team team : TEAMS) {
+            long attacks = 0L;
+            long pieces = board.getOccupied(team);
+            while (pieces != 0) {
+                attacks |= attacksFrom[Long.numberOfTrailingZeros(pieces)];
+                pieces &= pieces - 1;
+            }
+            teamAttacks[team.ordinal()] = attacks;
+        }
+    }
+
+    private long computeAttacks(Piece piece, int square, long occupied) {
+        Team other = (piece.getTeam() == Team.WHITE) ? Team.BLACK : Team.WHITE;
+        long blockers = occupied & ~board.getPieces(other, PieceType.KING);
+        if (piece.getType() != null)
+            return Bitboards.attacks(piece.getType(), piece.getTeam(), square, blockers);
+        return board.getAttacks(piece, blockers);
+    }
+}
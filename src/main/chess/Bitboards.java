@@ -0,0 +1,180 @@
+package chess;
+
+/**
+ * Attack tables and helpers for 8x8 boards stored as 64 bit masks.
+ * Square (x, y) is bit y * 8 + x, so bit 0 is the top-left corner.
+ * @author Ryan Gisleson
+ */
+public final class Bitboards {
+
+    public static final int SIZE = 8;
+
+    // ray directions, the first four increase the square index and the last four decrease it
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}, {-1, 0}, {0, -1}, {-1, -1}, {1, -1}};
+    private static final int EAST = 0, SOUTH = 1, SOUTH_EAST = 2, SOUTH_WEST = 3;
+    private static final int WEST = 4, NORTH = 5, NORTH_WEST = 6, NORTH_EAST = 7;
+
+    private static final long[][] RAYS = new long[8][64];
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[] SQUIRREL_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    private static final long[][] BETWEEN = new long[64][64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            int x = sq % SIZE;
+            int y = sq / SIZE;
+            for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+                for (int i = x + DIRECTIONS[dir][0], j = y + DIRECTIONS[dir][1]; onBoard(i, j);
+                     i += DIRECTIONS[dir][0], j += DIRECTIONS[dir][1]) {
+                    BETWEEN[sq][square(i, j)] = RAYS[dir][sq];
+                    RAYS[dir][sq] |= bit(i, j);
+                }
+            }
+            for (int dx = -2; dx <= 2; dx++) {
+                for (int dy = -2; dy <= 2; dy++) {
+                    if (!onBoard(x + dx, y + dy)) continue;
+                    int ax = Math.abs(dx), ay = Math.abs(dy);
+                    if ((ax == 1 && ay == 2) || (ax == 2 && ay == 1))
+                        KNIGHT_ATTACKS[sq] |= bit(x + dx, y + dy);
+                    if (ax <= 1 && ay <= 1 && (ax | ay) != 0)
+                        KING_ATTACKS[sq] |= bit(x + dx, y + dy);
+                    if (ax == 2 || ay == 2)
+                        SQUIRREL_ATTACKS[sq] |= bit(x + dx, y + dy);
+                }
+            }
+            for (int dx = -1; dx <= 1; dx += 2) {
+                if (onBoard(x + dx, y - 1))
+                    PAWN_ATTACKS[Team.WHITE.ordinal()][sq] |= bit(x + dx, y - 1);
+                if (onBoard(x + dx, y + 1))
+                    PAWN_ATTACKS[Team.BLACK.ordinal()][sq] |= bit(x + dx, y + 1);
+            }
+        }
+    }
+
+    private Bitboards() {}
+
+    private static boolean onBoard(int x, int y) {
+        return x >= 0 && x < SIZE && y >= 0 && y < SIZE;
+    }
+
+    public static int square(int x, int y) {
+        return y * SIZE + x;
+    }
+
+    public static long bit(int x, int y) {
+        return 1L << square(x, y);
+    }
+
+    public static int getX(int square) {
+        return square & (SIZE - 1);
+    }
+
+    public static int getY(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Swaps x and y of every square in the mask, so iterating the result visits squares column by column.
+     */
+    public static long transpose(long mask) {
+        long t = 0x0f0f0f0f00000000L & (mask ^ (mask << 28));
+        mask ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (mask ^ (mask << 14));
+        mask ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (mask ^ (mask << 7));
+        mask ^= t ^ (t >>> 7);
+        return mask;
+    }
+
+    /**
+     * Squares strictly between two squares on the same row, column or diagonal.
+     * @return The squares in between, 0 if the squares are not lined up or are next to each other
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Check if two squares share a row or column.
+     */
+    public static boolean isOrthogonal(int from, int to) {
+        return from != to && (getX(from) == getX(to) || getY(from) == getY(to));
+    }
+
+    /**
+     * Check if two squares share a diagonal.
+     */
+    public static boolean isDiagonal(int from, int to) {
+        return from != to && Math.abs(getX(from) - getX(to)) == Math.abs(getY(from) - getY(to));
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    public static long squirrelAttacks(int square) {
+        return SQUIRREL_ATTACKS[square];
+    }
+
+    /**
+     * Squares a pawn attacks diagonally, whether or not there is anything to capture there.
+     */
+    public static long pawnAttacks(Team team, int square) {
+        return PAWN_ATTACKS[team.ordinal()][square];
+    }
+
+    private static long positiveRay(int dir, int square, long occupied) {
+        long attacks = RAYS[dir][square];
+        long blockers = attacks & occupied;
+        if (blockers != 0)
+            attacks ^= RAYS[dir][Long.numberOfTrailingZeros(blockers)];
+        return attacks;
+    }
+
+    private static long negativeRay(int dir, int square, long occupied) {
+        long attacks = RAYS[dir][square];
+        long blockers = attacks & occupied;
+        if (blockers != 0)
+            attacks ^= RAYS[dir][63 - Long.numberOfLeadingZeros(blockers)];
+        return attacks;
+    }
+
+    /**
+     * Squares a rook on square attacks, including the first blocker in each direction.
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return positiveRay(EAST, square, occupied) | positiveRay(SOUTH, square, occupied)
+                | negativeRay(WEST, square, occupied) | negativeRay(NORTH, square, occupied);
+    }
+
+    /**
+     * Squares a bishop on square attacks, including the first blocker in each direction.
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return positiveRay(SOUTH_EAST, square, occupied) | positiveRay(SOUTH_WEST, square, occupied)
+                | negativeRay(NORTH_WEST, square, occupied) | negativeRay(NORTH_EAST, square, occupied);
+    }
+
+    /**
+     * Squares a piece of the given type attacks from square. Pawns only attack diagonally.
+     */
+    public static long attacks(PieceType type, Team team, int square, long occupied) {
+        switch (type) {
+            case PAWN: return pawnAttacks(team, square);
+            case KNIGHT: return knightAttacks(square);
+            case BISHOP: return bishopAttacks(square, occupied);
+            case ROOK: return rookAttacks(square, occupied);
+            case QUEEN: return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+            case KING: return kingAttacks(square);
+            case ARCHBISHOP: return bishopAttacks(square, occupied) | knightAttacks(square);
+            case SQUIRREL: return squirrelAttacks(square);
+            default: return 0L;
+        }
+    }
+}
@@ -12,13 +12,23 @@ public class Board {
     private Piece[][] board;
     private int width, height;
 
+    /**
+     * 8x8 boards also keep their occupancy as 64 bit masks, see Bitboards for the square layout.
+     * Pieces without a PieceType are only in the team masks.
+     */
+    private final boolean bitboards;
+    private final long[] teamMasks = new long[Team.values().length];
+    private final long[] typeMasks = new long[PieceType.count()];
+
+    private long hash; // Zobrist hash of the pieces and the side to move
+
+    private BoardListener[] listeners = new BoardListener[0];
+
     /**
      * Default constructor builds an 8x8 board, the standard chess board size.
      */
     public Board() {
-        width = 8;
-        height = 8;
-        board = new Piece[width][height];
+        this(8, 8);
     }
 
     /**
@@ -32,6 +42,7 @@ public class Board {
         this.width = width;
         this.height = height;
         board = new Piece[width][height];
+        bitboards = width == Bitboards.SIZE && height == Bitboards.SIZE;
     }
 
     /**
@@ -51,8 +62,18 @@ public class Board {
      * @param y The y coordinate to place piece on
      */
     public void setPiece(Piece piece, int x, int y) {
-        if (isValidSpace(x, y))
+        if (isValidSpace(x, y)) {
+            Piece old = board[x][y];
+            if (old != null)
+                untrackPiece(old, x, y);
             board[x][y] = piece;
+            trackPiece(piece, x, y);
+            for (BoardListener listener : listeners) {
+                if (old != null)
+                    listener.pieceRemoved(old, x, y);
+                listener.pieceAdded(piece, x, y);
+            }
+        }
         piece.setX(x);
         piece.setY(y);
     }
@@ -62,7 +83,83 @@ public class Board {
     }
 
     public void removePiece(int x, int y) {
+        Piece old = board[x][y];
+        if (old == null) return;
+        untrackPiece(old, x, y);
         board[x][y] = null;
+        for (BoardListener listener : listeners)
+            listener.pieceRemoved(old, x, y);
+    }
+
+    /**
+     * Gets the Zobrist hash of the position, kept up to date as pieces are set and removed.
+     * Equal positions with the same side to move have equal hashes.
+     * @return 64 bit hash of the position
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Switches the side to move in the hash, called whenever the turn changes.
+     */
+    public void toggleSideToMove() {
+        hash ^= Zobrist.SIDE_TO_MOVE;
+    }
+
+    /**
+     * Works out the hash from scratch, to check the kept hash against.
+     * @param blackToMove Whether the hash should be for black's turn
+     * @return 64 bit hash of the position
+     */
+    long computeHash(boolean blackToMove) {
+        long result = blackToMove ? Zobrist.SIDE_TO_MOVE : 0L;
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                if (board[x][y] != null)
+                    result ^= Zobrist.pieceKey(board[x][y], y * width + x);
+        return result;
+    }
+
+    /**
+     * Registers a listener to be told about every change to the board from now on.
+     * @param listener The listener to add
+     */
+    public void addListener(BoardListener listener) {
+        BoardListener[] larger = new BoardListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, larger, 0, listeners.length);
+        larger[listeners.length] = listener;
+        listeners = larger;
+    }
+
+    /**
+     * Finds a registered listener of a class, so state kept for a board can be shared instead of kept twice.
+     * @param type Class of the listener
+     * @return The first listener added of exactly that class, or null if there is none
+     */
+    public <T extends BoardListener> T getListener(Class<T> type) {
+        for (BoardListener listener : listeners)
+            if (listener.getClass() == type)
+                return type.cast(listener);
+        return null;
+    }
+
+    private void trackPiece(Piece piece, int x, int y) {
+        hash ^= Zobrist.pieceKey(piece, y * width + x);
+        if (!bitboards) return;
+        long bit = Bitboards.bit(x, y);
+        teamMasks[piece.getTeam().ordinal()] |= bit;
+        if (piece.getType() != null)
+            typeMasks[piece.getType().ordinal()] |= bit;
+    }
+
+    private void untrackPiece(Piece piece, int x, int y) {
+        hash ^= Zobrist.pieceKey(piece, y * width + x);
+        if (!bitboards) return;
+        long bit = Bitboards.bit(x, y);
+        teamMasks[piece.getTeam().ordinal()] &= ~bit;
+        if (piece.getType() != null)
+            typeMasks[piece.getType().ordinal()] &= ~bit;
     }
 
     public Piece getPiece(int x, int y) throws IllegalArgumentException {
@@ -73,6 +170,189 @@ public class Board {
         return board[x][y];
     }
 
+    /**
+     * Check if a square has a piece on it, without the bounds check of getPiece.
+     * @param x The x coordinate, must be on the board
+     * @param y The y coordinate, must be on the board
+     * @return True if there is a piece on the square
+     */
+    public boolean isOccupied(int x, int y) {
+        if (bitboards)
+            return ((teamMasks[0] | teamMasks[1]) & Bitboards.bit(x, y)) != 0;
+        return board[x][y] != null;
+    }
+
+    /**
+     * Whether the occupancy masks are kept. Only 8x8 boards have them.
+     */
+    public boolean hasBitboards() {
+        return bitboards;
+    }
+
+    /**
+     * @return Mask of every occupied square, 0 if the board has no bitboards
+     */
+    public long getOccupied() {
+        return teamMasks[0] | teamMasks[1];
+    }
+
+    /**
+     * @return Mask of squares occupied by the team, 0 if the board has no bitboards
+     */
+    public long getOccupied(Team team) {
+        return teamMasks[team.ordinal()];
+    }
+
+    /**
+     * @return Mask of squares holding pieces of the given team and type, 0 if the board has no bitboards
+     */
+    public long getPieces(Team team, PieceType type) {
+        return typeMasks[type.ordinal()] & teamMasks[team.ordinal()];
+    }
+
+    /**
+     * @return Mask of squares holding pieces that have no PieceType
+     */
+    long getUntypedPieces() {
+        long typed = 0L;
+        for (long mask : typeMasks)
+            typed |= mask;
+        return getOccupied() & ~typed;
+    }
+
+    /**
+     * Counts the pieces of a team on the board.
+     * @param team The team to count
+     * @return Number of pieces
+     */
+    public int countPieces(Team team) {
+        if (bitboards)
+            return Long.bitCount(teamMasks[team.ordinal()]);
+        int count = 0;
+        for (Piece[] column : board)
+            for (Piece piece : column)
+                if (piece != null && piece.getTeam() == team)
+                    count++;
+        return count;
+    }
+
+    /**
+     * Counts the pieces of a given team and type on the board.
+     * @param team The team to count
+     * @param type The type to count
+     * @return Number of pieces
+     */
+    public int countPieces(Team team, PieceType type) {
+        if (bitboards)
+            return Long.bitCount(getPieces(team, type));
+        int count = 0;
+        for (Piece[] column : board)
+            for (Piece piece : column)
+                if (piece != null && piece.getTeam() == team && piece.getType() == type)
+                    count++;
+        return count;
+    }
+
+    /**
+     * Gets every square the team attacks, including squares with their own pieces on them.
+     * Pawns attack diagonally. Pieces without a type fall back to their canMove rules.
+     * @param team The attacking team
+     * @return Mask of attacked squares, 0 if the board has no bitboards
+     */
+    public long getAttacks(Team team) {
+        if (!bitboards) return 0L;
+        long occupied = getOccupied();
+        long attacks = 0L;
+        long pieces = teamMasks[team.ordinal()];
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            attacks |= getAttacks(board[Bitboards.getX(square)][Bitboards.getY(square)], occupied);
+        }
+        return attacks;
+    }
+
+    /**
+     * Gets every square a single piece attacks with the given occupancy.
+     * @param piece Piece on this board
+     * @param occupied Mask of squares that block sliding pieces
+     * @return Mask of attacked squares
+     */
+    long getAttacks(Piece piece, long occupied) {
+        int square = Bitboards.square(piece.getX(), piece.getY());
+        if (piece.getType() != null)
+            return Bitboards.attacks(piece.getType(), piece.getTeam(), square, occupied);
+        long attacks = 0L;
+        for (int[] move : piece.getMoves(this))
+            attacks |= Bitboards.bit(move[0], move[1]);
+        return attacks;
+    }
+
+    /**
+     * Check if any piece of a team attacks a square.
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param team The attacking team
+     * @return True if the square is attacked, False otherwise or if the board has no bitboards
+     */
+    public boolean isAttacked(int x, int y, Team team) {
+        if (!bitboards || !isValidSpace(x, y)) return false;
+        int square = Bitboards.square(x, y);
+        long occupied = getOccupied();
+        long rooks = getPieces(team, PieceType.ROOK) | getPieces(team, PieceType.QUEEN);
+        long bishops = getPieces(team, PieceType.BISHOP) | getPieces(team, PieceType.QUEEN)
+                | getPieces(team, PieceType.ARCHBISHOP);
+        long knights = getPieces(team, PieceType.KNIGHT) | getPieces(team, PieceType.ARCHBISHOP);
+        Team other = (team == Team.WHITE) ? Team.BLACK : Team.WHITE;
+        // attacks are symmetric, so look outwards from the square with each piece shape
+        if ((Bitboards.rookAttacks(square, occupied) & rooks) != 0
+                || (Bitboards.bishopAttacks(square, occupied) & bishops) != 0
+                || (Bitboards.knightAttacks(square) & knights) != 0
+                || (Bitboards.kingAttacks(square) & getPieces(team, PieceType.KING)) != 0
+                || (Bitboards.squirrelAttacks(square) & getPieces(team, PieceType.SQUIRREL)) != 0
+                || (Bitboards.pawnAttacks(other, square) & getPieces(team, PieceType.PAWN)) != 0)
+            return true;
+        long untyped = getUntypedPieces() & teamMasks[team.ordinal()];
+        while (untyped != 0) {
+            int from = Long.numberOfTrailingZeros(untyped);
+            untyped &= untyped - 1;
+            if (board[Bitboards.getX(from)][Bitboards.getY(from)].canMove(this, x, y))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Names a square the way chess notation does, files from 'a' left to right and ranks
+     * counting up from the bottom of the board.
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @return Name like "e4"
+     */
+    public String getSquareName(int x, int y) {
+        return (char) ('a' + x) + Integer.toString(height - y);
+    }
+
+    /**
+     * Reads a square name written by getSquareName.
+     * @param name Name like "e4"
+     * @return {x, y}, or null if the name is not a square on this board
+     */
+    public int[] parseSquare(String name) {
+        if (name == null || name.length() < 2)
+            return null;
+        int x = name.charAt(0) - 'a';
+        int rank = 0;
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9' || rank > height)
+                return null;
+            rank = rank * 10 + (c - '0');
+        }
+        int y = height - rank;
+        return isValidSpace(x, y) ? new int[]{x, y} : null;
+    }
+
     public int getHeight() {
         return height;
     }
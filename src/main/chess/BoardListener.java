@@ -0,0 +1,19 @@
+package chess;
+
+/**
+ * Gets told about every piece placed on or taken off a board, so state derived
+ * from the board can be kept up to date without rescanning it.
+ * @author Ryan Gisleson
+ */
+public interface BoardListener {
+
+    /**
+     * Called after a piece has been placed on a square.
+     */
+    void pieceAdded(Piece piece, int x, int y);
+
+    /**
+     * Called after a piece has been taken off a square, including when another piece replaces it.
+     */
+    void pieceRemoved(Piece piece, int x, int y);
+}
@@ -0,0 +1,192 @@
+package chess;
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import javax.swing.*;
+
+/**
+ * Draws a board of any size in one component: the squares, the pieces and the outlines of highlighted
+ * squares, all in one paint. Swing paints it into a back buffer, so nothing half drawn is shown.
+ * When the board changes only the squares whose piece or outline changed are repainted, and only
+ * the squares inside the repainted area are drawn.
+ * @author Ryan Gisleson
+ */
+class BoardView extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Gets told which square was clicked.
+     */
+    interface SquareListener {
+        void squareClicked(int x, int y);
+    }
+
+    static final Color LIGHT = Color.WHITE;
+    static final Color DARK = Color.BLACK;
+    private static final int OUTLINE = 3; // width of a highlight in pixels
+
+    private final SpriteCache sprites;
+    private Board board;
+    private Piece[] shown = new Piece[0]; // piece on each square when it was last repainted, by y * width + x
+    private Color[] outlines = new Color[0];
+    private int[] outlined = new int[0]; // squares that have an outline
+    private int outlinedCount;
+    private long repaints; // squares asked to be repainted
+
+    BoardView(SpriteCache sprites, SquareListener listener) {
+        this.sprites = sprites;
+        setDoubleBuffered(true);
+        setOpaque(true);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int square = squareAt(e.getX(), e.getY());
+                if (square >= 0 && SwingUtilities.isLeftMouseButton(e))
+                    listener.squareClicked(square % board.getWidth(), square / board.getWidth());
+            }
+        });
+    }
+
+    /**
+     * Shows another board, repainting everything.
+     */
+    void setBoard(Board board) {
+        this.board = board;
+        int squares = board.getWidth() * board.getHeight();
+        if (shown.length != squares) {
+            shown = new Piece[squares];
+            outlines = new Color[squares];
+            outlined = new int[squares];
+        }
+        Arrays.fill(outlines, null);
+        outlinedCount = 0;
+        update();
+        repaint();
+    }
+
+    /**
+     * Repaints the squares whose piece changed since they were last repainted.
+     */
+    void update() {
+        int width = board.getWidth();
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < width; x++) {
+                Piece piece = board.getPiece(x, y);
+                if (piece != shown[y * width + x]) {
+                    shown[y * width + x] = piece;
+                    repaintSquare(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Outlines a square in a color, until the outlines are cleared.
+     */
+    void outline(int x, int y, Color color) {
+        int square = y * board.getWidth() + x;
+        if (outlines[square] == null)
+            outlined[outlinedCount++] = square;
+        outlines[square] = color;
+        repaintSquare(x, y);
+    }
+
+    void clearOutlines() {
+        int width = board.getWidth();
+        for (int i = 0; i < outlinedCount; i++) {
+            outlines[outlined[i]] = null;
+            repaintSquare(outlined[i] % width, outlined[i] / width);
+        }
+        outlinedCount = 0;
+    }
+
+    /**
+     * Asks Swing to repaint one square, which it does together with the others asked for on its next paint.
+     */
+    void repaintSquare(int x, int y) {
+        int size = getSquareSize();
+        repaint(getLeft() + x * size, getTop() + y * size, size, size);
+        repaints++;
+    }
+
+    /**
+     * @return Number of squares asked to be repainted since the view was made
+     */
+    long getRepaintCount() {
+        return repaints;
+    }
+
+    /**
+     * @return Side of a square in pixels, the largest that fits the whole board in the component
+     */
+    int getSquareSize() {
+        if (board == null)
+            return 0;
+        return Math.max(1, Math.min(getWidth() / board.getWidth(), getHeight() / board.getHeight()));
+    }
+
+    // the board is centred, with any space left over split on both sides
+    private int getLeft() {
+        return (getWidth() - getSquareSize() * board.getWidth()) / 2;
+    }
+
+    private int getTop() {
+        return (getHeight() - getSquareSize() * board.getHeight()) / 2;
+    }
+
+    /**
+     * Finds the square at a point of the component.
+     * @return The square as y * width + x, or -1 if the point is off the board
+     */
+    int squareAt(int px, int py) {
+        if (board == null)
+            return -1;
+        int size = getSquareSize();
+        int x = Math.floorDiv(px - getLeft(), size);
+        int y = Math.floorDiv(py - getTop(), size);
+        return board.isValidSpace(x, y) ? y * board.getWidth() + x : -1;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (board == null)
+            return;
+        int size = getSquareSize();
+        int left = getLeft();
+        int top = getTop();
+        // only the squares that overlap the area being repainted
+        int firstX = Math.max(0, Math.floorDiv(clip.x - left, size));
+        int lastX = Math.min(board.getWidth() - 1, Math.floorDiv(clip.x + clip.width - 1 - left, size));
+        int firstY = Math.max(0, Math.floorDiv(clip.y - top, size));
+        int lastY = Math.min(board.getHeight() - 1, Math.floorDiv(clip.y + clip.height - 1 - top, size));
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                int px = left + x * size;
+                int py = top + y * size;
+                g.setColor(((x + y) % 2 == 0) ? LIGHT : DARK);
+                g.fillRect(px, py, size, size);
+                Piece piece = board.getPiece(x, y);
+                if (piece != null) {
+                    BufferedImage image = sprites.getImage(piece, size);
+                    if (image != null)
+                        g.drawImage(image, px, py, null);
+                }
+                Color outline = outlines[y * board.getWidth() + x];
+                if (outline != null) {
+                    g.setColor(outline);
+                    for (int i = 0; i < OUTLINE; i++)
+                        g.drawRect(px + i, py + i, size - 1 - 2 * i, size - 1 - 2 * i);
+                }
+            }
+        }
+    }
+}
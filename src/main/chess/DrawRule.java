@@ -0,0 +1,12 @@
+package chess;
+
+/**
+ * The rules a game can be drawn by, see Game.getDraw.
+ * @author Ryan Gisleson
+ */
+public enum DrawRule {
+    STALEMATE, // the side to move has no legal move and is not in check
+    REPETITION, // the same position with the same side to move for the third time
+    FIFTY_MOVES, // fifty moves by each side without a capture or a pawn move
+    INSUFFICIENT_MATERIAL // neither side can ever give mate, however the game is played
+}
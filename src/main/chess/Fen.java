@@ -0,0 +1,207 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * Piece letters are the PieceType letters, so the archbishop is 'A' and the squirrel 'S', upper case for white.
+ * Boards of any size work: there is one rank per row from the top, and runs of empty squares can take more
+ * than one digit, like "10" on a wide board.
+ * This game has no castling or en passant, so those fields are read and ignored and always written as "-".
+ * The halfmove clock is read for the fifty move rule, but the move counters are always written as "0 1".
+ * EPD lines, which stop after the en passant field and may carry operations after it, load the same way.
+ * @author Ryan Gisleson
+ */
+public final class Fen {
+
+    public static final String STANDARD = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+    public static final String CUSTOM = "rsbqkanr/pppppppp/8/8/8/8/PPPPPPPP/RNAQKBSR w - - 0 1";
+
+    private Fen() {}
+
+    /**
+     * Makes a new game from a FEN string, with a board as large as its placement field.
+     * @param fen Position in FEN or EPD
+     * @return The game, with the side to move from the string
+     * @throws IllegalArgumentException If the string is not a position
+     */
+    public static Game parse(String fen) {
+        int end = fieldEnd(fen, 0);
+        int width = 0;
+        int height = 1;
+        int rowWidth = 0;
+        for (int i = 0; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                width = Math.max(width, rowWidth);
+                rowWidth = 0;
+                height++;
+            } else if (c >= '0' && c <= '9') {
+                int run = 0;
+                while (i < end && fen.charAt(i) >= '0' && fen.charAt(i) <= '9')
+                    run = run * 10 + (fen.charAt(i++) - '0');
+                i--;
+                rowWidth += run;
+            } else {
+                rowWidth++;
+            }
+        }
+        width = Math.max(width, rowWidth);
+        if (end == 0 || width == 0)
+            throw new IllegalArgumentException("No piece placement in \"" + fen + "\".");
+        Game game = new Game(width, height);
+        load(game, fen);
+        return game;
+    }
+
+    /**
+     * Sets up an existing game from a FEN string, replacing whatever was on its board.
+     * Reusing one game this way is much cheaper than parse when loading many positions.
+     * @param game Game to set up, its board must be the size the string describes
+     * @param fen Position in FEN or EPD
+     * @throws IllegalArgumentException If the string is not a position for this board, the game is left empty
+     */
+    public static void load(Game game, CharSequence fen) {
+        game.clear();
+        try {
+            readPlacement(game, fen);
+        } catch (IllegalArgumentException e) {
+            game.clear();
+            throw e;
+        }
+    }
+
+    private static void readPlacement(Game game, CharSequence fen) {
+        Board board = game.getBoard();
+        int end = fieldEnd(fen, 0);
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (x != board.getWidth())
+                    throw new IllegalArgumentException("Rank " + (board.getHeight() - y) + " has " + x
+                            + " squares, expected " + board.getWidth() + " in \"" + fen + "\".");
+                x = 0;
+                y++;
+            } else if (c >= '0' && c <= '9') {
+                int run = 0;
+                while (i < end && fen.charAt(i) >= '0' && fen.charAt(i) <= '9')
+                    run = run * 10 + (fen.charAt(i++) - '0');
+                i--;
+                x += run;
+            } else {
+                PieceType type = PieceType.fromLetter(c);
+                if (type == null)
+                    throw new IllegalArgumentException("Unknown piece letter '" + c + "' in \"" + fen + "\".");
+                if (!board.isValidSpace(x, y))
+                    throw new IllegalArgumentException("Piece off the board in \"" + fen + "\".");
+                game.addPiece(type.create(Character.isUpperCase(c) ? Team.WHITE : Team.BLACK), x, y);
+                x++;
+            }
+        }
+        if (x != board.getWidth() || y != board.getHeight() - 1)
+            throw new IllegalArgumentException("Placement does not fill a " + board.getWidth() + "x"
+                    + board.getHeight() + " board in \"" + fen + "\".");
+
+        int start = skipSpaces(fen, end);
+        if (start == fen.length())
+            return; // placement only, white to move
+        end = fieldEnd(fen, start);
+        if (end - start != 1 || (fen.charAt(start) != 'w' && fen.charAt(start) != 'b'))
+            throw new IllegalArgumentException("Side to move must be w or b in \"" + fen + "\".");
+        if (fen.charAt(start) == 'b')
+            game.nextTurn();
+        // castling and en passant have nothing to set here, EPD lines stop after them
+        for (int field = 0; field < 3; field++) {
+            start = skipSpaces(fen, end);
+            end = fieldEnd(fen, start);
+        }
+        int clock = 0;
+        for (int i = start; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c < '0' || c > '9')
+                return; // an EPD operation, not a clock
+            clock = Math.min(clock * 10 + (c - '0'), Game.FIFTY_MOVE_PLIES * 10);
+        }
+        game.setHalfmoveClock(clock);
+    }
+
+    private static int fieldEnd(CharSequence fen, int start) {
+        int end = start;
+        while (end < fen.length() && fen.charAt(end) != ' ')
+            end++;
+        return end;
+    }
+
+    private static int skipSpaces(CharSequence fen, int start) {
+        while (start < fen.length() && fen.charAt(start) == ' ')
+            start++;
+        return start;
+    }
+
+    /**
+     * Writes a game's position as a FEN string.
+     * @param game The game to write
+     * @return FEN string, "- - 0 1" after the side to move
+     * @throws IllegalArgumentException If a piece on the board has no PieceType and so no letter
+     */
+    public static String write(Game game) {
+        Board board = game.getBoard();
+        StringBuilder fen = new StringBuilder(board.getWidth() * board.getHeight() + 16);
+        for (int y = 0; y < board.getHeight(); y++) {
+            if (y > 0)
+                fen.append('/');
+            int empty = 0;
+            for (int x = 0; x < board.getWidth(); x++) {
+                Piece piece = board.getPiece(x, y);
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (piece.getType() == null)
+                    throw new IllegalArgumentException(piece.getClass().getSimpleName() + " on "
+                            + board.getSquareName(x, y) + " has no FEN letter.");
+                if (empty > 0)
+                    fen.append(empty);
+                empty = 0;
+                fen.append(PieceType.getLetter(piece));
+            }
+            if (empty > 0)
+                fen.append(empty);
+        }
+        return fen.append(game.getTurn() == Team.WHITE ? " w" : " b").append(" - - 0 1").toString();
+    }
+
+    /**
+     * Loads positions one line at a time into the same game and hands each one to an action, for batch
+     * tools going through large FEN or EPD files. Nothing is kept between lines, so memory use stays flat
+     * however long the input is. Blank lines and lines starting with '#' are skipped.
+     * @param reader Input with one position per line
+     * @param game Game every position is loaded into, sized for the positions in the input
+     * @param action Called with the game after each position is loaded, it may play moves on it
+     * @return Number of positions loaded
+     * @throws IllegalArgumentException If a line is not a position, with its line number
+     */
+    public static long loadAll(BufferedReader reader, Game game, Consumer<Game> action) throws IOException {
+        long count = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int start = skipSpaces(line, 0);
+            if (start == line.length() || line.charAt(start) == '#')
+                continue;
+            try {
+                load(game, (start == 0) ? line : line.substring(start));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+            action.accept(game);
+            count++;
+        }
+        return count;
+    }
+}
@@ -1,8 +1,16 @@
 package chess;
 
+import chess.book.BookMove;
+import chess.book.OpeningBook;
+import chess.pgn.San;
+
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import javax.swing.*;
 
 /**
@@ -12,99 +20,39 @@ import javax.swing.*;
  */
 public class GUI implements ActionListener {
 
-    class Square extends JButton implements ActionListener {
-        private int x, y;
-
-        Square(int x, int y) {
-            super();
-            this.x = x;
-            this.y = y;
-            this.addActionListener(this);
-        }
-
-        @Override
-        public void actionPerformed(ActionEvent e) {
-            Piece selected = game.getSelected();
-
-            if (selected == null) {
-                tryToSelectPiece();
-            } else if (selected.getX() == x && selected.getY() == y) { // unselecting piece
-                game.setSelected(-1, -1);
-                drawBoard();
-            } else {
-                int oldX = selected.getX();
-                int oldY = selected.getY();
-                int ret = game.attemptMove(selected, x, y);
-                if (ret == 0)
-                    handleSuccessfulMove();
-                if (ret == 1)
-                    setMessage("Illegal move, piece cannot move there.");
-                if (ret == 2)
-                    setMessage("Illegal move, move would put you in check.");
-                squares[oldX][oldY].setBorder(BorderFactory.createEmptyBorder());
-                game.setSelected(-1, -1); // sets selected to null
-                drawBoard();
-            }
-        }
-
-        private void handleSuccessfulMove() {
-            game.nextTurn();
-            String turn = (game.getTurn() == Team.WHITE) ? "White" : "Black";
-            String other = (game.getTurn() == Team.WHITE) ? "Black" : "White";
-            // TODO : need to check for checkmate, and end game if so
-            Piece king = game.getKing(game.getTurn());
-            if(game.inCheck(king, king.getX(), king.getY()))
-                if (game.inCheckmate(king, king.getX(), king.getY()))
-                    handleCheckmate();
-                else
-                    setMessage(turn + "king in check! " + turn + "'s turn.");
-            else
-                setMessage(turn + "'s turn.");
-        }
-
-        private void handleCheckmate() {
-            drawBoard();
-            Team winner = (game.getTurn() == Team.WHITE) ? Team.BLACK : Team.WHITE;
-            String winnerStr = (game.getTurn() == Team.WHITE) ? "Black" : "White";
-            setMessage("CHECKMATE! " + winnerStr + " wins!");
-            incrementScore(winner);
-            int ret = JOptionPane.showConfirmDialog(null, "Would you like " +
-                    "to start another match?", "Start New Match", JOptionPane.YES_NO_OPTION);
-            if (ret == 0)
-                restartGame();
-        }
-
-        private void tryToSelectPiece() {
-            if (game.isValidPiece(x, y)) {
-                game.setSelected(x, y);
-                squares[x][y].setBorder(BorderFactory.createLineBorder(Color.RED, 3));
-                for (int[] move : game.getSelected().getMoves(game.getBoard())) {
-                    squares[move[0]][move[1]].setBorder((BorderFactory.createLineBorder(Color.GREEN, 3)));
-                }
-            }
-        }
-    }
-
-
     private static final int WINDOW_WIDTH = 600;
     private static final int WINDOW_HEIGHT = 750;
 
-    private final Square[][] squares = new Square[8][8];
     private JLabel msgText = new JLabel("");
+    private JLabel analysisText = new JLabel(""); // depth, score and best line of the running analysis
     private JLabel whiteText = new JLabel("Player 1");
     private JLabel blackText = new JLabel("Player 2");
     private JLabel whiteScore = new JLabel("0");
     private JLabel blackScore = new JLabel("0");
     private Game game;
+    private OpeningBook book;
+
+    private final SpriteCache sprites = new SpriteCache();
+    private final BoardView view = new BoardView(sprites, this::click);
+    private final Analysis analysis = new Analysis();
+    private JCheckBoxMenuItem analyseItem;
+    private boolean analysing; // whether to analyse every position as it comes up
+    private boolean gameOver; // checkmate or a draw, no more moves until a restart or an undo
+
+    private static final long COMPUTER_MILLIS = 2000;
+
+    /**
+     * What the side to move faces, worked out on the analysis thread.
+     */
+    private enum Status { PLAYING, CHECK, CHECKMATE, STALEMATE, REPETITION, FIFTY_MOVES, INSUFFICIENT_MATERIAL }
 
 
     public GUI(Game game) {
         this.game = game;
         JFrame window = new JFrame("Chess");
         window.setPreferredSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
-        JPanel chessboard = initializeBoard();
+        JComponent chessboard = initializeBoard();
         initializeBottomBar(window);
-        initializeSquares(chessboard);
         setUpMenu(window);
         showBoard(window, chessboard);
     }
@@ -160,7 +108,12 @@ public class GUI implements ActionListener {
         msgPanel.setBorder(BorderFactory.createMatteBorder(2, 0, 0, 0, Color.DARK_GRAY));
         msgText.setFont(font);
         msgText.setForeground(Color.DARK_GRAY);
-        msgPanel.add(msgText, new GridBagConstraints());
+        analysisText.setFont(new Font("Droid Sans", 0, 13));
+        analysisText.setForeground(Color.DARK_GRAY);
+        GridBagConstraints msgGbc = new GridBagConstraints();
+        msgPanel.add(msgText, msgGbc);
+        msgGbc.insets = new Insets(0, 12, 0, 0);
+        msgPanel.add(analysisText, msgGbc);
 
         top.add(whitePanel, BorderLayout.WEST);
         top.add(blackPanel, BorderLayout.EAST);
@@ -170,14 +123,14 @@ public class GUI implements ActionListener {
         window.add(bar, BorderLayout.SOUTH);
     }
 
-    private JPanel initializeBoard() {
-        JPanel board = new JPanel();
-        board.setPreferredSize(new Dimension(500, 500));
-        board.setLayout(new GridLayout(8, 8));
-        return board;
+    private JComponent initializeBoard() {
+        view.setPreferredSize(new Dimension(500, 500));
+        view.setBackground(Color.DARK_GRAY);
+        view.setBoard(game.getBoard());
+        return view;
     }
 
-    private void showBoard(JFrame window, JPanel chessboard) {
+    private void showBoard(JFrame window, JComponent chessboard) {
         window.add(chessboard);
         window.setVisible(true);
         window.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
@@ -212,73 +165,159 @@ public class GUI implements ActionListener {
         player.add(player2);
         menubar.add(player);
 
+        JMenu book = new JMenu("Book");
+        JMenuItem openBook = new JMenuItem("Open Book");
+        JMenuItem bookMoves = new JMenuItem("Show Book Moves");
+        openBook.addActionListener(this);
+        bookMoves.addActionListener(this);
+        book.add(openBook);
+        book.add(bookMoves);
+        menubar.add(book);
+
+        JMenu engine = new JMenu("Engine");
+        analyseItem = new JCheckBoxMenuItem("Analyse");
+        JMenuItem computerMove = new JMenuItem("Computer Move");
+        JMenuItem stopEngine = new JMenuItem("Stop Engine");
+        analyseItem.addActionListener(this);
+        computerMove.addActionListener(this);
+        stopEngine.addActionListener(this);
+        engine.add(analyseItem);
+        engine.add(computerMove);
+        engine.add(stopEngine);
+        menubar.add(engine);
+
         window.setJMenuBar(menubar);
     }
 
-    private void initializeSquares(JPanel panel) {
-        for (int y = 0; y < game.getBoard().getHeight(); y++) {
-            for (int x = 0; x < game.getBoard().getWidth(); x++) {
-                squares[x][y] = new Square(x, y);
-                squares[x][y].setFocusable(false);
-                setSquareColor(squares[x][y]);
-                squares[x][y].setBorder(BorderFactory.createEmptyBorder()); // make squares pack tightly
-                panel.add(squares[x][y]);
-            }
+    /**
+     * Handles a click on a square: selects a piece, unselects it, or moves the selected piece there.
+     */
+    void click(int x, int y) {
+        if (gameOver) {
+            setMessage("The game is over. Restart or undo a move to play on.");
+            return;
+        }
+        Piece selected = game.getSelected();
+
+        if (selected == null) {
+            tryToSelectPiece(x, y);
+        } else if (selected.getX() == x && selected.getY() == y) { // unselecting piece
+            game.setSelected(-1, -1);
+            drawBoard();
+        } else {
+            int ret = game.attemptMove(selected, x, y);
+            if (ret == 0)
+                handleSuccessfulMove();
+            if (ret == 1)
+                setMessage("Illegal move, piece cannot move there.");
+            if (ret == 2)
+                setMessage("Illegal move, move would put you in check.");
+            game.setSelected(-1, -1); // sets selected to null
+            drawBoard();
         }
     }
 
-    private void setSquareColor(Square square) {
-        int x = square.x;
-        int y = square.y;
-        if (x % 2 == 0)
-            if (y % 2 == 0)
-                squares[x][y].setBackground(Color.white);
-            else
-                squares[x][y].setBackground(Color.black);
-        else if (y % 2 == 0)
-            squares[x][y].setBackground(Color.black);
-        else
-            squares[x][y].setBackground(Color.white);
+    /**
+     * Passes the turn and looks for check, checkmate and draws on the analysis thread,
+     * so the board can be clicked again straight away.
+     */
+    private void handleSuccessfulMove() {
+        game.nextTurn();
+        String turn = (game.getTurn() == Team.WHITE) ? "White" : "Black";
+        setMessage(turn + "'s turn.");
+        analysis.check(game, GUI::getStatus, this::showStatus);
     }
 
-    private void setMessage(String message) {
-        msgText.setText(message);
+    private static Status getStatus(Game game) {
+        DrawRule draw = game.getDraw();
+        if (draw != null)
+            return Status.valueOf(draw.name()); // every draw rule has a status of the same name
+        Piece king = game.getKing(game.getTurn());
+        if (king == null || king.isCaptured() || !game.inCheck(king, king.getX(), king.getY()))
+            return Status.PLAYING;
+        return game.hasLegalMoves(game.getTurn()) ? Status.CHECK : Status.CHECKMATE;
+    }
+
+    private void showStatus(Status status) {
+        String turn = (game.getTurn() == Team.WHITE) ? "White" : "Black";
+        switch (status) {
+            case CHECKMATE:
+                handleCheckmate();
+                return;
+            case STALEMATE:
+                handleDraw("STALEMATE! " + turn + " has no legal moves.");
+                return;
+            case REPETITION:
+                handleDraw("DRAW! The same position came up three times.");
+                return;
+            case FIFTY_MOVES:
+                handleDraw("DRAW! Fifty moves without a capture or a pawn move.");
+                return;
+            case INSUFFICIENT_MATERIAL:
+                handleDraw("DRAW! Neither side has the pieces left to mate.");
+                return;
+            case CHECK:
+                setMessage(turn + "king in check! " + turn + "'s turn.");
+                break;
+            default:
+                break;
+        }
+        if (analysing)
+            startAnalysis();
+    }
+
+    private void handleCheckmate() {
+        drawBoard();
+        gameOver = true;
+        Team winner = (game.getTurn() == Team.WHITE) ? Team.BLACK : Team.WHITE;
+        String winnerStr = (game.getTurn() == Team.WHITE) ? "Black" : "White";
+        setMessage("CHECKMATE! " + winnerStr + " wins!");
+        incrementScore(winner);
+        offerNewMatch();
     }
 
-    private ImageIcon getPieceIcon(Piece piece) {
-        String imageLocation = "src/resources/"
-                + piece.getTeam().toString().toLowerCase()
-                + piece.getClass().getSimpleName() +".png";
-        return getPieceIcon(imageLocation);
+    /**
+     * Ends the game as drawn, like GameSession does, with no point for either side.
+     */
+    private void handleDraw(String message) {
+        drawBoard();
+        gameOver = true;
+        setMessage(message);
+        offerNewMatch();
     }
 
-    private ImageIcon getPieceIcon(String imageLocation) {
-        return new ImageIcon(imageLocation);
+    private void offerNewMatch() {
+        int ret = JOptionPane.showConfirmDialog(null, "Would you like " +
+                "to start another match?", "Start New Match", JOptionPane.YES_NO_OPTION);
+        if (ret == 0)
+            restartGame();
     }
 
-    private void drawBoard() {
-        for  (Square[] col : squares) {
-            for (Square square : col) {
-                square.setIcon(null);
-                square.setBorder(BorderFactory.createEmptyBorder());
+    private void tryToSelectPiece(int x, int y) {
+        if (game.isValidPiece(x, y)) {
+            game.setSelected(x, y);
+            view.outline(x, y, Color.RED);
+            for (int[] move : game.getLegalMoveSet(game.getTurn()).getMoves(x, y)) {
+                view.outline(move[0], move[1], Color.GREEN);
             }
         }
-        drawAllPieces();
+    }
+
+    private void setMessage(String message) {
+        msgText.setText(message);
+    }
+
+    /**
+     * Brings the board view up to date with the game, repainting only the squares whose piece changed
+     * and the squares whose outlines are taken off.
+     */
+    private void drawBoard() {
+        view.clearOutlines();
+        view.update();
     }
 
     public void drawAllPieces() {
-        Piece[] blackPieces = game.getPieces(Team.BLACK);
-        Piece[] whitePieces = game.getPieces(Team.WHITE);
-        for (Piece piece : blackPieces) {
-            if (piece == null) break;
-            if (piece.isCaptured()) continue;
-            drawPiece(piece, piece.getX(), piece.getY());
-        }
-        for (Piece piece : whitePieces) {
-            if (piece == null) break;
-            if (piece.isCaptured()) continue;
-            drawPiece(piece, piece.getX(), piece.getY());
-        }
+        view.repaint();
     }
 
     /**
@@ -288,7 +327,21 @@ public class GUI implements ActionListener {
      * @param y The y coordinate to draw the piece.
      */
     public void drawPiece(Piece piece, int x, int y) {
-        squares[x][y].setIcon(getPieceIcon(piece));
+        view.repaintSquare(x, y);
+    }
+
+    /**
+     * @return Number of squares asked to be repainted since the GUI opened
+     */
+    public long getRepaintCount() {
+        return view.getRepaintCount();
+    }
+
+    /**
+     * @return Number of piece sprites read since the GUI opened
+     */
+    public int getImageLoadCount() {
+        return sprites.getLoadCount();
     }
 
     public void startNewGame() {
@@ -306,8 +359,13 @@ public class GUI implements ActionListener {
 
     public void restartGame() {
         this.game = new Game(GameType.STANDARD);
+        gameOver = false;
         setMessage("White's turn.");
-        drawBoard();
+        view.setBoard(game.getBoard());
+        if (analysing)
+            startAnalysis();
+        else
+            analysis.cancel();
     }
 
     public void forfeitGame() {
@@ -336,9 +394,98 @@ public class GUI implements ActionListener {
     }
 
     public void undoMove() {
-        game.undoMove(game.getLastMove());
-        game.nextTurn();
+        if (!game.unmakeMove()) {
+            setMessage("No moves to undo.");
+            return;
+        }
+        gameOver = false;
+        setMessage(((game.getTurn() == Team.WHITE) ? "White" : "Black") + "'s turn.");
+        drawBoard();
+        if (analysing)
+            startAnalysis();
+        else
+            analysis.cancel();
+    }
+
+    /**
+     * Analyses the position in the background until it changes or the engine is stopped,
+     * showing the depth, score and best line in the bottom bar after each depth.
+     */
+    public void startAnalysis() {
+        analysing = true;
+        analyseItem.setSelected(true);
+        analysisText.setText("Analysing...");
+        analysis.analyse(game, Long.MAX_VALUE, analysisText::setText);
+    }
+
+    /**
+     * Stops any analysis or computer move and leaves positions unanalysed until analysis is started again.
+     */
+    public void stopEngine() {
+        analysing = false;
+        analyseItem.setSelected(false);
+        analysis.cancel();
+        analysisText.setText("");
+    }
+
+    /**
+     * Lets the engine think about the position in the background and plays its move.
+     * Making a move, undoing or restarting before it is done drops the engine's move.
+     */
+    public void playComputerMove() {
+        if (gameOver)
+            return;
+        setMessage("Thinking...");
+        analysis.findMove(game, COMPUTER_MILLIS, move -> {
+            if (move == Moves.NONE || gameOver) // the check of the move before may have ended the game
+                return;
+            Piece piece = game.getBoard().getPiece(Moves.getFromX(move), Moves.getFromY(move));
+            game.setSelected(-1, -1);
+            if (game.attemptMove(piece, Moves.getToX(move), Moves.getToY(move)) == 0)
+                handleSuccessfulMove();
+            drawBoard();
+        });
+    }
+
+    /**
+     * Opens an opening book to look positions up in, closing the one open before.
+     */
+    public void openBook(Path path) {
+        try {
+            OpeningBook opened = new OpeningBook(path);
+            if (book != null)
+                book.close();
+            book = opened;
+            setMessage("Book has " + book.getEntryCount() + " moves.");
+        } catch (IOException e) {
+            setMessage("Could not open book: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Outlines the book moves of the current position in blue and names the most played ones.
+     */
+    public void showBookMoves() {
+        if (book == null) {
+            setMessage("No book open.");
+            return;
+        }
         drawBoard();
+        List<BookMove> moves = book.getMoves(game);
+        if (moves.isEmpty()) {
+            setMessage("Out of book.");
+            return;
+        }
+        StringBuilder message = new StringBuilder("Book:");
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i).getMove();
+            view.outline(Moves.getFromX(move), Moves.getFromY(move), Color.BLUE);
+            view.outline(Moves.getToX(move), Moves.getToY(move), Color.BLUE);
+            if (i < 3)
+                message.append(' ').append(San.write(game, move))
+                        .append(String.format(" %.0f%%", moves.get(i).getScore() * 100));
+        }
+        setMessage(message.toString());
     }
 
     @Override
@@ -377,13 +524,38 @@ public class GUI implements ActionListener {
             case "Change player two name":
                 setPlayerName(Team.BLACK);
                 break;
+            case "Open Book":
+                JFileChooser chooser = new JFileChooser();
+                if (chooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION)
+                    openBook(chooser.getSelectedFile().toPath());
+                break;
+            case "Show Book Moves":
+                showBookMoves();
+                break;
+            case "Analyse":
+                if (analyseItem.isSelected())
+                    startAnalysis();
+                else
+                    stopEngine();
+                break;
+            case "Computer Move":
+                playComputerMove();
+                break;
+            case "Stop Engine":
+                stopEngine();
+                break;
             default:
                 System.out.println(action);
                 break;
         }
     }
 
+    /**
+     * Arguments: optionally an opening book to open.
+     */
     public static void main(String[] args) {
         GUI chess = new GUI(new Game());
+        if (args.length > 0)
+            chess.openBook(Paths.get(args[0]));
     }
 }
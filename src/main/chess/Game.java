@@ -2,6 +2,9 @@ package chess;
 
 import chess.pieces.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * @author Ryan Gisleson
  */
@@ -10,7 +13,10 @@ public class Game {
      * This class handles the game logic for a standard game of chess.
      */
     private Team turn = Team.WHITE; // white goes first
-    private final Board board = new Board(); // game board for chess
+    private final Board board; // game board for chess
+    private final AttackMap attacks; // squares each team attacks, kept up to date, null on boards other than 8x8
+    private final MoveGenerator generator;
+    private LegalMoves legalMoves; // legal moves of one team, dropped whenever the board changes
     private Piece whiteKing; // pointers to both kings to quickly check for win conditions
     private Piece blackKing;
     private Piece selected = null; // what piece has been selected
@@ -19,9 +25,98 @@ public class Game {
 
     private Move lastMove = null;
 
-    public Game() {}
+    // ply stack, everything needed to take back each move played through makeMove or attemptMove.
+    // Squares are packed as x << 16 | y. The arrays only grow, so playing and taking back moves allocates nothing.
+    private static final int INITIAL_PLIES = 256;
+    private int ply = 0;
+    private Piece[] plyMover = new Piece[INITIAL_PLIES];
+    private Piece[] plyCaptured = new Piece[INITIAL_PLIES];
+    private boolean[] plyCapturedFlag = new boolean[INITIAL_PLIES]; // captured piece's flag before the move
+    private int[] plyFrom = new int[INITIAL_PLIES];
+    private int[] plyTo = new int[INITIAL_PLIES];
+    private Team[] plyTurn = new Team[INITIAL_PLIES]; // side to move before the move
+    private long[] plyHash = new long[INITIAL_PLIES]; // position hash before the move
+    private int[] plyClock = new int[INITIAL_PLIES]; // halfmove clock before the move
+
+    /**
+     * Plies since the last capture or pawn move. Positions from before it can never come back,
+     * so only the hashes of that many plies are looked at for repetitions.
+     */
+    private int halfmoveClock = 0;
+    public static final int FIFTY_MOVE_PLIES = 100;
+    // hashes of the positions before the first ply, oldest first, for a copy to see repetitions from its original
+    private static final long[] NO_HASHES = new long[0];
+    private long[] earlierHashes = NO_HASHES;
+
+    public Game() {
+        this(8, 8);
+    }
+
+    /**
+     * Makes an empty game on a board of up to Moves.MAX_SIZE squares each way. Boards other than 8x8 work, just
+     * without the bitboard speedups.
+     * @param width Width of the board
+     * @param height Height of the board
+     * @throws IllegalArgumentException If the board is too large for its moves to be encoded
+     */
+    public Game(int width, int height) {
+        if (width > Moves.MAX_SIZE || height > Moves.MAX_SIZE)
+            throw new IllegalArgumentException("Board cannot be larger than " + Moves.MAX_SIZE + "x"
+                    + Moves.MAX_SIZE + ", not " + width + "x" + height + ".");
+        board = new Board(width, height);
+        attacks = board.hasBitboards() ? new AttackMap(board) : null;
+        generator = new MoveGenerator(this);
+        board.addListener(new BoardListener() {
+            @Override
+            public void pieceAdded(Piece piece, int x, int y) {
+                legalMoves = null;
+            }
+
+            @Override
+            public void pieceRemoved(Piece piece, int x, int y) {
+                legalMoves = null;
+            }
+        });
+    }
+
+    /**
+     * Copies a game, with new pieces in the same places and the same side to move.
+     * Pieces keep their index in the piece lists, so moves can be replayed on the copy.
+     * The copy starts with no moves to take back, but knows the positions since the last capture or
+     * pawn move, so it sees the same repetitions.
+     * @param other The game to copy
+     */
+    public Game(Game other) {
+        this(other.getBoard().getWidth(), other.getBoard().getHeight());
+        whitePieces = new Piece[other.whitePieces.length];
+        blackPieces = new Piece[other.blackPieces.length];
+        for (Team team : Team.values()) {
+            Piece[] from = other.getPieces(team);
+            Piece[] to = getPieces(team);
+            for (int i = 0; i < from.length; i++) {
+                if (from[i] == null) continue;
+                to[i] = from[i].copy();
+                if (!to[i].isCaptured())
+                    board.setPiece(to[i], to[i].getX(), to[i].getY());
+                if (from[i] == other.getKing(team)) {
+                    if (team == Team.WHITE)
+                        whiteKing = to[i];
+                    else
+                        blackKing = to[i];
+                }
+            }
+        }
+        if (other.getTurn() != turn)
+            nextTurn();
+        halfmoveClock = other.halfmoveClock;
+        int kept = Math.min(halfmoveClock, other.earlierHashes.length + other.ply);
+        earlierHashes = new long[kept];
+        for (int i = 0; i < kept; i++)
+            earlierHashes[i] = other.getHashBefore(other.ply - kept + i);
+    }
 
     public Game(GameType type) {
+        this();
         if (type != null)
             setupStandardGame();
     if (type == GameType.CUSTOM)
@@ -96,50 +191,178 @@ public class Game {
 
     public void nextTurn() {
         turn = (turn == Team.WHITE) ? Team.BLACK : Team.WHITE;
+        board.toggleSideToMove();
     }
 
     /**
-     * Checks whether or not check can be prevented.
+     * Gets a hash of the position and side to move, see Board.getHash.
+     */
+    public long getHash() {
+        return board.getHash();
+    }
+
+    /**
+     * Checks whether the king is in check with no legal move to get out of it.
      * @param king The king in check
      * @param x The x coordinate of the king
      * @param y The y coordinate of the king
      * @return True if king will be in checkmate, False otherwise
      */
     public boolean inCheckmate(Piece king, int x, int y) {
-        return !kingCanEscapeCheck(king, x, y) && !canDefendCheck(king);
-    }
-
-    private boolean kingCanEscapeCheck(Piece king, int x, int y) {
-        boolean ret = true;
-        if (king.canMove(getBoard(), x + 1, y - 1)) ret = ret && !inCheck(king, x + 1, y - 1);
-        if (king.canMove(getBoard(), x + 1, y)) ret = ret && !inCheck(king, x + 1, y);
-        if (king.canMove(getBoard(), x + 1, y + 1)) ret = ret && !inCheck(king, x + 1, y + 1);
-        if (king.canMove(getBoard(), x, y + 1)) ret = ret && !inCheck(king, x, y + 1);
-        if (king.canMove(getBoard(), x - 1, y + 1)) ret = ret && !inCheck(king, x - 1, y + 1);
-        if (king.canMove(getBoard(), x - 1, y)) ret = ret && !inCheck(king, x - 1, y);
-        if (king.canMove(getBoard(), x - 1, y - 1)) ret = ret && !inCheck(king, x - 1, y - 1);
-        if (king.canMove(getBoard(), x, y - 1)) ret = ret && !inCheck(king, x, y - 1);
-        return ret;
-    }
-
-    private boolean canDefendCheck(Piece king) {
-        Piece[] pieces = getAlliedPieces(king);
-        Move actual = getLastMove(); // store so we can test moves
-        boolean ret = false;
-        for (Piece piece : pieces) {
-            if (piece == null) break; // end of pieces
-            if (piece.isCaptured()) continue;
-            for (int y = 0; y < getBoard().getHeight(); y++) {
-                for (int x = 0; x < getBoard().getWidth(); x++) {
-                    if (attemptMove(piece, x, y) == 0) {
-                        undoMove(getLastMove());
-                        ret = true;
-                    }
-                }
-            }
+        return inCheck(king, x, y) && !hasLegalMoves(king.getTeam());
+    }
+
+    /**
+     * Checks whether the team is not in check but has no legal move.
+     * @param team The team to move
+     * @return True if the game is a draw by stalemate
+     */
+    public boolean inStalemate(Team team) {
+        Piece king = getKing(team);
+        if (king != null && !king.isCaptured() && inCheck(king, king.getX(), king.getY()))
+            return false;
+        return !hasLegalMoves(team);
+    }
+
+    /**
+     * Checks whether the team has at least one move that does not leave its king in check.
+     * @param team The team to move
+     * @return True if a legal move exists
+     */
+    public boolean hasLegalMoves(Team team) {
+        if (legalMoves != null && legalMoves.getTeam() == team)
+            return legalMoves.size() > 0;
+        generator.analyse(team);
+        return generator.hasLegalMove();
+    }
+
+    /**
+     * Works out whether the game is drawn in its current position, with the side to move to play.
+     * The cheap checks come first; stalemate is only looked for when those find nothing and reuses the
+     * kept legal move set when there is one.
+     * @return The rule the game is drawn by, or null if it goes on or is checkmate
+     */
+    public DrawRule getDraw() {
+        if (isInsufficientMaterial())
+            return DrawRule.INSUFFICIENT_MATERIAL;
+        if (isRepetition(3))
+            return DrawRule.REPETITION;
+        if (!hasLegalMoves(turn)) {
+            Piece king = getKing(turn);
+            if (king != null && !king.isCaptured() && inCheck(king, king.getX(), king.getY()))
+                return null; // checkmate wins before the fifty move rule can draw
+            return DrawRule.STALEMATE;
         }
-        setLastMove(actual);
-        return ret;
+        if (halfmoveClock >= FIFTY_MOVE_PLIES)
+            return DrawRule.FIFTY_MOVES;
+        return null;
+    }
+
+    /**
+     * Checks whether the current position, with the same side to move, has come up a number of times
+     * since the last capture or pawn move, counting this time. Hashes are compared, see Board.getHash.
+     * @param times How many times it must have come up, 3 for the draw rule and 2 for a search
+     */
+    public boolean isRepetition(int times) {
+        long hash = board.getHash();
+        int seen = 1;
+        // only positions with the same side to move, so every other ply
+        int oldest = Math.max(-earlierHashes.length, ply - halfmoveClock);
+        for (int i = ply - 2; i >= oldest; i -= 2) {
+            if (getHashBefore(i) == hash && ++seen >= times)
+                return true;
+        }
+        return seen >= times;
+    }
+
+    /**
+     * @param index Ply of the move, negative for the positions a copy was given from its original
+     * @return Hash of the position before the move
+     */
+    private long getHashBefore(int index) {
+        return (index >= 0) ? plyHash[index] : earlierHashes[earlierHashes.length + index];
+    }
+
+    /**
+     * Checks whether neither side has the pieces left to ever give mate, see MatingMaterial.
+     */
+    public boolean isInsufficientMaterial() {
+        return MatingMaterial.isDead(this);
+    }
+
+    /**
+     * @return Plies played since the last capture or pawn move, 100 or more allows a draw by the fifty move rule
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Sets the halfmove clock of a position loaded from elsewhere, as read from a FEN string.
+     */
+    void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * Gets all moves for the piece that do not leave its king in check.
+     * @param piece The piece to move
+     * @return Array of moves in the same format and order as Piece.getMoves
+     */
+    public int[][] getLegalMoves(Piece piece) {
+        generator.analyse(piece.getTeam());
+        return generator.getLegalMoves(piece);
+    }
+
+    /**
+     * Gets all moves for a team that do not leave its king in check.
+     * @param team The team to move
+     * @return Moves as {fromX, fromY, toX, toY}
+     */
+    public List<int[]> getLegalMoves(Team team) {
+        generator.analyse(team);
+        return generator.getAllLegalMoves();
+    }
+
+    /**
+     * Gets every legal move of a team grouped by the square it starts from. The set is worked out once
+     * and kept until a piece is placed or taken off the board, so asking again in the same position,
+     * as the GUI does on every click, costs nothing.
+     * @param team The team to move
+     * @return The moves, not to be kept past the next change to the board
+     */
+    public LegalMoves getLegalMoveSet(Team team) {
+        if (legalMoves == null || legalMoves.getTeam() != team) {
+            generator.analyse(team);
+            // made before it is stored, as checking moves by trying them changes the board and drops the set
+            LegalMoves moves = new LegalMoves(board, team, generator.getAllLegalMoves());
+            legalMoves = moves;
+        }
+        return legalMoves;
+    }
+
+    /**
+     * Writes every legal move of a team into a buffer as packed moves, see Moves.
+     * The buffer can be reused for the next position, filling it allocates nothing.
+     * @param team The team to move
+     * @param moves Buffer to fill from index 0, Moves.bufferSize(getBoard()) long
+     * @return Number of moves written
+     */
+    public int getLegalMoves(Team team, int[] moves) {
+        generator.analyse(team);
+        return generator.generate(moves);
+    }
+
+    /**
+     * Checks a single move without playing it, cheaper than generating every legal move to look for it.
+     * @param piece The piece to move
+     * @return True if the piece can move to x, y without leaving its king in check
+     */
+    public boolean isLegalMove(Piece piece, int x, int y) {
+        if (!piece.canMove(board, x, y))
+            return false;
+        generator.analyse(piece.getTeam());
+        return generator.isLegal(piece, x, y);
     }
 
     /**
@@ -150,10 +373,37 @@ public class Game {
      * @return If a king at specified point would be in check
      */
     public boolean inCheck(Piece king, int x, int y) {
+        if (board.hasBitboards()) {
+            Team opponent = (king.getTeam() == Team.WHITE) ? Team.BLACK : Team.WHITE;
+            return board.isValidSpace(x, y) && attacks.isAttacked(x, y, opponent);
+        }
         Piece[] pieces = getOpposingPieces(king);
         return board.isValidSpace(x, y) && checkPiecesCanAttack(pieces, x, y);
     }
 
+    /**
+     * Gets every square a team attacks, for example to show threatened squares.
+     * Squares holding the team's own pieces count, since an enemy king could not take them.
+     * @param team The attacking team
+     * @return Mask of attacked squares in the Bitboards layout, 0 if the board has no bitboards
+     */
+    public long getAttackedSquares(Team team) {
+        return (attacks != null) ? attacks.getAttacks(team) : 0L;
+    }
+
+    /**
+     * Check if a team attacks a square, without scanning its pieces.
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param team The attacking team
+     * @return True if a piece of the team attacks the square
+     */
+    public boolean isAttacked(int x, int y, Team team) {
+        if (!board.isValidSpace(x, y))
+            return false;
+        return (attacks != null) ? attacks.isAttacked(x, y, team) : checkPiecesCanAttack(getPieces(team), x, y);
+    }
+
     /**
      * Goes through piece list to see if any could attack specified space.
      * @param pieces The list of pieces of one color
@@ -172,20 +422,59 @@ public class Game {
     }
 
     /**
-     * Adds piece to gameboard at given coordinates. Also adds to corresponding piece list.
+     * Adds piece to gameboard at given coordinates. Also adds to corresponding piece list,
+     * which grows when a team has more than 16 pieces.
      * @param piece The piece to add.
      * @param x The x coordinate to add piece at.
      * @param y The y coordinate to add piece at.
      */
     public void addPiece(Piece piece, int x, int y) {
-        Piece[] pieces = (piece.getTeam() == Team.WHITE) ? getPieces(Team.WHITE) : getPieces(Team.BLACK);
-        for (int i = 0; i < pieces.length; i++) {
-            if (pieces[i] == null) {
-                pieces[i] = piece;
-                break;
-            } else if (i == pieces.length - 1) return; // shouldnt add piece if piece list is full
+        Piece[] pieces = getPieces(piece.getTeam());
+        int free = 0;
+        while (free < pieces.length && pieces[free] != null)
+            free++;
+        if (free == pieces.length) {
+            pieces = Arrays.copyOf(pieces, pieces.length * 2);
+            if (piece.getTeam() == Team.WHITE)
+                whitePieces = pieces;
+            else
+                blackPieces = pieces;
         }
+        pieces[free] = piece;
         board.setPiece(piece, x, y);
+        if (piece instanceof King && getKing(piece.getTeam()) == null) {
+            if (piece.getTeam() == Team.WHITE)
+                whiteKing = piece;
+            else
+                blackKing = piece;
+        }
+    }
+
+    /**
+     * Takes every piece off the board and forgets the move history, leaving an empty board with white to move.
+     * The piece lists keep their size, so a game can be cleared and set up again without allocating them.
+     */
+    public void clear() {
+        for (Team team : Team.values()) {
+            Piece[] pieces = getPieces(team);
+            for (int i = 0; i < pieces.length && pieces[i] != null; i++) {
+                Piece piece = pieces[i];
+                if (board.isValidSpace(piece.getX(), piece.getY()) && board.getPiece(piece.getX(), piece.getY()) == piece)
+                    board.removePiece(piece);
+                pieces[i] = null;
+            }
+        }
+        whiteKing = null;
+        blackKing = null;
+        selected = null;
+        lastMove = null;
+        Arrays.fill(plyMover, 0, ply, null);
+        Arrays.fill(plyCaptured, 0, ply, null);
+        ply = 0;
+        halfmoveClock = 0;
+        earlierHashes = NO_HASHES;
+        if (turn != Team.WHITE)
+            nextTurn();
     }
 
     /**
@@ -195,24 +484,156 @@ public class Game {
      *         2 if move would put you in check
      */
     public int attemptMove(Piece piece, int x, int y) {
-        if (!piece.canMove(getBoard(), x, y))
-            return 1;
-        Move testMove = piece.movePiece(getBoard(), x, y);
-        Piece king = getKing(piece.getTeam());
-        if (inCheck(king, king.getX(), king.getY())) {
-            undoMove(testMove);
-            return 2;
+        // a kept move set answers at once; it is not made just for this, one move is cheaper to check alone
+        boolean known = legalMoves != null && legalMoves.getTeam() == piece.getTeam() && board.isValidSpace(x, y)
+                && board.isValidSpace(piece.getX(), piece.getY()) && board.getPiece(piece.getX(), piece.getY()) == piece
+                && legalMoves.contains(piece.getX(), piece.getY(), x, y);
+        if (!known) { // to say why it is not legal, or for moves Piece.getMoves leaves out
+            if (!piece.canMove(getBoard(), x, y))
+                return 1;
+            generator.analyse(piece.getTeam());
+            if (!generator.isLegal(piece, x, y))
+                return 2;
         }
-        setLastMove(testMove);
+        Move move = new Move(piece, board.getPiece(x, y), x, y);
+        push(piece, x, y);
+        play(piece, x, y);
+        setLastMove(move);
         return 0;
     }
 
     /**
-     * Undo the given move.
+     * Plays a move without checking it and passes the turn to the other side.
+     * The move can be taken back with unmakeMove.
+     * @param piece The piece to move, it should have a legal move to x, y
+     */
+    public void makeMove(Piece piece, int x, int y) {
+        push(piece, x, y);
+        play(piece, x, y);
+        nextTurn();
+    }
+
+    /**
+     * Plays a packed move, see makeMove(Piece, int, int).
+     */
+    public void makeMove(int move) {
+        makeMove(board.getPiece(Moves.getFromX(move), Moves.getFromY(move)), Moves.getToX(move), Moves.getToY(move));
+    }
+
+    /**
+     * Takes back the last move played, giving the turn back to the side that played it.
+     * @return False if there is no move to take back
+     */
+    public boolean unmakeMove() {
+        if (ply == 0)
+            return false;
+        restore(--ply);
+        if (turn != plyTurn[ply])
+            nextTurn();
+        return true;
+    }
+
+    /**
+     * Takes back moves until the game is back at the given ply.
+     * @param target Number of moves that should stay played, from 0 to getPly()
+     */
+    public void undoToPly(int target) {
+        if (target < 0 || target > ply)
+            throw new IllegalArgumentException("Cannot go back to ply " + target + " from ply " + ply + ".");
+        while (ply > target)
+            unmakeMove();
+    }
+
+    /**
+     * @return Number of moves played that can be taken back
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Gets a move from the history, as a packed move that can be played again from the position before it.
+     * @param index Ply of the move, from 0 for the first move to getPly() - 1
+     * @return The packed move, see Moves
+     */
+    public int getPlyMove(int index) {
+        if (index < 0 || index >= ply)
+            throw new IllegalArgumentException("No move at ply " + index + ", " + ply + " moves played.");
+        Piece mover = plyMover[index];
+        Piece captured = plyCaptured[index];
+        int fromY = plyFrom[index] & 0xFFFF;
+        int toY = plyTo[index] & 0xFFFF;
+        int flags = (captured != null) ? Moves.CAPTURE : 0;
+        if (mover.getType() == PieceType.PAWN && Math.abs(toY - fromY) == 2)
+            flags |= Moves.DOUBLE_STEP;
+        return Moves.encode(plyFrom[index] >>> 16, fromY, plyTo[index] >>> 16, toY, mover.getType(),
+                (captured != null) ? captured.getType() : null, flags);
+    }
+
+    private void push(Piece piece, int x, int y) {
+        if (ply == plyMover.length)
+            growPlies();
+        Piece captured = board.getPiece(x, y);
+        plyMover[ply] = piece;
+        plyCaptured[ply] = captured;
+        plyCapturedFlag[ply] = captured != null && captured.isCaptured();
+        plyFrom[ply] = piece.getX() << 16 | piece.getY();
+        plyTo[ply] = x << 16 | y;
+        plyTurn[ply] = turn;
+        plyHash[ply] = board.getHash();
+        plyClock[ply] = halfmoveClock;
+        ply++;
+    }
+
+    private void growPlies() {
+        int size = plyMover.length * 2;
+        plyMover = Arrays.copyOf(plyMover, size);
+        plyCaptured = Arrays.copyOf(plyCaptured, size);
+        plyCapturedFlag = Arrays.copyOf(plyCapturedFlag, size);
+        plyFrom = Arrays.copyOf(plyFrom, size);
+        plyTo = Arrays.copyOf(plyTo, size);
+        plyTurn = Arrays.copyOf(plyTurn, size);
+        plyHash = Arrays.copyOf(plyHash, size);
+        plyClock = Arrays.copyOf(plyClock, size);
+    }
+
+    private void play(Piece piece, int x, int y) {
+        Piece captured = board.getPiece(x, y);
+        halfmoveClock = (captured != null || piece.getType() == PieceType.PAWN) ? 0 : halfmoveClock + 1;
+        board.removePiece(piece);
+        if (captured != null)
+            captured.setCaptured(true);
+        board.setPiece(piece, x, y);
+    }
+
+    private void restore(int index) {
+        int x = plyTo[index] >>> 16;
+        int y = plyTo[index] & 0xFFFF;
+        board.removePiece(x, y);
+        board.setPiece(plyMover[index], plyFrom[index] >>> 16, plyFrom[index] & 0xFFFF);
+        Piece captured = plyCaptured[index];
+        if (captured != null) {
+            board.setPiece(captured, x, y);
+            captured.setCaptured(plyCapturedFlag[index]);
+        }
+        halfmoveClock = plyClock[index];
+        plyMover[index] = null;
+        plyCaptured[index] = null;
+    }
+
+    /**
+     * Undo the given move. If it is the last move on the ply stack it is taken off the stack,
+     * the side to move is left alone either way.
      * @return False if move could not be undone, True otherwise
      */
     public boolean undoMove(Move move) {
         if (move == null) return false;
+        if (ply > 0 && plyMover[ply - 1] == move.getAttacker()
+                && plyTo[ply - 1] == (move.getX() << 16 | move.getY())
+                && plyFrom[ply - 1] == (move.getOldX() << 16 | move.getOldY())) {
+            restore(--ply);
+            return true;
+        }
         Piece attacker = move.getAttacker();
         Piece defender = move.getDefender();
         int x = move.getX();
@@ -238,10 +659,6 @@ public class Game {
         return (piece != null) && piece.getTeam() == turn;
     }
 
-    private Piece[] getAlliedPieces(Piece piece) {
-        return getPieces(piece.getTeam());
-    }
-
     private Piece[] getOpposingPieces(Piece piece) {
         return (piece.getTeam() == Team.WHITE) ? getPieces(Team.BLACK) : getPieces(Team.WHITE);
     }
@@ -0,0 +1,103 @@
+package chess;
+
+import java.util.List;
+
+/**
+ * Every legal move of one team in one position, grouped by the square each move starts from.
+ * Moves from a square sit next to each other, so the moves of a piece are found without looking
+ * at any other piece's. Within a square they keep the order of Piece.getMoves.
+ * Squares are numbered y * width + x. Made by Game.getLegalMoveSet, which keeps it until the board changes.
+ * @author Ryan Gisleson
+ */
+public final class LegalMoves {
+
+    private final Team team;
+    private final int width;
+    private final int[] first; // index of the first move from each square, and the move count at the end
+    private final int[] from;
+    private final int[] to;
+
+    /**
+     * @param moves Moves as {fromX, fromY, toX, toY}
+     */
+    LegalMoves(Board board, Team team, List<int[]> moves) {
+        this.team = team;
+        this.width = board.getWidth();
+        first = new int[width * board.getHeight() + 1];
+        from = new int[moves.size()];
+        to = new int[moves.size()];
+        for (int[] move : moves)
+            first[move[1] * width + move[0] + 1]++;
+        for (int square = 1; square < first.length; square++)
+            first[square] += first[square - 1];
+        int[] next = new int[first.length - 1];
+        System.arraycopy(first, 0, next, 0, next.length);
+        for (int[] move : moves) {
+            int square = move[1] * width + move[0];
+            int i = next[square]++;
+            from[i] = square;
+            to[i] = move[3] * width + move[2];
+        }
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    /**
+     * @return Number of moves
+     */
+    public int size() {
+        return from.length;
+    }
+
+    public int getFromX(int i) {
+        return from[i] % width;
+    }
+
+    public int getFromY(int i) {
+        return from[i] / width;
+    }
+
+    public int getToX(int i) {
+        return to[i] % width;
+    }
+
+    public int getToY(int i) {
+        return to[i] / width;
+    }
+
+    /**
+     * @return Number of moves starting on a square
+     */
+    public int count(int x, int y) {
+        int square = y * width + x;
+        return first[square + 1] - first[square];
+    }
+
+    /**
+     * Gets the squares the piece on a square can move to.
+     * @return Array of {x, y}, empty if no move starts there
+     */
+    public int[][] getMoves(int x, int y) {
+        int square = y * width + x;
+        int[][] moves = new int[first[square + 1] - first[square]][];
+        for (int i = 0; i < moves.length; i++) {
+            int target = to[first[square] + i];
+            moves[i] = new int[]{target % width, target / width};
+        }
+        return moves;
+    }
+
+    /**
+     * Checks a move, looking only at the moves from its square.
+     */
+    public boolean contains(int fromX, int fromY, int toX, int toY) {
+        int square = fromY * width + fromX;
+        int target = toY * width + toX;
+        for (int i = first[square]; i < first[square + 1]; i++)
+            if (to[i] == target)
+                return true;
+        return false;
+    }
+}
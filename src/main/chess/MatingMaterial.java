@@ -0,0 +1,87 @@
+package chess;
+
+/**
+ * Tells positions where neither side has the material to give mate, however both sides play.
+ * Each side's pieces besides its king come down to a signature: 0 for none, 1 + the PieceType ordinal
+ * for one piece, MORE for two or more. A table of signature pairs says which ones can never mate.
+ * Only a lone knight or bishop against a bare king, or two bare kings, are in it.
+ * The archbishop and the squirrel mate a bare king on their own, as the endgame tables show.
+ * Pawns cannot promote in this game, but a lone pawn is still counted as able to mate, so no position
+ * is ever called dead that is not.
+ * Apart from the table, positions where every piece besides the kings is a bishop and all the bishops
+ * stand on squares of one colour are dead too.
+ * @author Ryan Gisleson
+ */
+final class MatingMaterial {
+
+    private static final int MORE = PieceType.count() + 1;
+    private static final boolean[] MATES_ALONE = new boolean[PieceType.count()]; // with its king, against a bare king
+    private static final boolean[][] DEAD = new boolean[MORE + 1][MORE + 1];
+    private static final Team[] TEAMS = Team.values();
+
+    static {
+        MATES_ALONE[PieceType.PAWN.ordinal()] = true;
+        MATES_ALONE[PieceType.KNIGHT.ordinal()] = false;
+        MATES_ALONE[PieceType.BISHOP.ordinal()] = false;
+        MATES_ALONE[PieceType.ROOK.ordinal()] = true;
+        MATES_ALONE[PieceType.QUEEN.ordinal()] = true;
+        MATES_ALONE[PieceType.ARCHBISHOP.ordinal()] = true;
+        MATES_ALONE[PieceType.SQUIRREL.ordinal()] = true;
+
+        DEAD[0][0] = true;
+        for (PieceType type : PieceType.values()) {
+            if (type != PieceType.KING && !MATES_ALONE[type.ordinal()]) {
+                DEAD[1 + type.ordinal()][0] = true;
+                DEAD[0][1 + type.ordinal()] = true;
+            }
+        }
+    }
+
+    private MatingMaterial() {}
+
+    /**
+     * @return True if neither side can ever mate, false if one might or the game has pieces without a type
+     *         or a side without its king
+     */
+    static boolean isDead(Game game) {
+        Board board = game.getBoard();
+        if (board.hasBitboards()) {
+            // quick way out for most positions: dead needs one piece besides the kings, or only bishops
+            int others = board.countPieces(Team.WHITE) + board.countPieces(Team.BLACK) - 2;
+            if (others > 1 && others != board.countPieces(Team.WHITE, PieceType.BISHOP)
+                    + board.countPieces(Team.BLACK, PieceType.BISHOP))
+                return false;
+        }
+        int white = 0;
+        int black = 0;
+        boolean onlyBishops = true;
+        int colours = 0; // bit 0 for a bishop on a light square, bit 1 for one on a dark square
+        for (Team team : TEAMS) {
+            if (game.getKing(team) == null || game.getKing(team).isCaptured())
+                return false;
+            int signature = 0;
+            for (Piece piece : game.getPieces(team)) {
+                if (piece == null) break;
+                if (piece.isCaptured())
+                    continue;
+                PieceType type = piece.getType();
+                if (type == null)
+                    return false;
+                if (type == PieceType.KING)
+                    continue;
+                if (type == PieceType.BISHOP)
+                    colours |= 1 << ((piece.getX() + piece.getY()) & 1);
+                else
+                    onlyBishops = false;
+                signature = (signature == 0) ? 1 + type.ordinal() : MORE;
+                if (signature == MORE && !onlyBishops)
+                    return false;
+            }
+            if (team == Team.WHITE)
+                white = signature;
+            else
+                black = signature;
+        }
+        return DEAD[white][black] || (onlyBishops && colours != 3);
+    }
+}
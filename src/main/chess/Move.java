@@ -3,7 +3,7 @@ package chess;
 /**
  * @author Ryan Gisleson
  */
-class Move {
+public class Move {
     /**
      * Store data for a given move
      */
@@ -0,0 +1,244 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates legal moves for one side of a game.
+ * The position is looked at once to find the pieces giving check and the pieces pinned to the king,
+ * after that every piece's moves are filtered with two masks instead of playing them out.
+ * Boards without bitboards, or with pieces the board cannot type, fall back to trying each move.
+ * @author Ryan Gisleson
+ */
+class MoveGenerator {
+
+    private final Game game;
+    private final Board board;
+    private final long[] pinRays = new long[64]; // squares a pinned piece may still move to
+
+    private Team team;
+    private Piece king;
+    private boolean trial; // test moves by playing them
+    private long checkMask; // squares that stop every check, all squares when not in check
+    private long pinned; // pieces of team pinned to their king
+    private long safe; // squares the king can step to
+
+    MoveGenerator(Game game) {
+        this.game = game;
+        this.board = game.getBoard();
+    }
+
+    /**
+     * Looks at the position for the given team. Must be called again after the board changes.
+     * @param team The team whose moves will be generated
+     */
+    void analyse(Team team) {
+        this.team = team;
+        king = game.getKing(team);
+        if (king != null && (king.isCaptured() || !board.isValidSpace(king.getX(), king.getY())
+                || board.getPiece(king.getX(), king.getY()) != king))
+            king = null; // nothing to keep safe
+        pinned = 0L;
+        checkMask = ~0L;
+        trial = king != null && (!board.hasBitboards() || board.getUntypedPieces() != 0);
+        if (king == null || trial)
+            return;
+        Team other = (team == Team.WHITE) ? Team.BLACK : Team.WHITE;
+        int kingSquare = Bitboards.square(king.getX(), king.getY());
+        long occupied = board.getOccupied();
+        long own = board.getOccupied(team);
+        long rooks = board.getPieces(other, PieceType.ROOK) | board.getPieces(other, PieceType.QUEEN);
+        long bishops = board.getPieces(other, PieceType.BISHOP) | board.getPieces(other, PieceType.QUEEN)
+                | board.getPieces(other, PieceType.ARCHBISHOP);
+
+        // sliders lined up with the king either check it, pin a piece, or are blocked twice
+        long sliders = rooks | bishops;
+        int checkers = 0;
+        while (sliders != 0) {
+            int square = Long.numberOfTrailingZeros(sliders);
+            long bit = sliders & -sliders;
+            sliders &= sliders - 1;
+            boolean lined = ((rooks & bit) != 0 && Bitboards.isOrthogonal(kingSquare, square))
+                    || ((bishops & bit) != 0 && Bitboards.isDiagonal(kingSquare, square));
+            if (!lined) continue;
+            long between = Bitboards.between(kingSquare, square);
+            long blockers = between & occupied;
+            if (blockers == 0) {
+                checkMask &= between | bit;
+                checkers++;
+            } else if ((blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+                pinRays[Long.numberOfTrailingZeros(blockers)] = between | bit;
+            }
+        }
+        long leapers = (Bitboards.knightAttacks(kingSquare)
+                        & (board.getPieces(other, PieceType.KNIGHT) | board.getPieces(other, PieceType.ARCHBISHOP)))
+                | (Bitboards.squirrelAttacks(kingSquare) & board.getPieces(other, PieceType.SQUIRREL))
+                | (Bitboards.pawnAttacks(team, kingSquare) & board.getPieces(other, PieceType.PAWN))
+                | (Bitboards.kingAttacks(kingSquare) & board.getPieces(other, PieceType.KING));
+        // a leaper can only be stopped by taking it
+        checkers += Long.bitCount(leapers);
+        if (leapers != 0)
+            checkMask &= leapers;
+        if (checkers > 1)
+            checkMask = 0L; // double check, only the king can move
+        safe = ~game.getAttackedSquares(other);
+    }
+
+    /**
+     * Check if a move the piece's rules allow leaves its own king safe.
+     * analyse must have been called for the piece's team.
+     * @param piece Piece to move
+     * @param x The x coordinate the piece could move to
+     * @param y The y coordinate the piece could move to
+     * @return True if the move is legal
+     */
+    boolean isLegal(Piece piece, int x, int y) {
+        if (trial)
+            return isLegalByTrial(piece, x, y);
+        if (king == null)
+            return true;
+        long target = Bitboards.bit(x, y);
+        if (piece == king)
+            return (safe & target) != 0;
+        int square = Bitboards.square(piece.getX(), piece.getY());
+        if ((pinned & (1L << square)) != 0 && (pinRays[square] & target) == 0)
+            return false;
+        return (checkMask & target) != 0;
+    }
+
+    private boolean isLegalByTrial(Piece piece, int x, int y) {
+        game.makeMove(piece, x, y);
+        boolean legal = !game.inCheck(king, king.getX(), king.getY());
+        game.unmakeMove();
+        return legal;
+    }
+
+    /**
+     * Gets the legal moves of one piece, in the same format and order as Piece.getMoves.
+     * analyse must have been called for the piece's team.
+     */
+    int[][] getLegalMoves(Piece piece) {
+        int[][] moves = piece.getMoves(board);
+        int count = 0;
+        for (int[] move : moves) {
+            if (isLegal(piece, move[0], move[1]))
+                moves[count++] = move;
+        }
+        if (count == moves.length)
+            return moves;
+        int[][] legal = new int[count][];
+        System.arraycopy(moves, 0, legal, 0, count);
+        return legal;
+    }
+
+    /**
+     * Gets every legal move of the analysed team.
+     * @return Moves as {fromX, fromY, toX, toY}, piece by piece in piece list order
+     */
+    List<int[]> getAllLegalMoves() {
+        List<int[]> moves = new ArrayList<>();
+        for (Piece piece : game.getPieces(team)) {
+            if (piece == null) break;
+            if (piece.isCaptured()) continue;
+            for (int[] move : piece.getMoves(board)) {
+                if (isLegal(piece, move[0], move[1]))
+                    moves.add(new int[]{piece.getX(), piece.getY(), move[0], move[1]});
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Writes every legal move of the analysed team into a buffer as packed moves, see Moves.
+     * Moves come piece by piece in piece list order, like getAllLegalMoves.
+     * Nothing is allocated unless the position has to be checked by trying moves.
+     * @param moves Buffer to fill from index 0, Moves.bufferSize(board) long
+     * @return Number of moves written
+     */
+    int generate(int[] moves) {
+        if (trial || !board.hasBitboards() || board.getUntypedPieces() != 0)
+            return generateByScan(moves);
+        long occupied = board.getOccupied();
+        long own = board.getOccupied(team);
+        long enemies = occupied & ~own;
+        int count = 0;
+        for (Piece piece : game.getPieces(team)) {
+            if (piece == null) break;
+            if (piece.isCaptured()) continue;
+            int square = Bitboards.square(piece.getX(), piece.getY());
+            PieceType type = piece.getType();
+            long targets = (type == PieceType.PAWN) ? pawnTargets(piece, occupied, enemies)
+                    : Bitboards.attacks(type, team, square, occupied) & ~own;
+            if (king != null) {
+                if (piece == king) {
+                    targets &= safe;
+                } else {
+                    targets &= checkMask;
+                    if ((pinned & (1L << square)) != 0)
+                        targets &= pinRays[square];
+                }
+            }
+            // transposed so the moves come column by column, like Piece.getMoves
+            long ordered = Bitboards.transpose(targets);
+            while (ordered != 0) {
+                int index = Long.numberOfTrailingZeros(ordered);
+                ordered &= ordered - 1;
+                int toX = index >>> 3;
+                int toY = index & 7;
+                Piece target = board.getPiece(toX, toY);
+                int flags = (target != null) ? Moves.CAPTURE : 0;
+                if (type == PieceType.PAWN && Math.abs(toY - piece.getY()) == 2)
+                    flags |= Moves.DOUBLE_STEP;
+                moves[count++] = Moves.encode(piece.getX(), piece.getY(), toX, toY, type,
+                        (target != null) ? target.getType() : null, flags);
+            }
+        }
+        return count;
+    }
+
+    private long pawnTargets(Piece pawn, long occupied, long enemies) {
+        int x = pawn.getX();
+        int y = pawn.getY();
+        int dir = (team == Team.WHITE) ? -1 : 1;
+        long targets = Bitboards.pawnAttacks(team, Bitboards.square(x, y)) & enemies;
+        int ahead = y + dir;
+        if (ahead >= 0 && ahead < Bitboards.SIZE && (occupied & Bitboards.bit(x, ahead)) == 0) {
+            targets |= Bitboards.bit(x, ahead);
+            int startRow = (team == Team.WHITE) ? 6 : 1;
+            if (y == startRow && (occupied & Bitboards.bit(x, ahead + dir)) == 0)
+                targets |= Bitboards.bit(x, ahead + dir);
+        }
+        return targets;
+    }
+
+    private int generateByScan(int[] moves) {
+        int count = 0;
+        for (Piece piece : game.getPieces(team)) {
+            if (piece == null) break;
+            if (piece.isCaptured()) continue;
+            for (int[] move : piece.getMoves(board)) {
+                if (isLegal(piece, move[0], move[1]))
+                    moves[count++] = Moves.of(board, piece.getX(), piece.getY(), move[0], move[1]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check if the analysed team has any legal move, stopping at the first one found.
+     */
+    boolean hasLegalMove() {
+        if (!trial && king != null && checkMask == 0L)
+            return getLegalMoves(king).length > 0; // double check
+        for (Piece piece : game.getPieces(team)) {
+            if (piece == null) break;
+            if (piece.isCaptured()) continue;
+            for (int[] move : piece.getMoves(board)) {
+                if (isLegal(piece, move[0], move[1]))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
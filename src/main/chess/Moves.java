@@ -0,0 +1,160 @@
+package chess;
+
+/**
+ * Moves packed into a single int, so move lists can be plain int arrays that are filled again and again
+ * without creating objects.
+ * <pre>
+ * bits  0-7   from square, x in the low four bits and y in the high four
+ * bits  8-15  to square, same layout
+ * bits 16-19  type of the moving piece, ordinal + 1, UNTYPED for pieces without a PieceType
+ * bits 20-23  type of the captured piece, 0 when nothing is captured
+ * bits 24-31  flags, CAPTURE and DOUBLE_STEP
+ * </pre>
+ * Coordinates have four bits each, so boards up to 16x16 can be encoded. No real move encodes to NONE.
+ * @author Ryan Gisleson
+ */
+public final class Moves {
+
+    public static final int NONE = 0;
+    public static final int CAPTURE = 1;
+    public static final int DOUBLE_STEP = 2; // pawn moving two squares
+
+    /**
+     * Largest width and height a board can have for its moves to be encoded.
+     */
+    public static final int MAX_SIZE = 16;
+
+    /**
+     * Size of a buffer that can hold every legal move of a side with 16 pieces on an 8x8 board.
+     * Other material and larger boards can need more, see bufferSize.
+     */
+    public static final int MAX_MOVES = 512;
+
+    private static final int UNTYPED = 15;
+    private static final int SQUARES = 0xFFFF; // from and to squares together
+
+    private Moves() {}
+
+    /**
+     * Gets the size of a buffer that holds every legal move of either side in the board's position and in
+     * every position played on from it. A side has at most one move per piece and other square, and never
+     * more than one per pair of squares, and no move adds pieces.
+     * @return The size, at least MAX_MOVES
+     */
+    public static int bufferSize(Board board) {
+        int squares = board.getWidth() * board.getHeight();
+        int pieces = Math.max(board.countPieces(Team.WHITE), board.countPieces(Team.BLACK));
+        return Math.max(MAX_MOVES, Math.min(squares * squares, pieces * (squares - 1)));
+    }
+
+    /**
+     * Packs a move.
+     * @param moved Type of the moving piece, null for pieces without a type
+     * @param captured Type of the captured piece, null if nothing or an untyped piece is captured
+     * @param flags CAPTURE, DOUBLE_STEP or 0
+     */
+    public static int encode(int fromX, int fromY, int toX, int toY, PieceType moved, PieceType captured, int flags) {
+        int capturedCode = (captured != null) ? captured.ordinal() + 1 : (flags & CAPTURE) != 0 ? UNTYPED : 0;
+        return fromX | fromY << 4 | toX << 8 | toY << 12 | typeCode(moved) << 16 | capturedCode << 20 | flags << 24;
+    }
+
+    /**
+     * Packs a move of the piece on the from square, reading the pieces off the board before it is played.
+     */
+    public static int of(Board board, int fromX, int fromY, int toX, int toY) {
+        Piece piece = board.getPiece(fromX, fromY);
+        Piece target = board.getPiece(toX, toY);
+        int flags = (target != null) ? CAPTURE : 0;
+        if (piece.getType() == PieceType.PAWN && Math.abs(toY - fromY) == 2)
+            flags |= DOUBLE_STEP;
+        return encode(fromX, fromY, toX, toY, piece.getType(), (target != null) ? target.getType() : null, flags);
+    }
+
+    /**
+     * Packs a Move object, which must not have been undone or played further.
+     */
+    public static int fromMove(Move move) {
+        Piece attacker = move.getAttacker();
+        Piece defender = move.getDefender();
+        int flags = (defender != null) ? CAPTURE : 0;
+        if (attacker.getType() == PieceType.PAWN && Math.abs(move.getY() - move.getOldY()) == 2)
+            flags |= DOUBLE_STEP;
+        return encode(move.getOldX(), move.getOldY(), move.getX(), move.getY(), attacker.getType(),
+                (defender != null) ? defender.getType() : null, flags);
+    }
+
+    /**
+     * Makes a Move object for a packed move that has not been played yet on the board.
+     */
+    public static Move toMove(Board board, int move) {
+        Piece attacker = board.getPiece(getFromX(move), getFromY(move));
+        return new Move(attacker, board.getPiece(getToX(move), getToY(move)), getToX(move), getToY(move));
+    }
+
+    /**
+     * @return The move as {fromX, fromY, toX, toY}
+     */
+    public static int[] toArray(int move) {
+        return new int[]{getFromX(move), getFromY(move), getToX(move), getToY(move)};
+    }
+
+    /**
+     * @return The move named by its squares, like "e2e4"
+     */
+    public static String toString(Board board, int move) {
+        return board.getSquareName(getFromX(move), getFromY(move)) + board.getSquareName(getToX(move), getToY(move));
+    }
+
+    public static int getFromX(int move) {
+        return move & 0xF;
+    }
+
+    public static int getFromY(int move) {
+        return (move >>> 4) & 0xF;
+    }
+
+    public static int getToX(int move) {
+        return (move >>> 8) & 0xF;
+    }
+
+    public static int getToY(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    /**
+     * @return Type of the moving piece, null if it has none
+     */
+    public static PieceType getMoved(int move) {
+        return typeOf((move >>> 16) & 0xF);
+    }
+
+    /**
+     * @return Type of the captured piece, null if nothing or an untyped piece is captured
+     */
+    public static PieceType getCaptured(int move) {
+        return typeOf((move >>> 20) & 0xF);
+    }
+
+    public static boolean isCapture(int move) {
+        return (getFlags(move) & CAPTURE) != 0;
+    }
+
+    public static int getFlags(int move) {
+        return move >>> 24;
+    }
+
+    /**
+     * @return Just the from and to squares, enough to tell moves of one position apart
+     */
+    public static int getSquares(int move) {
+        return move & SQUARES;
+    }
+
+    private static int typeCode(PieceType type) {
+        return (type != null) ? type.ordinal() + 1 : UNTYPED;
+    }
+
+    private static PieceType typeOf(int code) {
+        return (code == 0 || code == UNTYPED) ? null : PieceType.get(code - 1);
+    }
+}
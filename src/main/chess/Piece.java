@@ -7,6 +7,7 @@ import java.util.ArrayList;
  */
 public abstract class Piece {
     private final Team team; // team of piece from list of colors
+    private final PieceType type; // null for piece classes the board does not track by type
     private int x, y; // coordinates on board
     private boolean captured = false; // whether or not piece has been removed from play
 
@@ -18,6 +19,7 @@ public abstract class Piece {
 
     public Piece(Team team) {
         this.team = team;
+        this.type = PieceType.of(getClass());
     }
 
     /**
@@ -82,7 +84,9 @@ public abstract class Piece {
     }
 
     /**
-     * Gets a list of all positions piece could move to, without checking legality of moves
+     * Gets a list of all positions piece could move to, without checking legality of moves.
+     * This checks canMove on every square of the board, piece types with a known move shape
+     * override it to generate their moves directly. Moves are ordered by x and then by y.
      * @param board The board the pieces are on
      * @return Array of moves where move[i][0] and move[i][1] correspond to the the x and y endpoints of the ith move
      */
@@ -101,6 +105,28 @@ public abstract class Piece {
         return moves.toArray(new int[0][]);
     }
 
+    /**
+     * Makes a new piece of the same class and team with the same position and captured state.
+     * The copy is not placed on any board.
+     * @return The copy
+     */
+    public Piece copy() {
+        Piece copy;
+        if (type != null) {
+            copy = type.create(team);
+        } else {
+            try {
+                copy = getClass().getConstructor(Team.class).newInstance(team);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(getClass().getName() + " needs a public constructor taking a Team.", e);
+            }
+        }
+        copy.setX(x);
+        copy.setY(y);
+        copy.setCaptured(captured);
+        return copy;
+    }
+
     public int getX() {
         return x;
     }
@@ -121,6 +147,10 @@ public abstract class Piece {
         return team;
     }
 
+    public PieceType getType() {
+        return type;
+    }
+
     public boolean isCaptured() {
         return captured;
     }
@@ -0,0 +1,87 @@
+package chess;
+
+import chess.pieces.*;
+
+import java.util.function.Function;
+
+/**
+ * All piece types the board knows how to track by type.
+ * Pieces of other classes still work everywhere, they just have no type.
+ * @author Ryan Gisleson
+ */
+public enum PieceType {
+    PAWN('P', Pawn::new), KNIGHT('N', Knight::new), BISHOP('B', Bishop::new), ROOK('R', Rook::new),
+    QUEEN('Q', Queen::new), KING('K', King::new), ARCHBISHOP('A', Archbishop::new), SQUIRREL('S', Squirrel::new);
+
+    private static final PieceType[] VALUES = values();
+
+    private final char letter;
+    private final Function<Team, Piece> factory;
+
+    PieceType(char letter, Function<Team, Piece> factory) {
+        this.letter = letter;
+        this.factory = factory;
+    }
+
+    /**
+     * @return Upper case letter naming the type in notation, like 'N' for the knight
+     */
+    public char getLetter() {
+        return letter;
+    }
+
+    /**
+     * Gets a piece's letter in the case notation uses for its team: upper case for white, lower case for black.
+     * @param piece A piece with a type
+     */
+    public static char getLetter(Piece piece) {
+        char letter = piece.getType().getLetter();
+        return (piece.getTeam() == Team.WHITE) ? letter : Character.toLowerCase(letter);
+    }
+
+    /**
+     * Finds the type named by a letter, in either case.
+     * @return The type, or null if no type uses the letter
+     */
+    public static PieceType fromLetter(char letter) {
+        char upper = Character.toUpperCase(letter);
+        for (PieceType type : VALUES)
+            if (type.letter == upper)
+                return type;
+        return null;
+    }
+
+    /**
+     * Makes a new piece of this type.
+     * @param team Team for the piece
+     * @return The new piece, not on any board
+     */
+    public Piece create(Team team) {
+        return factory.apply(team);
+    }
+
+    /**
+     * Finds the type for a piece class.
+     * @param pieceClass Class of the piece
+     * @return The matching type, or null if the class is not one of the built in pieces
+     */
+    public static PieceType of(Class<? extends Piece> pieceClass) {
+        if (pieceClass == Pawn.class) return PAWN;
+        if (pieceClass == Knight.class) return KNIGHT;
+        if (pieceClass == Bishop.class) return BISHOP;
+        if (pieceClass == Rook.class) return ROOK;
+        if (pieceClass == Queen.class) return QUEEN;
+        if (pieceClass == King.class) return KING;
+        if (pieceClass == Archbishop.class) return ARCHBISHOP;
+        if (pieceClass == Squirrel.class) return SQUIRREL;
+        return null;
+    }
+
+    public static PieceType get(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+}
@@ -0,0 +1,93 @@
+package chess;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * Piece sprites for the GUI, each decoded once and kept by piece class and team.
+ * Sprites are named like "whiteKing.png" and read from the root of the classpath, or from
+ * src/resources when the program runs from the project folder without them on the classpath.
+ * A sprite that cannot be read is remembered as missing, so it is only tried once.
+ * Copies scaled to the size squares are drawn at are kept too, until the size changes.
+ * @author Ryan Gisleson
+ */
+class SpriteCache {
+
+    private static final String FOLDER = "src/resources/";
+    private static final Team[] TEAMS = Team.values();
+    private static final BufferedImage MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+    private final Map<Class<? extends Piece>, BufferedImage[]> images = new HashMap<>(); // one image per team
+    private final Map<Class<? extends Piece>, BufferedImage[]> scaled = new HashMap<>();
+    private int scaledSize;
+    private int loads;
+
+    /**
+     * Gets the sprite of a piece, reading it the first time it is asked for.
+     * @return The sprite, or null if there is none
+     */
+    BufferedImage getImage(Piece piece) {
+        BufferedImage[] byTeam = images.computeIfAbsent(piece.getClass(), type -> new BufferedImage[TEAMS.length]);
+        int team = piece.getTeam().ordinal();
+        if (byTeam[team] == null)
+            byTeam[team] = load(piece.getTeam().toString().toLowerCase() + piece.getClass().getSimpleName() + ".png");
+        return (byTeam[team] == MISSING) ? null : byTeam[team];
+    }
+
+    /**
+     * Gets the sprite of a piece scaled to a square of the given size.
+     * @return The scaled sprite, or null if there is none
+     */
+    BufferedImage getImage(Piece piece, int size) {
+        if (size != scaledSize) {
+            scaled.clear();
+            scaledSize = size;
+        }
+        BufferedImage[] byTeam = scaled.computeIfAbsent(piece.getClass(), type -> new BufferedImage[TEAMS.length]);
+        int team = piece.getTeam().ordinal();
+        if (byTeam[team] == null) {
+            BufferedImage image = getImage(piece);
+            byTeam[team] = (image == null || size <= 0) ? MISSING : scale(image, size);
+        }
+        return (byTeam[team] == MISSING) ? null : byTeam[team];
+    }
+
+    private static BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage result = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = result.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, size, size, null);
+        g.dispose();
+        return result;
+    }
+
+    private BufferedImage load(String name) {
+        loads++;
+        URL url = SpriteCache.class.getResource("/" + name);
+        File file = new File(FOLDER + name);
+        if (url == null && !file.isFile())
+            return MISSING;
+        try {
+            BufferedImage image = (url != null) ? ImageIO.read(url) : ImageIO.read(file);
+            if (image != null)
+                return image;
+        } catch (IOException e) {
+            System.err.println("Could not read sprite " + name + ": " + e.getMessage());
+        }
+        return MISSING;
+    }
+
+    /**
+     * @return Number of sprites read so far
+     */
+    int getLoadCount() {
+        return loads;
+    }
+}
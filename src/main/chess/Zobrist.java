@@ -0,0 +1,54 @@
+package chess;
+
+/**
+ * Zobrist keys for hashing board positions.
+ * Every piece on every square has a fixed random key, and a position's hash is the xor of the keys of
+ * its pieces, plus SIDE_TO_MOVE when it is black's turn. Keys are the same for every board of a size,
+ * so hashes can be compared between boards and between runs.
+ * @author Ryan Gisleson
+ */
+public final class Zobrist {
+
+    public static final long SIDE_TO_MOVE = mix(0x5EED5EEDL);
+
+    private static final int TABLE_SQUARES = 64;
+    private static final long[][][] KEYS = new long[PieceType.count()][Team.values().length][TABLE_SQUARES];
+
+    static {
+        for (PieceType type : PieceType.values())
+            for (Team team : Team.values())
+                for (int square = 0; square < TABLE_SQUARES; square++)
+                    KEYS[type.ordinal()][team.ordinal()][square] = key(type.ordinal(), team, square);
+    }
+
+    private Zobrist() {}
+
+    /**
+     * Gets the key for a piece on a square.
+     * @param piece The piece, any class
+     * @param square Index of the square, y * width + x
+     * @return The key
+     */
+    public static long pieceKey(Piece piece, int square) {
+        PieceType type = piece.getType();
+        if (type != null && square < TABLE_SQUARES)
+            return KEYS[type.ordinal()][piece.getTeam().ordinal()][square];
+        // other piece classes are told apart by name so their keys stay the same between runs
+        int kind = (type != null) ? type.ordinal() : PieceType.count() + piece.getClass().getName().hashCode();
+        return key(kind, piece.getTeam(), square);
+    }
+
+    private static long key(int kind, Team team, int square) {
+        return mix(((long) kind << 32) ^ ((long) team.ordinal() << 24) ^ square);
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads the bits of its input over the whole result.
+     */
+    private static long mix(long z) {
+        z = (z ^ 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0x94D049BB133111EBL;
+        z = (z ^ (z >>> 27)) * 0x9E3779B97F4A7C15L;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,98 @@
+package chess.archive;
+
+import chess.Game;
+import chess.Moves;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Layout of a game archive, shared by the writer and the reader.
+ * <pre>
+ * data file   "CHAR" magic, int version, then one record per game:
+ *             int   length of the rest of the record
+ *             byte  flags, result code in the low two bits, ERROR when reading the game stopped early
+ *             int   number of plies
+ *             short number of tags, then name and value of each as short length + UTF-8 bytes
+ *             error message as short length + UTF-8 bytes, only with the ERROR flag
+ *             short per ply, the move's place among the legal moves of the position sorted by squares
+ * index file  long offset of every record in the data file, in game order
+ * </pre>
+ * Moves are sorted before numbering so the numbers do not depend on the order of the game's piece lists.
+ * The start position is the FEN tag if there is one, the standard setup otherwise. Numbers are big endian.
+ * @author Ryan Gisleson
+ */
+final class ArchiveFormat {
+
+    static final int MAGIC = 0x43484152; // "CHAR"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int ERROR = 1 << 2;
+    static final int PLIES_AT = 1; // place of the ply count in a record, counted from after its length
+    static final int TAGS_AT = 5;
+
+    private static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+    private ArchiveFormat() {}
+
+    static Path indexPath(Path data) {
+        return Paths.get(data.toString() + ".idx");
+    }
+
+    static int resultCode(String result) {
+        int code = Arrays.asList(RESULTS).indexOf(result);
+        return Math.max(code, 0); // anything unknown is an unfinished game
+    }
+
+    static String result(int flags) {
+        return RESULTS[flags & 3];
+    }
+
+    /**
+     * Makes a buffer large enough for every legal move on the game's board.
+     */
+    static int[] newBuffer(Game game) {
+        int squares = game.getBoard().getWidth() * game.getBoard().getHeight();
+        return new int[Math.max(Moves.MAX_MOVES, squares * squares)]; // at most one move per pair of squares
+    }
+
+    /**
+     * Numbers a move among the legal moves, counting the moves with lower squares.
+     * @return The move's number, or -1 if it is not one of the legal moves
+     */
+    static int number(int[] legal, int count, int move) {
+        int squares = Moves.getSquares(move);
+        int number = 0;
+        boolean found = false;
+        for (int i = 0; i < count; i++) {
+            int other = Moves.getSquares(legal[i]);
+            if (other < squares)
+                number++;
+            else if (other == squares)
+                found = true;
+        }
+        return found ? number : -1;
+    }
+
+    /**
+     * Finds the move with the given number, see number.
+     * @return The move, or Moves.NONE if there are not that many legal moves
+     */
+    static int select(int[] legal, int count, int number) {
+        if (number >= count)
+            return Moves.NONE;
+        // sort by squares, which are the low bits of every move, with an insertion sort as lists are short
+        for (int i = 1; i < count; i++) {
+            int move = legal[i];
+            int squares = Moves.getSquares(move);
+            int j = i - 1;
+            while (j >= 0 && Moves.getSquares(legal[j]) > squares) {
+                legal[j + 1] = legal[j];
+                j--;
+            }
+            legal[j + 1] = move;
+        }
+        return legal[number];
+    }
+}
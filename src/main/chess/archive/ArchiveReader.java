@@ -0,0 +1,214 @@
+package chess.archive;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Moves;
+import chess.pgn.PgnGame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads games from an archive by number, see ArchiveFormat for the layout. Both files are memory mapped,
+ * so going to game N is one index lookup with no reading through the games before it.
+ * Data files over 1GB are mapped in 1GB parts; the rare game that crosses from one part into the next is
+ * read through the channel instead. The reader sees the games that were in the archive when it was opened.
+ * Reading is safe from many threads as long as each passes its own Game to replay.
+ * @author Ryan Gisleson
+ */
+public class ArchiveReader implements Closeable {
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final long SEGMENT_OVERLAP = 1L << 20; // most games crossing a segment end still fit
+
+    private final FileChannel data;
+    private final FileChannel indexChannel;
+    private final LongBuffer index;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Opens an archive for reading.
+     * @param path The data file, the index is the same path with ".idx" added
+     */
+    public ArchiveReader(Path path) throws IOException {
+        data = FileChannel.open(path, StandardOpenOption.READ);
+        FileChannel opened = null;
+        try {
+            opened = FileChannel.open(ArchiveFormat.indexPath(path), StandardOpenOption.READ);
+            long size = data.size();
+            ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.HEADER_SIZE);
+            data.read(header, 0);
+            if (size < ArchiveFormat.HEADER_SIZE || header.getInt(0) != ArchiveFormat.MAGIC
+                    || header.getInt(4) != ArchiveFormat.VERSION)
+                throw new IOException(path + " is not a game archive.");
+            long entries = opened.size() / Long.BYTES;
+            if (entries * Long.BYTES > Integer.MAX_VALUE)
+                throw new IOException("Index of " + path + " is too large to map.");
+            index = opened.map(FileChannel.MapMode.READ_ONLY, 0, entries * Long.BYTES).asLongBuffer();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = data.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, SEGMENT_SIZE + SEGMENT_OVERLAP));
+            }
+            indexChannel = opened;
+        } catch (IOException | RuntimeException e) {
+            if (opened != null)
+                opened.close();
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Number of games in the archive
+     */
+    public long getGameCount() {
+        return index.limit();
+    }
+
+    /**
+     * Gets a game's record, past its length.
+     */
+    private ByteBuffer record(long game) {
+        if (game < 0 || game >= index.limit())
+            throw new IllegalArgumentException("No game " + game + ", the archive has " + index.limit() + ".");
+        long offset = index.get((int) game);
+        int segment = (int) (offset / SEGMENT_SIZE);
+        int start = (int) (offset - segment * SEGMENT_SIZE);
+        ByteBuffer buffer = segments[segment].duplicate();
+        int length = buffer.getInt(start);
+        if (start + Integer.BYTES + length <= buffer.limit()) {
+            buffer.position(start + Integer.BYTES).limit(start + Integer.BYTES + length);
+            return buffer.slice();
+        }
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        try {
+            while (copy.hasRemaining() && data.read(copy, offset + Integer.BYTES + copy.position()) > 0) {
+                // read the rest
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read game " + game + ".", e);
+        }
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * @return Number of plies in the game, without reading its moves
+     */
+    public int getPlyCount(long game) {
+        return record(game).getInt(ArchiveFormat.PLIES_AT);
+    }
+
+    /**
+     * @return The game's tags, without reading its moves
+     */
+    public Map<String, String> getTags(long game) {
+        ByteBuffer record = record(game);
+        record.position(ArchiveFormat.TAGS_AT);
+        return readTags(record);
+    }
+
+    /**
+     * Reads a whole game, with its moves as packed moves.
+     */
+    public PgnGame read(long game) {
+        ByteBuffer record = record(game);
+        int flags = record.get();
+        int plies = record.getInt();
+        Map<String, String> tags = readTags(record);
+        String error = ((flags & ArchiveFormat.ERROR) != 0) ? readString(record) : null;
+        int[] moves = new int[plies];
+        if (plies > 0) { // a game stored without moves may have a FEN tag that is not a position
+            String fen = tags.get("FEN");
+            playMoves(record, plies, (fen != null) ? Fen.parse(fen) : new Game(GameType.STANDARD), moves);
+        }
+        return new PgnGame(tags, moves, ArchiveFormat.result(flags), error);
+    }
+
+    /**
+     * Replays a game into a new Game.
+     * @return The game at its final position, every move can be taken back with unmakeMove
+     */
+    public Game replay(long game) {
+        ByteBuffer record = record(game);
+        record.get();
+        int plies = record.getInt();
+        Map<String, String> tags = readTags(record);
+        String fen = tags.get("FEN");
+        Game position = (fen != null) ? Fen.parse(fen) : new Game(GameType.STANDARD);
+        skipError(record);
+        playMoves(record, plies, position, null);
+        return position;
+    }
+
+    /**
+     * Replays a game into an existing Game, which is cheaper than making a new one for every game.
+     * @param position Game to replay into, its board must be the size of the game's start position
+     * @param plies Number of plies to play, at most the game's ply count
+     */
+    public void replay(long game, Game position, int plies) {
+        ByteBuffer record = record(game);
+        record.get();
+        int stored = record.getInt();
+        if (plies < 0 || plies > stored)
+            throw new IllegalArgumentException("Game " + game + " has " + stored + " plies, not " + plies + ".");
+        Map<String, String> tags = readTags(record);
+        Fen.load(position, tags.getOrDefault("FEN", Fen.STANDARD));
+        skipError(record);
+        playMoves(record, plies, position, null);
+    }
+
+    private static void playMoves(ByteBuffer record, int plies, Game position, int[] moves) {
+        int[] legal = ArchiveFormat.newBuffer(position);
+        for (int ply = 0; ply < plies; ply++) {
+            int count = position.getLegalMoves(position.getTurn(), legal);
+            int move = ArchiveFormat.select(legal, count, record.getShort() & 0xFFFF);
+            if (move == Moves.NONE)
+                throw new IllegalStateException("Ply " + (ply + 1) + " of the archived game is not a legal move.");
+            if (moves != null)
+                moves[ply] = move;
+            position.makeMove(move);
+        }
+    }
+
+    private static Map<String, String> readTags(ByteBuffer record) {
+        int count = record.getShort() & 0xFFFF;
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++)
+            tags.put(readString(record), readString(record));
+        return tags;
+    }
+
+    private static void skipError(ByteBuffer record) {
+        int flags = record.get(0);
+        if ((flags & ArchiveFormat.ERROR) != 0)
+            record.position(record.position() + Short.BYTES + (record.getShort(record.position()) & 0xFFFF));
+    }
+
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            indexChannel.close();
+        } finally {
+            data.close();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package chess.archive;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.pgn.PgnGame;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Appends games to an archive, see ArchiveFormat for the layout. A new archive is made if there is none.
+ * Appending is safe against crashes and other writers: the archive is locked while a writer has it open,
+ * and each game is written to the data file before its offset goes into the index, so a game only counts
+ * once it is complete. Anything past the last indexed game, left by a crash, is cut off when the archive
+ * is opened again. Call flush to force appended games to disk.
+ * @author Ryan Gisleson
+ */
+public class ArchiveWriter implements Closeable, Flushable {
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final FileLock lock;
+    private long dataEnd;
+    private long count;
+    private ByteBuffer record = ByteBuffer.allocate(1 << 12);
+    private final ByteBuffer offset = ByteBuffer.allocate(Long.BYTES);
+
+    /**
+     * Opens an archive for appending, making it if it does not exist.
+     * @param path The data file, the index is the same path with ".idx" added
+     * @throws IOException If the archive cannot be opened or another writer has it
+     */
+    public ArchiveWriter(Path path) throws IOException {
+        data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel indexChannel = null;
+        FileLock dataLock = null;
+        try {
+            indexChannel = FileChannel.open(ArchiveFormat.indexPath(path),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                dataLock = data.tryLock();
+            } catch (OverlappingFileLockException e) {
+                dataLock = null; // held by a writer in this JVM
+            }
+            if (dataLock == null)
+                throw new IOException(path + " is open in another writer.");
+            index = indexChannel;
+            lock = dataLock;
+            recover(path);
+        } catch (IOException | RuntimeException e) {
+            if (dataLock != null)
+                dataLock.release();
+            if (indexChannel != null)
+                indexChannel.close();
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the header of a new archive, or finds the end of the last complete game of an existing one
+     * and drops anything after it.
+     */
+    private void recover(Path path) throws IOException {
+        if (data.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.HEADER_SIZE);
+            header.putInt(ArchiveFormat.MAGIC).putInt(ArchiveFormat.VERSION).flip();
+            data.write(header, 0);
+            index.truncate(0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.HEADER_SIZE);
+            data.read(header, 0);
+            if (header.getInt(0) != ArchiveFormat.MAGIC || header.getInt(4) != ArchiveFormat.VERSION)
+                throw new IOException(path + " is not a game archive.");
+        }
+        count = index.size() / Long.BYTES;
+        dataEnd = ArchiveFormat.HEADER_SIZE;
+        ByteBuffer last = ByteBuffer.allocate(Long.BYTES);
+        while (count > 0) {
+            last.clear();
+            index.read(last, (count - 1) * Long.BYTES);
+            long start = last.getLong(0);
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            if (start + Integer.BYTES <= data.size() && data.read(length, start) == Integer.BYTES
+                    && start + Integer.BYTES + length.getInt(0) <= data.size()) {
+                dataEnd = start + Integer.BYTES + length.getInt(0);
+                break;
+            }
+            count--; // the index got to disk before the game did
+        }
+        index.truncate(count * Long.BYTES);
+        data.truncate(dataEnd);
+    }
+
+    /**
+     * @return Number of games in the archive
+     */
+    public synchronized long getGameCount() {
+        return count;
+    }
+
+    /**
+     * Appends a game read from PGN, keeping its tags, result and error.
+     * A game whose FEN tag is not a position is stored without moves, with its error.
+     * @return Number of the game in the archive, from 0
+     */
+    public long append(PgnGame game) throws IOException {
+        Game start;
+        try {
+            start = game.startPosition();
+        } catch (IllegalArgumentException e) {
+            String error = (game.getError() != null) ? game.getError() : "Bad FEN tag: " + e.getMessage();
+            return append(new Game(GameType.STANDARD), new int[0], game.getTags(), game.getResult(), error);
+        }
+        return append(start, game.getMoves(), game.getTags(), game.getResult(), game.getError());
+    }
+
+    /**
+     * Appends the moves of a game's history. The game is taken back to its start and played forward again,
+     * so it ends where it was. A FEN tag is added if it did not start from the standard setup.
+     * @param tags Tags to store, the result is "*" unless there is a Result tag
+     * @return Number of the game in the archive, from 0
+     */
+    public long append(Game game, Map<String, String> tags) throws IOException {
+        int plies = game.getPly();
+        int[] moves = new int[plies];
+        for (int i = 0; i < plies; i++)
+            moves[i] = game.getPlyMove(i);
+        game.undoToPly(0);
+        String fen;
+        try {
+            fen = Fen.write(game);
+        } catch (IllegalArgumentException e) {
+            for (int move : moves)
+                game.makeMove(move);
+            throw e;
+        }
+        Map<String, String> stored = tags;
+        if (!fen.equals(Fen.STANDARD) && !tags.containsKey("FEN")) {
+            stored = new LinkedHashMap<>(tags);
+            stored.put("SetUp", "1");
+            stored.put("FEN", fen);
+        }
+        return append(game, moves, stored, tags.getOrDefault("Result", "*"), null);
+    }
+
+    /**
+     * Appends moves played forward from the game's position, leaving the game after the last move.
+     * @param error Why the moves stop early, or null
+     */
+    private synchronized long append(Game game, int[] moves, Map<String, String> tags, String result,
+                                     String error) throws IOException {
+        record.clear();
+        record.putInt(0); // length, filled in below
+        record.put((byte) (ArchiveFormat.resultCode(result) | (error != null ? ArchiveFormat.ERROR : 0)));
+        record.putInt(moves.length);
+        putShort(tags.size());
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            putString(tag.getKey());
+            putString(tag.getValue());
+        }
+        if (error != null)
+            putString(error);
+
+        int[] legal = ArchiveFormat.newBuffer(game);
+        int played = 0;
+        try {
+            for (int move : moves) {
+                int number = ArchiveFormat.number(legal, game.getLegalMoves(game.getTurn(), legal), move);
+                if (number < 0)
+                    throw new IllegalArgumentException("Move " + (played + 1) + " is not legal.");
+                putShort(number);
+                game.makeMove(move);
+                played++;
+            }
+        } finally {
+            while (played < moves.length)
+                game.makeMove(moves[played++]);
+        }
+        record.putInt(0, record.position() - Integer.BYTES);
+        record.flip();
+
+        long start = dataEnd;
+        while (record.hasRemaining())
+            data.write(record, start + record.position());
+        dataEnd += record.limit();
+        offset.clear();
+        offset.putLong(start).flip();
+        while (offset.hasRemaining())
+            index.write(offset, count * Long.BYTES + offset.position());
+        return count++;
+    }
+
+    private void putShort(int value) {
+        ensure(Short.BYTES);
+        record.putShort((short) value);
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF)
+            throw new IllegalArgumentException("Tag longer than 65535 bytes.");
+        putShort(bytes.length);
+        ensure(bytes.length);
+        record.put(bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            larger.put(record);
+            record = larger;
+        }
+    }
+
+    /**
+     * Forces every appended game to disk, data before index.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        data.force(false);
+        index.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            lock.release();
+            index.close();
+            data.close();
+        }
+    }
+}
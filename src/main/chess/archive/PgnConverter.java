@@ -0,0 +1,54 @@
+package chess.archive;
+
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Converts PGN files to game archives. The PGN is read on all cores and the games are appended in file order.
+ * Games with a move that could not be read are kept up to that move, with their error.
+ * @author Ryan Gisleson
+ */
+public final class PgnConverter {
+
+    private PgnConverter() {}
+
+    /**
+     * Appends every game of a PGN file to an archive, making the archive if it does not exist.
+     * @return Number of games appended
+     */
+    public static long convert(Path pgn, Path archive) throws IOException {
+        try (ArchiveWriter writer = new ArchiveWriter(archive);
+             Stream<PgnGame> games = PgnReader.parallelStream(pgn)) {
+            long before = writer.getGameCount();
+            games.forEachOrdered(game -> {
+                try {
+                    writer.append(game);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return writer.getGameCount() - before;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Arguments: the PGN file and the archive to write.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: PgnConverter <games.pgn> <games.archive>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        long games = convert(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.printf("%d games in %.1fs%n", games, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,277 @@
+package chess.book;
+
+import chess.Game;
+import chess.Moves;
+import chess.Team;
+import chess.archive.ArchiveReader;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Builds an opening book from a corpus of games. For the first plies of every game it counts, per position,
+ * how often each move was played and how those games ended for the side that played it.
+ * Builders are not thread safe, but several can each take part of the corpus and be merged,
+ * which is what collect on a parallel stream does.
+ * @author Ryan Gisleson
+ */
+public class BookBuilder {
+
+    public static final int DEFAULT_PLIES = 24;
+
+    /**
+     * Counts for the moves played from one position, in parallel arrays.
+     */
+    private static final class Position {
+        int size;
+        int[] squares = new int[2];
+        int[] games = new int[2];
+        int[] wins = new int[2];
+        int[] draws = new int[2];
+
+        void add(int move, int played, int won, int drawn) {
+            int i = 0;
+            while (i < size && squares[i] != move)
+                i++;
+            if (i == size) {
+                if (size == squares.length) {
+                    squares = Arrays.copyOf(squares, size * 2);
+                    games = Arrays.copyOf(games, size * 2);
+                    wins = Arrays.copyOf(wins, size * 2);
+                    draws = Arrays.copyOf(draws, size * 2);
+                }
+                squares[size++] = move;
+            }
+            games[i] += played;
+            wins[i] += won;
+            draws[i] += drawn;
+        }
+
+        /**
+         * Sorts the moves by squares, with an insertion sort as there are few.
+         */
+        void sort() {
+            for (int i = 1; i < size; i++) {
+                int s = squares[i], g = games[i], w = wins[i], d = draws[i];
+                int j = i - 1;
+                for (; j >= 0 && squares[j] > s; j--) {
+                    squares[j + 1] = squares[j];
+                    games[j + 1] = games[j];
+                    wins[j + 1] = wins[j];
+                    draws[j + 1] = draws[j];
+                }
+                squares[j + 1] = s;
+                games[j + 1] = g;
+                wins[j + 1] = w;
+                draws[j + 1] = d;
+            }
+        }
+    }
+
+    private final int maxPlies;
+    private final Map<Long, Position> positions = new HashMap<>();
+    private long games;
+    private long skipped;
+
+    public BookBuilder() {
+        this(DEFAULT_PLIES);
+    }
+
+    /**
+     * @param maxPlies Number of plies from the start of each game to put in the book
+     */
+    public BookBuilder(int maxPlies) {
+        if (maxPlies < 1)
+            throw new IllegalArgumentException("A book needs at least one ply per game.");
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * @return Number of games added
+     */
+    public long getGameCount() {
+        return games;
+    }
+
+    /**
+     * @return Number of games left out because their start position could not be set up
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * @return Number of different positions in the book so far
+     */
+    public int getPositionCount() {
+        return positions.size();
+    }
+
+    /**
+     * Adds a game read from PGN, up to its first move that could not be read.
+     * A game whose FEN tag is not a position is skipped.
+     */
+    public void add(PgnGame game) {
+        Game start;
+        try {
+            start = game.startPosition();
+        } catch (IllegalArgumentException e) {
+            skipped++;
+            return;
+        }
+        add(start, game.getMoves(), game.getResult());
+    }
+
+    /**
+     * Adds the moves of a game's history. The game is taken back to its start and played forward again,
+     * so it ends where it was.
+     * @param result "1-0", "0-1" or "1/2-1/2", anything else counts as neither a win nor a draw
+     */
+    public void add(Game game, String result) {
+        int[] moves = new int[game.getPly()];
+        for (int i = 0; i < moves.length; i++)
+            moves[i] = game.getPlyMove(i);
+        game.undoToPly(0);
+        add(game, moves, result);
+    }
+
+    /**
+     * Plays the moves forward from the game's position, counting each, and leaves the game after the last move.
+     */
+    private void add(Game game, int[] moves, String result) {
+        games++;
+        int played = 0;
+        try {
+            for (; played < moves.length; played++) {
+                if (played < maxPlies) {
+                    Team mover = game.getTurn();
+                    boolean won = (mover == Team.WHITE) ? result.equals("1-0") : result.equals("0-1");
+                    positions.computeIfAbsent(game.getHash(), key -> new Position())
+                            .add(Moves.getSquares(moves[played]), 1, won ? 1 : 0, result.equals("1/2-1/2") ? 1 : 0);
+                }
+                game.makeMove(moves[played]);
+            }
+        } finally {
+            while (played < moves.length)
+                game.makeMove(moves[played++]);
+        }
+    }
+
+    /**
+     * Adds every game of an archive.
+     */
+    public void add(ArchiveReader archive) {
+        for (long i = 0; i < archive.getGameCount(); i++)
+            add(archive.read(i));
+    }
+
+    /**
+     * Adds the counts of another builder to this one.
+     */
+    public void merge(BookBuilder other) {
+        games += other.games;
+        skipped += other.skipped;
+        for (Map.Entry<Long, Position> entry : other.positions.entrySet()) {
+            Position from = entry.getValue();
+            Position to = positions.computeIfAbsent(entry.getKey(), key -> new Position());
+            for (int i = 0; i < from.size; i++)
+                to.add(from.squares[i], from.games[i], from.wins[i], from.draws[i]);
+        }
+    }
+
+    /**
+     * Writes the book, replacing the file if there is one.
+     * @param minGames Moves played in fewer games than this are left out
+     * @return Number of entries written
+     */
+    public long write(Path path, int minGames) throws IOException {
+        long[] keys = new long[positions.size()];
+        int k = 0;
+        for (long key : positions.keySet())
+            keys[k++] = key;
+        Arrays.sort(keys);
+
+        long entries = 0;
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BookFormat.ENTRY_SIZE * 4096);
+            buffer.position(BookFormat.HEADER_SIZE); // written last, when the number of entries is known
+            for (long key : keys) {
+                Position position = positions.get(key);
+                position.sort();
+                for (int i = 0; i < position.size; i++) {
+                    if (position.games[i] < minGames)
+                        continue;
+                    if (buffer.remaining() < BookFormat.ENTRY_SIZE)
+                        drain(out, buffer);
+                    buffer.putLong(key).putInt(position.squares[i])
+                            .putInt(position.games[i]).putInt(position.wins[i]).putInt(position.draws[i]);
+                    entries++;
+                }
+            }
+            drain(out, buffer);
+            buffer.putInt(BookFormat.MAGIC).putInt(BookFormat.VERSION).putLong(entries).flip();
+            while (buffer.hasRemaining())
+                out.write(buffer, buffer.position());
+        }
+        return entries;
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Builds a book from PGN files or game archives, read by their extension.
+     * Arguments: the book to write, then the games, then optionally -plies N and -min N.
+     */
+    public static void main(String[] args) throws IOException {
+        int plies = DEFAULT_PLIES;
+        int minGames = 1;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-plies") && i + 1 < args.length)
+                plies = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-min") && i + 1 < args.length)
+                minGames = Integer.parseInt(args[++i]);
+            else
+                inputs.add(Paths.get(args[i]));
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: BookBuilder <book> <games.pgn|games.archive>... [-plies N] [-min N]");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        BookBuilder builder = new BookBuilder(plies);
+        for (Path input : inputs) {
+            if (input.toString().endsWith(".pgn")) {
+                int maxPlies = plies;
+                try (Stream<PgnGame> games = PgnReader.parallelStream(input)) {
+                    builder.merge(games.collect(() -> new BookBuilder(maxPlies), BookBuilder::add, BookBuilder::merge));
+                }
+            } else {
+                try (ArchiveReader archive = new ArchiveReader(input)) {
+                    builder.add(archive);
+                }
+            }
+        }
+        long entries = builder.write(Paths.get(args[0]), minGames);
+        System.out.printf("%d games, %d skipped, %d positions, %d moves written in %.1fs%n", builder.getGameCount(),
+                builder.getSkippedCount(), builder.getPositionCount(), entries, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,29 @@
+package chess.book;
+
+/**
+ * Layout of an opening book file, shared by the builder and the reader.
+ * <pre>
+ * header  "CHBK" magic, int version, long number of entries
+ * entry   long  position hash, see Board.getHash
+ *         int   squares of the move, see Moves.getSquares
+ *         int   games the move was played in
+ *         int   of those, games won by the side that played it
+ *         int   of those, games drawn
+ * </pre>
+ * Entries are sorted by hash and then by squares, so all moves of a position sit together and can be
+ * found with a binary search. Hashes include the piece types, so one book can hold standard and custom games.
+ * @author Ryan Gisleson
+ */
+final class BookFormat {
+
+    static final int MAGIC = 0x4348424B; // "CHBK"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 24;
+    static final int SQUARES_AT = 8; // places in an entry
+    static final int GAMES_AT = 12;
+    static final int WINS_AT = 16;
+    static final int DRAWS_AT = 20;
+
+    private BookFormat() {}
+}
@@ -0,0 +1,51 @@
+package chess.book;
+
+/**
+ * A move found in an opening book, with how it did in the games it was played in.
+ * Wins and losses are for the side that played the move.
+ * @author Ryan Gisleson
+ */
+public final class BookMove {
+
+    private final int move;
+    private final int games;
+    private final int wins;
+    private final int draws;
+
+    public BookMove(int move, int games, int wins, int draws) {
+        this.move = move;
+        this.games = games;
+        this.wins = wins;
+        this.draws = draws;
+    }
+
+    /**
+     * @return The legal packed move, see Moves
+     */
+    public int getMove() {
+        return move;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getLosses() {
+        return games - wins - draws;
+    }
+
+    /**
+     * @return Share of the points the move scored, from 0 to 1, counting a draw as half a point
+     */
+    public double getScore() {
+        return (games == 0) ? 0 : (wins + draws / 2.0) / games;
+    }
+}
@@ -0,0 +1,140 @@
+package chess.book;
+
+import chess.Board;
+import chess.Game;
+import chess.Moves;
+import chess.Piece;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Looks up positions in an opening book written by BookBuilder. The file is memory mapped and searched
+ * in place with a binary search on the position hash, so opening a book reads nothing and a lookup touches
+ * a few pages. Moves found are checked against the position, so a hash collision cannot give an illegal move.
+ * Lookups are safe from many threads at once.
+ * @author Ryan Gisleson
+ */
+public class OpeningBook implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer entries;
+    private final int count;
+
+    /**
+     * Opens a book for lookups.
+     * @throws IOException If the file cannot be read, is not a book or is over 2GB
+     */
+    public OpeningBook(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(BookFormat.HEADER_SIZE);
+            channel.read(header, 0);
+            long stored = header.getLong(8);
+            if (size < BookFormat.HEADER_SIZE || header.getInt(0) != BookFormat.MAGIC
+                    || header.getInt(4) != BookFormat.VERSION
+                    || size != BookFormat.HEADER_SIZE + stored * BookFormat.ENTRY_SIZE)
+                throw new IOException(path + " is not an opening book.");
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(path + " is too large to map.");
+            count = (int) stored;
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, BookFormat.HEADER_SIZE, size - BookFormat.HEADER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Number of moves in the book, over all positions
+     */
+    public int getEntryCount() {
+        return count;
+    }
+
+    /**
+     * Finds the first entry of a position.
+     * @return The entry's number, or -1 if the position is not in the book
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.getLong(mid * BookFormat.ENTRY_SIZE) < key)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return (low < count && entries.getLong(low * BookFormat.ENTRY_SIZE) == key) ? low : -1;
+    }
+
+    /**
+     * @return Whether the book has any move for the game's position
+     */
+    public boolean contains(Game game) {
+        return find(game.getHash()) >= 0;
+    }
+
+    /**
+     * Gets the book moves of the game's position that are legal in it.
+     * @return The moves, most played first, empty if the position is not in the book
+     */
+    public List<BookMove> getMoves(Game game) {
+        List<BookMove> moves = new ArrayList<>();
+        long key = game.getHash();
+        Board board = game.getBoard();
+        for (int i = find(key); i >= 0 && i < count; i++) {
+            int at = i * BookFormat.ENTRY_SIZE;
+            if (entries.getLong(at) != key)
+                break;
+            int squares = entries.getInt(at + BookFormat.SQUARES_AT);
+            int fromX = Moves.getFromX(squares);
+            int fromY = Moves.getFromY(squares);
+            int toX = Moves.getToX(squares);
+            int toY = Moves.getToY(squares);
+            if (!board.isValidSpace(fromX, fromY) || !board.isValidSpace(toX, toY))
+                continue;
+            Piece piece = board.getPiece(fromX, fromY);
+            if (piece == null || piece.getTeam() != game.getTurn() || !game.isLegalMove(piece, toX, toY))
+                continue;
+            moves.add(new BookMove(Moves.of(board, fromX, fromY, toX, toY), entries.getInt(at + BookFormat.GAMES_AT),
+                    entries.getInt(at + BookFormat.WINS_AT), entries.getInt(at + BookFormat.DRAWS_AT)));
+        }
+        moves.sort((a, b) -> Integer.compare(b.getGames(), a.getGames()));
+        return moves;
+    }
+
+    /**
+     * Picks a book move at random, each move as likely as the share of games it was played in.
+     * @return The packed move, or Moves.NONE if the position is not in the book
+     */
+    public int choose(Game game, Random rand) {
+        List<BookMove> moves = getMoves(game);
+        long total = 0;
+        for (BookMove move : moves)
+            total += move.getGames();
+        if (total == 0)
+            return Moves.NONE;
+        long pick = (long) (rand.nextDouble() * total);
+        for (BookMove move : moves) {
+            pick -= move.getGames();
+            if (pick < 0)
+                return move.getMove();
+        }
+        return moves.get(moves.size() - 1).getMove();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,79 @@
+package chess.engine;
+
+import chess.Board;
+import chess.BoardListener;
+import chess.Piece;
+import chess.PieceType;
+import chess.Team;
+
+/**
+ * The sums the Evaluator scores a board by: material, placement in the middlegame and in the endgame
+ * for each team, and the phase. Each piece put on or taken off the board adds or takes away its share,
+ * so making and unmaking a move costs a few additions and scoring costs nothing more.
+ * One is kept per board and shared by every search on it.
+ * @author Ryan Gisleson
+ */
+final class Evaluation implements BoardListener {
+
+    private static final int TEAMS = Team.values().length;
+
+    private final boolean placement; // only 8x8 boards have piece-square tables
+    private final int[] material = new int[TEAMS];
+    private final int[] middle = new int[TEAMS];
+    private final int[] end = new int[TEAMS];
+    private int phase;
+
+    private Evaluation(Board board) {
+        placement = board.hasBitboards();
+        for (int x = 0; x < board.getWidth(); x++) {
+            for (int y = 0; y < board.getHeight(); y++) {
+                Piece piece = board.getPiece(x, y);
+                if (piece != null)
+                    update(piece, x, y, 1);
+            }
+        }
+        board.addListener(this);
+    }
+
+    /**
+     * Gets the board's evaluation, adding the board up the first time.
+     */
+    static Evaluation of(Board board) {
+        Evaluation evaluation = board.getListener(Evaluation.class);
+        return (evaluation != null) ? evaluation : new Evaluation(board);
+    }
+
+    @Override
+    public void pieceAdded(Piece piece, int x, int y) {
+        update(piece, x, y, 1);
+    }
+
+    @Override
+    public void pieceRemoved(Piece piece, int x, int y) {
+        update(piece, x, y, -1);
+    }
+
+    private void update(Piece piece, int x, int y, int sign) {
+        PieceType type = piece.getType();
+        int team = piece.getTeam().ordinal();
+        material[team] += sign * Evaluator.getValue(type);
+        phase += sign * Evaluator.getPhase(type);
+        if (placement && type != null) {
+            middle[team] += sign * Evaluator.getPlacement(type, piece.getTeam(), x, y, false);
+            end[team] += sign * Evaluator.getPlacement(type, piece.getTeam(), x, y, true);
+        }
+    }
+
+    int getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return Score in centipawns, positive when the team is better
+     */
+    int score(Team team) {
+        int us = team.ordinal();
+        int them = 1 - us;
+        return Evaluator.combine(material[us] - material[them], middle[us] - middle[them], end[us] - end[them], phase);
+    }
+}
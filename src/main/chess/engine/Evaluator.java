@@ -0,0 +1,231 @@
+package chess.engine;
+
+import chess.Board;
+import chess.Game;
+import chess.Piece;
+import chess.PieceType;
+import chess.Team;
+
+/**
+ * Static evaluation of a position: material plus a bonus or penalty for where each piece stands.
+ * Scores are in centipawns. The piece-square tables are written from white's side, row 0 being black's
+ * back rank as on the Board, and are flipped for black. Boards that are not 8x8 only count material.
+ * The king has a second table for the endgame, and the two are blended by the phase, which falls from
+ * MAX_PHASE towards 0 as pieces other than pawns and kings come off.
+ * The sums are kept by an Evaluation on each board as pieces move, so evaluating costs the same
+ * however many pieces there are.
+ * @author Ryan Gisleson
+ */
+public class Evaluator {
+
+    // archbishop and squirrel values are estimates: the archbishop is close to a bishop and knight
+    // together, the squirrel reaches sixteen squares that cannot be blocked and is worth about a rook
+    private static final int[] VALUES = new int[PieceType.count()];
+    private static final int UNKNOWN_VALUE = 300; // for piece classes without a type
+
+    private static final int[][] TABLES = new int[PieceType.count()][];
+    private static final int[][] END_TABLES = new int[PieceType.count()][];
+    private static final int[] PHASES = new int[PieceType.count()];
+    static final int MAX_PHASE = 24; // both sides with every piece of a standard game
+    private static final Team[] TEAMS = Team.values();
+
+    private static final int[] PAWN_TABLE = {
+             0,   0,   0,   0,   0,   0,   0,   0,
+            50,  50,  50,  50,  50,  50,  50,  50,
+            10,  10,  20,  30,  30,  20,  10,  10,
+             5,   5,  10,  25,  25,  10,   5,   5,
+             0,   0,   0,  20,  20,   0,   0,   0,
+             5,  -5, -10,   0,   0, -10,  -5,   5,
+             5,  10,  10, -20, -20,  10,  10,   5,
+             0,   0,   0,   0,   0,   0,   0,   0};
+    private static final int[] KNIGHT_TABLE = {
+           -50, -40, -30, -30, -30, -30, -40, -50,
+           -40, -20,   0,   0,   0,   0, -20, -40,
+           -30,   0,  10,  15,  15,  10,   0, -30,
+           -30,   5,  15,  20,  20,  15,   5, -30,
+           -30,   0,  15,  20,  20,  15,   0, -30,
+           -30,   5,  10,  15,  15,  10,   5, -30,
+           -40, -20,   0,   5,   5,   0, -20, -40,
+           -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] BISHOP_TABLE = {
+           -20, -10, -10, -10, -10, -10, -10, -20,
+           -10,   0,   0,   0,   0,   0,   0, -10,
+           -10,   0,   5,  10,  10,   5,   0, -10,
+           -10,   5,   5,  10,  10,   5,   5, -10,
+           -10,   0,  10,  10,  10,  10,   0, -10,
+           -10,  10,  10,  10,  10,  10,  10, -10,
+           -10,   5,   0,   0,   0,   0,   5, -10,
+           -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] ROOK_TABLE = {
+             0,   0,   0,   0,   0,   0,   0,   0,
+             5,  10,  10,  10,  10,  10,  10,   5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+             0,   0,   0,   5,   5,   0,   0,   0};
+    private static final int[] QUEEN_TABLE = {
+           -20, -10, -10,  -5,  -5, -10, -10, -20,
+           -10,   0,   0,   0,   0,   0,   0, -10,
+           -10,   0,   5,   5,   5,   5,   0, -10,
+            -5,   0,   5,   5,   5,   5,   0,  -5,
+             0,   0,   5,   5,   5,   5,   0,  -5,
+           -10,   5,   5,   5,   5,   5,   0, -10,
+           -10,   0,   5,   0,   0,   0,   0, -10,
+           -20, -10, -10,  -5,  -5, -10, -10, -20};
+    private static final int[] KING_TABLE = {
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -20, -30, -30, -40, -40, -30, -30, -20,
+           -10, -20, -20, -20, -20, -20, -20, -10,
+            20,  20,   0,   0,   0,   0,  20,  20,
+            20,  30,  10,   0,   0,  10,  30,  20};
+    private static final int[] KING_END_TABLE = {
+           -50, -40, -30, -20, -20, -30, -40, -50,
+           -30, -20, -10,   0,   0, -10, -20, -30,
+           -30, -10,  20,  30,  30,  20, -10, -30,
+           -30, -10,  30,  40,  40,  30, -10, -30,
+           -30, -10,  30,  40,  40,  30, -10, -30,
+           -30, -10,  20,  30,  30,  20, -10, -30,
+           -30, -30,   0,   0,   0,   0, -30, -30,
+           -50, -30, -30, -30, -30, -30, -30, -50};
+
+    private boolean checking;
+
+    static {
+        VALUES[PieceType.PAWN.ordinal()] = 100;
+        VALUES[PieceType.KNIGHT.ordinal()] = 320;
+        VALUES[PieceType.BISHOP.ordinal()] = 330;
+        VALUES[PieceType.ROOK.ordinal()] = 500;
+        VALUES[PieceType.QUEEN.ordinal()] = 900;
+        VALUES[PieceType.KING.ordinal()] = 0; // never captured, so never counted
+        VALUES[PieceType.ARCHBISHOP.ordinal()] = 800;
+        VALUES[PieceType.SQUIRREL.ordinal()] = 500;
+
+        TABLES[PieceType.PAWN.ordinal()] = PAWN_TABLE;
+        TABLES[PieceType.KNIGHT.ordinal()] = KNIGHT_TABLE;
+        TABLES[PieceType.BISHOP.ordinal()] = BISHOP_TABLE;
+        TABLES[PieceType.ROOK.ordinal()] = ROOK_TABLE;
+        TABLES[PieceType.QUEEN.ordinal()] = QUEEN_TABLE;
+        TABLES[PieceType.KING.ordinal()] = KING_TABLE;
+        // the squirrel is a leaper like the knight and wants the centre just as much,
+        // the archbishop gets halfway between the knight and the bishop
+        TABLES[PieceType.SQUIRREL.ordinal()] = KNIGHT_TABLE;
+        int[] archbishop = new int[64];
+        for (int i = 0; i < 64; i++)
+            archbishop[i] = (KNIGHT_TABLE[i] + BISHOP_TABLE[i]) / 2;
+        TABLES[PieceType.ARCHBISHOP.ordinal()] = archbishop;
+        System.arraycopy(TABLES, 0, END_TABLES, 0, TABLES.length);
+        END_TABLES[PieceType.KING.ordinal()] = KING_END_TABLE;
+
+        PHASES[PieceType.KNIGHT.ordinal()] = 1;
+        PHASES[PieceType.BISHOP.ordinal()] = 1;
+        PHASES[PieceType.SQUIRREL.ordinal()] = 2;
+        PHASES[PieceType.ROOK.ordinal()] = 2;
+        PHASES[PieceType.ARCHBISHOP.ordinal()] = 3;
+        PHASES[PieceType.QUEEN.ordinal()] = 4;
+    }
+
+    /**
+     * Gets the material value of a piece type in centipawns.
+     * @param type The type, or null for piece classes without one
+     * @return The value
+     */
+    public static int getValue(PieceType type) {
+        return (type == null) ? UNKNOWN_VALUE : VALUES[type.ordinal()];
+    }
+
+    /**
+     * Gets the value of a piece standing on a square, material and middlegame placement together.
+     * @return The value from the piece's own side, higher is better for its team
+     */
+    public static int getValue(Piece piece, Board board, int x, int y) {
+        PieceType type = piece.getType();
+        int value = getValue(type);
+        if (type != null && board.hasBitboards())
+            value += getPlacement(type, piece.getTeam(), x, y, false);
+        return value;
+    }
+
+    /**
+     * Gets the piece-square bonus of a piece type on a square.
+     * @param end Whether to use the endgame table
+     * @return The bonus from the piece's own side
+     */
+    static int getPlacement(PieceType type, Team team, int x, int y, boolean end) {
+        int row = (team == Team.WHITE) ? y : 7 - y;
+        return (end ? END_TABLES : TABLES)[type.ordinal()][row * 8 + x];
+    }
+
+    /**
+     * Gets how much a piece type adds to the phase.
+     * @param type The type, or null for piece classes without one
+     */
+    static int getPhase(PieceType type) {
+        return (type == null) ? 0 : PHASES[type.ordinal()];
+    }
+
+    /**
+     * Puts the sums together into a score, blending the placement sums by the phase.
+     * Each sum is for the side the score is for minus the other side.
+     */
+    static int combine(int material, int middle, int end, int phase) {
+        phase = Math.min(phase, MAX_PHASE); // games with fairy pieces start above it
+        return material + (middle * phase + end * (MAX_PHASE - phase)) / MAX_PHASE;
+    }
+
+    /**
+     * Makes every evaluation also add the position up from scratch and compare the two, for finding
+     * changes to the board that the kept sums missed. Slows evaluation down a lot.
+     * @param checking Whether to check
+     */
+    public void setChecking(boolean checking) {
+        this.checking = checking;
+    }
+
+    /**
+     * Evaluates the game for the side to move.
+     * @param game The game to evaluate
+     * @return Score in centipawns, positive when the side to move is better
+     * @throws IllegalStateException If checking and the kept sums do not match the position
+     */
+    public int evaluate(Game game) {
+        int score = Evaluation.of(game.getBoard()).score(game.getTurn());
+        if (checking) {
+            int full = evaluateFully(game);
+            if (score != full)
+                throw new IllegalStateException("Kept evaluation " + score + " does not match " + full + " at ply "
+                        + game.getPly() + ".");
+        }
+        return score;
+    }
+
+    /**
+     * Evaluates the game for the side to move by going over every piece.
+     * @param game The game to evaluate
+     * @return Score in centipawns, positive when the side to move is better
+     */
+    public int evaluateFully(Game game) {
+        Board board = game.getBoard();
+        int material = 0, middle = 0, end = 0, phase = 0;
+        for (Team team : TEAMS) {
+            int sign = (team == game.getTurn()) ? 1 : -1;
+            for (Piece piece : game.getPieces(team)) {
+                if (piece == null) break;
+                if (piece.isCaptured())
+                    continue;
+                PieceType type = piece.getType();
+                material += sign * getValue(type);
+                phase += getPhase(type);
+                if (type != null && board.hasBitboards()) {
+                    middle += sign * getPlacement(type, team, piece.getX(), piece.getY(), false);
+                    end += sign * getPlacement(type, team, piece.getX(), piece.getY(), true);
+                }
+            }
+        }
+        return combine(material, middle, end, phase);
+    }
+}
@@ -0,0 +1,106 @@
+package chess.engine;
+
+import chess.Game;
+import chess.book.OpeningBook;
+import chess.tablebase.Tablebases;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searches one position on several threads at once in the Lazy SMP style. Every thread runs its own
+ * Search on its own copy of the game and they share nothing but the transposition table, so the threads
+ * speed each other up through the entries they store. Helper threads skip some depths to spread out.
+ * The calling thread does the main search, and when it finishes the helpers are stopped. Helpers get the same
+ * depth and time limits, so they end on their own too.
+ * @author Ryan Gisleson
+ */
+public class ParallelSearch {
+
+    private final Game game;
+    private final int threads;
+    private final TranspositionTable table;
+    private OpeningBook book;
+    private Tablebases tablebases;
+
+    /**
+     * @param game The game to search, it is not changed
+     * @param threads Number of threads, at least 1
+     * @param table Table shared by the threads
+     */
+    public ParallelSearch(Game game, int threads, TranspositionTable table) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Parallel search needs at least one thread.");
+        this.game = game;
+        this.threads = threads;
+        this.table = table;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Sets a book to play from while the position is in it, null for none.
+     */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Sets endgame tables for every thread to look positions up in, null for none.
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Searches the current position until the main thread finishes a depth or runs out of time.
+     * @param maxDepth Deepest depth to search to, in plies
+     * @param maxMillis Time budget in milliseconds, Long.MAX_VALUE for none
+     * @return The result of the deepest finished depth of any thread, with the nodes of all threads
+     */
+    public SearchResult search(int maxDepth, long maxMillis) {
+        long start = System.nanoTime();
+        Search main = new Search(new Game(game), table);
+        main.setBook(book);
+        main.setTablebases(tablebases);
+        SearchResult fromBook = main.bookResult(start);
+        if (fromBook != null)
+            return fromBook; // no helpers needed
+        List<Search> helpers = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        SearchResult[] helperResults = new SearchResult[threads];
+        for (int i = 1; i < threads; i++) {
+            Search helper = new Search(new Game(game), table);
+            helper.setHelper(i);
+            helper.setTablebases(tablebases);
+            helpers.add(helper);
+            int index = i;
+            Thread worker = new Thread(() -> helperResults[index] = helper.search(maxDepth, Long.MAX_VALUE, maxMillis),
+                    "search-helper-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        for (Thread worker : workers)
+            worker.start();
+
+        SearchResult best = main.search(maxDepth, Long.MAX_VALUE, maxMillis);
+        for (Search helper : helpers)
+            helper.stop();
+        long nodes = main.getNodes();
+        for (int i = 0; i < workers.size(); i++) {
+            try {
+                workers.get(i).join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            nodes += helpers.get(i).getNodes();
+        }
+        for (SearchResult result : helperResults)
+            if (result != null && result.getBestMove() != null && result.getDepth() > best.getDepth())
+                best = result;
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes,
+                System.nanoTime() - start, best.getPrincipalVariation());
+    }
+}
@@ -0,0 +1,121 @@
+package chess.engine;
+
+import chess.Game;
+import chess.GameType;
+import chess.Moves;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the positions reachable from a game in a fixed number of moves, to test the move generator
+ * for correctness and speed. Root moves can be split over a ForkJoinPool, each task working on its own
+ * copy of the game.
+ * @author Ryan Gisleson
+ */
+public class Perft {
+
+    private final Game game;
+
+    public Perft(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Counts leaf positions at the given depth, on the calling thread.
+     * @param depth Number of moves to play, at least 1
+     * @return Number of positions
+     */
+    public long count(int depth) {
+        return count(game, depth, new int[depth + 1][Moves.bufferSize(game.getBoard())]);
+    }
+
+    /**
+     * Counts leaf positions below each root move.
+     * @param depth Number of moves to play, at least 1
+     * @param pool Pool to split the root moves over
+     * @return Counts for each root move in generation order, keyed by moves like "e2e4"
+     */
+    public Map<String, Long> divide(int depth, ForkJoinPool pool) {
+        int[] moves = new int[Moves.bufferSize(game.getBoard())];
+        int count = game.getLegalMoves(game.getTurn(), moves);
+        List<RootTask> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            tasks.add(new RootTask(game, moves[i], depth - 1));
+        for (RootTask task : tasks)
+            pool.execute(task);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (RootTask task : tasks)
+            counts.put(Moves.toString(game.getBoard(), task.move), task.join());
+        return counts;
+    }
+
+    // one move list per remaining depth, reused by every node at that depth
+    private static long count(Game game, int depth, int[][] moveLists) {
+        int[] moves = moveLists[depth];
+        int count = game.getLegalMoves(game.getTurn(), moves);
+        if (depth == 1)
+            return count; // no need to play the last move out
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            nodes += count(game, depth - 1, moveLists);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the positions below one root move, on a copy of the game.
+     */
+    private static class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Game root;
+        private final int move;
+        private final int depth;
+
+        RootTask(Game root, int move, int depth) {
+            this.root = root;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            Game copy = new Game(root); // only reads the root game, which nothing writes while we split
+            copy.makeMove(move);
+            return depth == 0 ? 1L : count(copy, depth, new int[depth + 1][Moves.bufferSize(copy.getBoard())]);
+        }
+    }
+
+    /**
+     * Runs perft from the command line.
+     * Arguments: depth, then optionally "custom" for the custom game type and a thread count.
+     */
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        GameType type = (args.length > 1 && args[1].equalsIgnoreCase("custom")) ? GameType.CUSTOM : GameType.STANDARD;
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Game game = new Game(type);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        Map<String, Long> counts = new Perft(game).divide(depth, pool);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        long total = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.println();
+        System.out.println("Moves: " + counts.size());
+        System.out.println("Nodes: " + total);
+        System.out.printf("Time: %.3f s, %d threads, %.0f nodes/s%n", elapsed / 1e9, threads,
+                total / (elapsed / 1e9));
+    }
+}
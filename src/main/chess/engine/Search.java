@@ -0,0 +1,406 @@
+package chess.engine;
+
+import chess.Game;
+import chess.GameType;
+import chess.Moves;
+import chess.Piece;
+import chess.Team;
+import chess.book.OpeningBook;
+import chess.tablebase.Material;
+import chess.tablebase.Tablebase;
+import chess.tablebase.Tablebases;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Finds the best move for the side to move with a negamax alpha-beta search.
+ * Searches one ply deeper at a time until it runs out of depth, nodes or time, and returns the best
+ * move of the last finished depth. Moves are played on the given game and always undone again.
+ * @author Ryan Gisleson
+ */
+public class Search {
+
+    public static final int MATE = 100_000;
+    private static final int INFINITY = MATE + 1;
+    private static final int MAX_PLY = 64;
+    private static final int MATE_BOUND = MATE - 1000; // lowest mate score, tablebase mates can be far past MAX_PLY
+    private static final int CHECK_INTERVAL = 2048; // nodes between looking at the clock
+    private static final int DEFAULT_TABLE_MB = 16;
+    // which depths each helper thread of a parallel search skips, so they do not all search the same depth
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    private final Game game;
+    private final TranspositionTable table;
+    private final Evaluator evaluator = new Evaluator();
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    // one move list and its ordering scores per ply, filled again at every node so searching allocates nothing.
+    // Made larger before a search if the position can have more moves than they hold
+    private int[][] moveLists = new int[MAX_PLY + 1][Moves.MAX_MOVES];
+    private int[][] orderScores = new int[MAX_PLY + 1][Moves.MAX_MOVES];
+
+    private Consumer<SearchResult> listener;
+    private OpeningBook book;
+    private Tablebases tablebases;
+    private final Random bookRandom = new Random();
+    private volatile boolean stopRequested;
+    private boolean aborted;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private int rootBest; // best root move of the previous depth, searched first
+    private int helper; // 0 for a search of its own or the main thread of a parallel one
+
+    public Search(Game game) {
+        this(game, new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * Creates a search that caches positions in the given table, which other searches may share.
+     */
+    public Search(Game game, TranspositionTable table) {
+        this.game = game;
+        this.table = table;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Makes this search a helper of a parallel search, skipping some depths depending on its number.
+     * @param helper Number of the helper, from 1
+     */
+    void setHelper(int helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * @return Nodes searched so far by the current or last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Sets something to be told the result after every finished depth, for example to print progress.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets a book to play from while the position is in it, null for none.
+     */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Sets endgame tables to look positions up in instead of searching them, null for none.
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. Safe to call from another thread.
+     * Asked before the search starts, it stops that search as soon as it starts.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Searches the current position.
+     * @param maxDepth Deepest depth to search to, in plies
+     * @param maxNodes Node budget, Long.MAX_VALUE for none
+     * @param maxMillis Time budget in milliseconds, Long.MAX_VALUE for none
+     * @return The result of the deepest finished depth
+     */
+    public SearchResult search(int maxDepth, long maxNodes, long maxMillis) {
+        try {
+            return run(maxDepth, maxNodes, maxMillis);
+        } finally {
+            stopRequested = false; // cleared when done, not when starting, so an early stop is not lost
+        }
+    }
+
+    private SearchResult run(int maxDepth, long maxNodes, long maxMillis) {
+        long start = System.nanoTime();
+        nodes = 0;
+        nodeLimit = maxNodes;
+        deadline = (maxMillis >= Long.MAX_VALUE / 1_000_000) ? Long.MAX_VALUE : start + maxMillis * 1_000_000;
+        aborted = false;
+        rootBest = Moves.NONE;
+        int size = Moves.bufferSize(game.getBoard());
+        if (moveLists[0].length < size) {
+            moveLists = new int[MAX_PLY + 1][size];
+            orderScores = new int[MAX_PLY + 1][size];
+        }
+        SearchResult result = bookResult(start);
+        if (result != null)
+            return result;
+        table.newSearch();
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            if (skipsDepth(depth))
+                continue;
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (aborted && result != null)
+                break; // unfinished depth, keep the last finished one
+            if (pvLength[0] == 0 && aborted) { // out of budget before the first move was searched
+                int count = game.getLegalMoves(game.getTurn(), moveLists[0]);
+                if (count > 0) {
+                    pv[0][0] = moveLists[0][0];
+                    pvLength[0] = 1;
+                }
+                score = evaluator.evaluate(game);
+            }
+            List<int[]> line = new ArrayList<>();
+            for (int i = 0; i < pvLength[0]; i++)
+                line.add(Moves.toArray(pv[0][i]));
+            rootBest = (pvLength[0] > 0) ? pv[0][0] : Moves.NONE;
+            result = new SearchResult(line.isEmpty() ? null : line.get(0), score, depth, nodes,
+                    System.nanoTime() - start, line);
+            if (listener != null)
+                listener.accept(result);
+            if (aborted || rootBest == Moves.NONE || isMateScore(score))
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Picks a book move for the position, reported as a depth 0 result.
+     * @return The result, or null if there is no book or the position is not in it
+     */
+    SearchResult bookResult(long start) {
+        if (book == null)
+            return null;
+        int move = book.choose(game, bookRandom);
+        if (move == Moves.NONE)
+            return null;
+        List<int[]> line = Collections.singletonList(Moves.toArray(move));
+        SearchResult result = new SearchResult(line.get(0), 0, 0, 0, System.nanoTime() - start, line);
+        if (listener != null)
+            listener.accept(result);
+        return result;
+    }
+
+    private boolean skipsDepth(int depth) {
+        if (helper == 0 || depth == 1)
+            return false;
+        int i = (helper - 1) % SKIP_SIZE.length;
+        return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (depth <= 0 || ply >= MAX_PLY)
+            return quiesce(ply, alpha, beta);
+        if (++nodes % CHECK_INTERVAL == 0)
+            checkLimits();
+        // a position seen once before on this line is scored as the draw it could be forced into
+        if (ply > 0 && (game.getHalfmoveClock() >= Game.FIFTY_MOVE_PLIES || game.isRepetition(2)
+                || game.isInsufficientMaterial()))
+            return 0;
+        if (tablebases != null && ply > 0 && game.getBoard().countPieces(Team.WHITE)
+                + game.getBoard().countPieces(Team.BLACK) <= Material.MAX_PIECES) {
+            int value = tablebases.probe(game);
+            if (value != Tablebases.UNKNOWN)
+                return tablebaseScore(value, ply);
+        }
+        long key = game.getHash();
+        long entry = table.probe(key);
+        int hashMove = Moves.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.getMove(entry);
+            if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha))
+                    return score;
+            }
+        }
+        int[] moves = moveLists[ply];
+        int count = game.getLegalMoves(game.getTurn(), moves);
+        if (count == 0) {
+            Piece king = game.getKing(game.getTurn());
+            boolean inCheck = king != null && !king.isCaptured() && game.inCheck(king, king.getX(), king.getY());
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(ply, count, (ply == 0 && rootBest != Moves.NONE) ? Moves.getSquares(rootBest) : hashMove);
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Moves.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(ply, i, count);
+            game.makeMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (aborted)
+                return best;
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta)
+                        break;
+                }
+            }
+        }
+        int bound = (best >= beta) ? TranspositionTable.LOWER
+                : (best > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    // mate scores count plies from the root, the table stores them counted from the position itself
+    private static int toTable(int score, int ply) {
+        return isMateScore(score) ? score + (score > 0 ? ply : -ply) : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return isMateScore(score) ? score - (score > 0 ? ply : -ply) : score;
+    }
+
+    /**
+     * Keeps searching captures until the position is quiet, so the evaluation is not taken in the
+     * middle of an exchange.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (++nodes % CHECK_INTERVAL == 0)
+            checkLimits();
+        int standPat = evaluator.evaluate(game);
+        if (standPat >= beta || ply >= MAX_PLY)
+            return standPat;
+        if (standPat > alpha)
+            alpha = standPat;
+        int[] moves = moveLists[ply];
+        int count = 0;
+        int generated = game.getLegalMoves(game.getTurn(), moves);
+        for (int i = 0; i < generated; i++)
+            if (Moves.isCapture(moves[i]))
+                moves[count++] = moves[i];
+        scoreMoves(ply, count, Moves.NONE);
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(ply, i, count);
+            game.makeMove(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (aborted)
+                return alpha;
+            if (score >= beta)
+                return score;
+            if (score > alpha)
+                alpha = score;
+        }
+        return alpha;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    /**
+     * Scores the moves of a ply for ordering: the move with the given squares first, then captures of
+     * the most valuable pieces by the least valuable attackers, then everything else.
+     */
+    private void scoreMoves(int ply, int count, int firstSquares) {
+        int[] moves = moveLists[ply];
+        int[] scores = orderScores[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (firstSquares != Moves.NONE && Moves.getSquares(move) == firstSquares)
+                scores[i] = Integer.MAX_VALUE;
+            else if (Moves.isCapture(move))
+                scores[i] = 10 * Evaluator.getValue(Moves.getCaptured(move)) - Evaluator.getValue(Moves.getMoved(move)) + 10_000;
+            else
+                scores[i] = 0;
+        }
+    }
+
+    /**
+     * Swaps the best scored of the remaining moves into place and returns it. Picking one at a time
+     * saves sorting moves that a cutoff never gets to.
+     */
+    private int pickMove(int ply, int index, int count) {
+        int[] moves = moveLists[ply];
+        int[] scores = orderScores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++)
+            if (scores[i] > scores[best])
+                best = i;
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private void checkLimits() {
+        if (stopRequested || nodes >= nodeLimit || System.nanoTime() >= deadline)
+            aborted = true;
+    }
+
+    /**
+     * @return True if the score means one side can force mate
+     */
+    public static boolean isMateScore(int score) {
+        return Math.abs(score) >= MATE_BOUND;
+    }
+
+    /**
+     * Turns a tablebase result into a score, with mates as far away as the table says.
+     */
+    private static int tablebaseScore(int value, int ply) {
+        if (Tablebase.isWin(value))
+            return MATE - ply - 2 * Tablebase.getDistance(value) + 1;
+        if (Tablebase.isLoss(value))
+            return -MATE + ply + 2 * Tablebase.getDistance(value);
+        return 0;
+    }
+
+    /**
+     * @return Moves until mate for a mate score, negative when the side to move is getting mated
+     */
+    public static int getMateDistance(int score) {
+        int plies = MATE - Math.abs(score);
+        return (score > 0) ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    /**
+     * Searches the starting position of a game type from the command line.
+     * Arguments: "standard" or "custom", then the time budget in milliseconds.
+     */
+    public static void main(String[] args) {
+        Game game = new Game((args.length > 0 && args[0].equalsIgnoreCase("custom")) ? GameType.CUSTOM : GameType.STANDARD);
+        long millis = (args.length > 1) ? Long.parseLong(args[1]) : 5000;
+        Search search = new Search(game);
+        search.setListener(result -> System.out.println(result.toString(game.getBoard())));
+        SearchResult result = search.search(MAX_PLY, Long.MAX_VALUE, millis);
+        int[] best = result.getBestMove();
+        System.out.println("bestmove " + game.getBoard().getSquareName(best[0], best[1])
+                + game.getBoard().getSquareName(best[2], best[3]));
+        TranspositionTable table = search.getTable();
+        System.out.printf("table hits %.1f%% fill %.1f%%%n", table.getHitRate() * 100, table.getFillRate() * 100);
+    }
+}
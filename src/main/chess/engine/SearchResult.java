@@ -0,0 +1,85 @@
+package chess.engine;
+
+import chess.Board;
+
+import java.util.List;
+
+/**
+ * What a search found: the best move, its score, and how much work it took.
+ * Moves are stored as {fromX, fromY, toX, toY}.
+ * @author Ryan Gisleson
+ */
+public class SearchResult {
+
+    private final int[] bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long nanos;
+    private final List<int[]> principalVariation;
+
+    public SearchResult(int[] bestMove, int score, int depth, long nodes, long nanos, List<int[]> principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * @return The best move found, null if the side to move has no legal move
+     */
+    public int[] getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return Score in centipawns for the side to move, see Search.isMateScore for mates
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMillis() {
+        return nanos / 1_000_000;
+    }
+
+    public long getNodesPerSecond() {
+        return (nanos == 0) ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+
+    /**
+     * @return The line of best play the search expects, starting with the best move
+     */
+    public List<int[]> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    /**
+     * Formats the result as one line, with moves named by their squares on the given board.
+     */
+    public String toString(Board board) {
+        StringBuilder line = new StringBuilder();
+        line.append("depth ").append(depth);
+        if (Search.isMateScore(score))
+            line.append(" mate ").append(Search.getMateDistance(score));
+        else
+            line.append(" score ").append(score);
+        line.append(" nodes ").append(nodes)
+                .append(" nps ").append(getNodesPerSecond())
+                .append(" time ").append(getMillis())
+                .append(" pv");
+        for (int[] move : principalVariation)
+            line.append(' ').append(board.getSquareName(move[0], move[1])).append(board.getSquareName(move[2], move[3]));
+        return line.toString();
+    }
+}
@@ -0,0 +1,173 @@
+package chess.engine;
+
+import chess.Moves;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size cache of searched positions, keyed by the Board hash, that many search threads can share
+ * without locking. Each entry is two longs in one flat array: the key XORed with the data, then the data.
+ * A reader only trusts an entry when the two XOR back to its key, so entries torn by two threads writing
+ * the same slot at once read as misses instead of as wrong positions.
+ * <p>
+ * The data packs the squares of the best move (see Moves.getSquares), the score, the depth, the bound and
+ * the age of the search that stored it. Deeper entries are kept over shallower ones, unless they are from an
+ * older search.
+ * @author Ryan Gisleson
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 1; // score is exact
+    public static final int LOWER = 2; // score is at least this, the search failed high
+    public static final int UPPER = 3; // score is at most this, the search failed low
+
+    private static final int MOVE_MASK = 0xFFFF;
+    private static final int SCORE_SHIFT = 16;
+    private static final int SCORE_BITS = 18;
+    private static final int SCORE_OFFSET = 1 << (SCORE_BITS - 1);
+    private static final int DEPTH_SHIFT = 34;
+    private static final int BOUND_SHIFT = 42;
+    private static final int AGE_SHIFT = 44;
+    private static final int AGE_MASK = 0x3F;
+    private static final int FILL_SAMPLE = 1000; // entries looked at for the fill rate
+
+    private final long[] table;
+    private final long mask;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private volatile int age;
+
+    /**
+     * Creates a table taking up at most the given memory, rounded down to a power of two entries.
+     * @param megabytes Size in MB, at least 1
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB.");
+        long entries = Long.highestOneBit(megabytes * 1024L * 1024L / 16);
+        if (entries * 2 > Integer.MAX_VALUE - 8)
+            entries = 1L << 29;
+        table = new long[(int) (entries * 2)];
+        mask = entries - 1;
+    }
+
+    /**
+     * Looks up a position.
+     * @param key The position hash
+     * @return The packed entry, read it with the static getters, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        int index = (int) (key & mask) << 1;
+        long check = table[index];
+        long data = table[index + 1];
+        probes.increment();
+        if ((check ^ data) != key || data == 0)
+            return 0;
+        hits.increment();
+        return data;
+    }
+
+    /**
+     * Stores a searched position, unless the slot holds a deeper search of the current age.
+     * @param key The position hash
+     * @param move The best move found as a packed move, or Moves.NONE
+     * @param score The score, with mate scores relative to this position
+     * @param depth The depth searched from here
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) (key & mask) << 1;
+        long oldData = table[index + 1];
+        boolean sameKey = (table[index] ^ oldData) == key;
+        if (oldData != 0 && getAge(oldData) == age && depth < getDepth(oldData))
+            return;
+        int squares = Moves.getSquares(move);
+        if (move == Moves.NONE && sameKey)
+            squares = (int) (oldData & MOVE_MASK); // keep the move an earlier search found here
+        long data = squares
+                | (long) (score + SCORE_OFFSET) << SCORE_SHIFT
+                | (long) Math.min(depth, 0xFF) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) age << AGE_SHIFT;
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier ones are replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * Empties the table and resets its statistics.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        probes.reset();
+        hits.reset();
+    }
+
+    /**
+     * @return The squares of the stored best move, compare with Moves.getSquares, or Moves.NONE
+     */
+    public static int getMove(long entry) {
+        return (int) (entry & MOVE_MASK);
+    }
+
+    public static int getScore(long entry) {
+        return (int) ((entry >>> SCORE_SHIFT) & ((1L << SCORE_BITS) - 1)) - SCORE_OFFSET;
+    }
+
+    public static int getDepth(long entry) {
+        return (int) ((entry >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int getBound(long entry) {
+        return (int) ((entry >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int getAge(long entry) {
+        return (int) ((entry >>> AGE_SHIFT) & AGE_MASK);
+    }
+
+    /**
+     * @return Number of entries the table can hold
+     */
+    public int getCapacity() {
+        return table.length / 2;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Fraction of probes that found their position, 0 to 1
+     */
+    public double getHitRate() {
+        long count = probes.sum();
+        return (count == 0) ? 0 : (double) hits.sum() / count;
+    }
+
+    /**
+     * Estimates how full the table is from the first entries, counting only the current search.
+     * @return Fraction of entries in use, 0 to 1
+     */
+    public double getFillRate() {
+        int sample = Math.min(FILL_SAMPLE, getCapacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[2 * i + 1];
+            if (data != 0 && getAge(data) == age)
+                used++;
+        }
+        return (double) used / sample;
+    }
+}
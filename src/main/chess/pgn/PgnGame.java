@@ -0,0 +1,98 @@
+package chess.pgn;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One game read from PGN: its tags, its moves as packed moves (see Moves) and its result.
+ * Moves are kept as ints rather than SAN so replaying them needs no more parsing.
+ * A game with a move that could not be read keeps the moves before it and says why in getError.
+ * @author Ryan Gisleson
+ */
+public final class PgnGame {
+
+    private final Map<String, String> tags;
+    private final int[] moves;
+    private final String result;
+    private final String error;
+
+    /**
+     * @param tags Tag pairs in file order, kept as given
+     * @param moves Packed moves from the start position
+     * @param result "1-0", "0-1", "1/2-1/2" or "*"
+     * @param error Why reading stopped early, or null if every move was read
+     */
+    public PgnGame(Map<String, String> tags, int[] moves, String result, String error) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.moves = moves;
+        this.result = result;
+        this.error = error;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * @return The tag's value, or null if the game does not have it
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * @return The packed move played at the given ply, from 0
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    /**
+     * @return Copy of every move in order
+     */
+    public int[] getMoves() {
+        return Arrays.copyOf(moves, moves.length);
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    /**
+     * Sets up the position the game started from, the FEN tag if it has one and the standard setup otherwise.
+     * @return New game with no moves played
+     * @throws IllegalArgumentException If the FEN tag is not a position
+     */
+    public Game startPosition() {
+        String fen = tags.get("FEN");
+        return (fen != null) ? Fen.parse(fen) : new Game(GameType.STANDARD);
+    }
+
+    /**
+     * Plays the game's moves from its start position.
+     * @return New game at the final position, every move can be taken back with unmakeMove
+     */
+    public Game replay() {
+        Game game = startPosition();
+        for (int move : moves)
+            game.makeMove(move);
+        return game;
+    }
+}
@@ -0,0 +1,380 @@
+package chess.pgn;
+
+import chess.Fen;
+import chess.Game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads PGN games one at a time in a single pass, from a file channel or from a buffer such as a
+ * memory mapped file. Only the game being read is held in memory, so files of any size can be read.
+ * Moves are checked for legality as they are read, using one Game that is
+ * set up again for every game, so each game comes out as packed moves ready to replay.
+ * Comments, variations and annotations are skipped. A game with a move that cannot be played, like
+ * castling or a promotion, is still returned with the moves before it and an error, see PgnGame.
+ * Tag values are read as UTF-8.
+ * @author Ryan Gisleson
+ */
+public class PgnReader implements Iterator<PgnGame> {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int SCAN_SIZE = 1 << 16;
+
+    private final FileChannel channel; // null when reading from a buffer
+    private long position; // next byte of the channel to read
+    private final long end;
+    private final ByteBuffer buffer;
+
+    private byte[] token = new byte[256];
+    private int tokenLength;
+    private Game game = new Game();
+    private int[] moves = new int[256];
+    private PgnGame next; // read ahead by hasNext
+
+    /**
+     * Reads a whole file through its channel. The channel is not closed by the reader.
+     */
+    public PgnReader(FileChannel channel) throws IOException {
+        this(channel, 0, channel.size());
+    }
+
+    /**
+     * Reads the games in part of a file. The channel is only read at explicit positions and never moved,
+     * so readers on different threads can share one channel.
+     * @param start Offset of the first game
+     * @param end Offset just past the last game
+     */
+    public PgnReader(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.limit(0);
+    }
+
+    /**
+     * Reads the games in a buffer, from its position to its limit. The buffer itself is not changed.
+     */
+    public PgnReader(ByteBuffer buffer) {
+        this.channel = null;
+        this.end = 0;
+        this.buffer = buffer.slice();
+    }
+
+    /**
+     * Maps a whole file into memory and reads it from there.
+     * @throws IllegalArgumentException If the file is 2GB or more, which one buffer cannot map
+     */
+    public static PgnReader map(FileChannel channel) throws IOException {
+        if (channel.size() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cannot map " + channel.size() + " bytes, read the channel instead.");
+        return new PgnReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+
+    /**
+     * Reads the games of a file in order. Close the stream to close the file.
+     */
+    public static Stream<PgnGame> stream(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * Reads the games of a file on several threads. The file is cut into parts at game boundaries and every
+     * part gets its own reader, so games come out in file order only if the stream is kept ordered.
+     * Close the stream to close the file.
+     */
+    public static Stream<PgnGame> parallelStream(Path path) throws IOException {
+        return open(path, true);
+    }
+
+    private static Stream<PgnGame> open(Path path, boolean parallel) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return StreamSupport.stream(new PgnSpliterator(channel, 0, channel.size()), parallel).onClose(() -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The rest of this reader's games as a stream, read lazily
+     */
+    public Stream<PgnGame> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Finds where the next game starts, a '[' at the start of a line right after a blank line.
+     * @param from Offset to start looking at
+     * @param end Offset to stop looking at
+     * @return Offset of the '[', or end if there is none
+     */
+    static long nextGameStart(FileChannel channel, long from, long end) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        int newlines = 0; // line breaks since the last character that was not a space
+        long offset = from;
+        while (offset < end) {
+            scan.clear();
+            if (end - offset < SCAN_SIZE)
+                scan.limit((int) (end - offset));
+            int read = channel.read(scan, offset);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                byte c = scan.get(i);
+                if (c == '[' && newlines >= 2)
+                    return offset + i;
+                if (c == '\n')
+                    newlines++;
+                else if (c != '\r' && c != ' ' && c != '\t')
+                    newlines = 0;
+            }
+            offset += read;
+        }
+        return end;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readGame();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public PgnGame next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        PgnGame game = next;
+        next = null;
+        return game;
+    }
+
+    private PgnGame readGame() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        int count = 0;
+        String result = null;
+        String error = null;
+        boolean movetext = false;
+        int c;
+        while ((c = skipSpaces(true)) != -1) {
+            if (c == '[') {
+                if (movetext)
+                    break; // the next game, this one had no result
+                read();
+                readTag(tags);
+                continue;
+            }
+            if (!movetext) {
+                movetext = true;
+                error = setUp(tags.get("FEN"));
+            }
+            read();
+            if (c == '{') {
+                skipPast('}');
+            } else if (c == ';' || c == '%') {
+                skipPast('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readToken(c); // numeric annotation
+            } else if (c == '*') {
+                result = "*";
+                break;
+            } else {
+                readToken(c);
+                if (c >= '0' && c <= '9') {
+                    result = readResult();
+                    if (result != null)
+                        break;
+                    if (isNumber())
+                        continue; // move number, its dots were skipped as spaces
+                }
+                if (error != null)
+                    continue; // keep reading to the end of the game
+                String san = new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1);
+                try {
+                    int move = San.parse(game, san);
+                    game.makeMove(move);
+                    if (count == moves.length)
+                        moves = Arrays.copyOf(moves, count * 2);
+                    moves[count++] = move;
+                } catch (IllegalArgumentException e) {
+                    error = "Ply " + (count + 1) + ": " + e.getMessage();
+                }
+            }
+        }
+        if (!movetext && tags.isEmpty())
+            return null;
+        if (result == null)
+            result = tags.getOrDefault("Result", "*");
+        return new PgnGame(tags, Arrays.copyOf(moves, count), result, error);
+    }
+
+    /**
+     * Sets the reused game up at the start position, the standard setup unless the game has a FEN tag.
+     * @return Null, or why the position could not be set up
+     */
+    private String setUp(String fen) {
+        if (fen == null)
+            fen = Fen.STANDARD;
+        try {
+            Fen.load(game, fen);
+        } catch (IllegalArgumentException e) {
+            try {
+                game = Fen.parse(fen); // a board of another size
+            } catch (IllegalArgumentException bad) {
+                return "Bad FEN tag: " + bad.getMessage();
+            }
+        }
+        return null;
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException {
+        skipSpaces(false);
+        tokenLength = 0;
+        int c;
+        while ((c = peek()) != -1 && c > ' ' && c != '"' && c != ']')
+            append(read());
+        String name = new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1);
+        tokenLength = 0;
+        if (skipSpaces(false) == '"') {
+            read();
+            while ((c = read()) != -1 && c != '"') {
+                if (c == '\\' && (c = read()) == -1)
+                    break;
+                append(c);
+            }
+        }
+        String value = new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+        skipPast(']');
+        if (!name.isEmpty())
+            tags.put(name, value);
+    }
+
+    /**
+     * Reads a movetext token into the token buffer, up to a space or a character that starts something else.
+     * @param first The token's first character, already read
+     */
+    private void readToken(int first) throws IOException {
+        tokenLength = 0;
+        append(first);
+        int c;
+        while ((c = peek()) > ' ' && c != '.' && c != '{' && c != '}' && c != '(' && c != ')'
+                && c != ';' && c != '[' && c != '$')
+            append(read());
+    }
+
+    private String readResult() {
+        switch (tokenLength) {
+            case 3:
+                if (token[1] == '-' && token[0] == '1' && token[2] == '0') return "1-0";
+                if (token[1] == '-' && token[0] == '0' && token[2] == '1') return "0-1";
+                return null;
+            case 7:
+                return new String(token, 0, 7, StandardCharsets.ISO_8859_1).equals("1/2-1/2") ? "1/2-1/2" : null;
+            default:
+                return null;
+        }
+    }
+
+    private boolean isNumber() {
+        for (int i = 0; i < tokenLength; i++)
+            if (token[i] < '0' || token[i] > '9')
+                return false;
+        return true;
+    }
+
+    private void append(int c) {
+        if (tokenLength == token.length)
+            token = Arrays.copyOf(token, token.length * 2);
+        token[tokenLength++] = (byte) c;
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = read()) != -1) {
+            if (c == '(')
+                depth++;
+            else if (c == ')')
+                depth--;
+            else if (c == '{')
+                skipPast('}');
+            else if (c == ';')
+                skipPast('\n');
+        }
+    }
+
+    private void skipPast(int stop) throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != stop) {
+            // skip
+        }
+    }
+
+    /**
+     * Skips white space, and in movetext the dots after move numbers too.
+     * @return The next character, not read yet, or -1 at the end
+     */
+    private int skipSpaces(boolean dots) throws IOException {
+        int c;
+        while ((c = peek()) != -1 && (c <= ' ' || (dots && c == '.')))
+            read();
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill())
+            return -1;
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    private int read() throws IOException {
+        if (!buffer.hasRemaining() && !fill())
+            return -1;
+        return buffer.get() & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        if (channel == null || position >= end)
+            return false;
+        buffer.clear();
+        if (end - position < buffer.capacity())
+            buffer.limit((int) (end - position));
+        int read = channel.read(buffer, position);
+        buffer.flip();
+        if (read <= 0)
+            return false;
+        position += read;
+        return true;
+    }
+}
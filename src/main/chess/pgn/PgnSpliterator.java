@@ -0,0 +1,75 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splits a PGN file into parts at game boundaries so parallel streams can read the parts on separate
+ * threads. A part is only split before reading starts, and parts under a couple of megabytes are not split.
+ * @author Ryan Gisleson
+ */
+final class PgnSpliterator implements Spliterator<PgnGame> {
+
+    private static final long MIN_SPLIT = 1 << 20;
+    private static final long BYTES_PER_GAME = 1000; // rough size of a game, only for the size estimate
+
+    private final FileChannel channel;
+    private long start;
+    private final long end;
+    private final long minSplit;
+    private PgnReader reader;
+
+    PgnSpliterator(FileChannel channel, long start, long end) {
+        this(channel, start, end, MIN_SPLIT);
+    }
+
+    /**
+     * @param minSplit Smallest part to split in two, in bytes
+     */
+    PgnSpliterator(FileChannel channel, long start, long end, long minSplit) {
+        this.channel = channel;
+        this.start = start;
+        this.end = end;
+        this.minSplit = minSplit;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super PgnGame> action) {
+        if (reader == null)
+            reader = new PgnReader(channel, start, end);
+        if (!reader.hasNext())
+            return false;
+        action.accept(reader.next());
+        return true;
+    }
+
+    @Override
+    public Spliterator<PgnGame> trySplit() {
+        if (reader != null || end - start < 2 * minSplit)
+            return null;
+        long boundary;
+        try {
+            boundary = PgnReader.nextGameStart(channel, start + (end - start) / 2, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (boundary >= end)
+            return null;
+        PgnSpliterator prefix = new PgnSpliterator(channel, start, boundary, minSplit);
+        start = boundary;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (end - start) / BYTES_PER_GAME + 1;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,131 @@
+package chess.pgn;
+
+import chess.Fen;
+import chess.Game;
+import chess.Team;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes games as PGN: the seven standard tags first, "?" where a value is missing, then any other tags,
+ * then the moves in SAN wrapped at 80 columns and the result. Games that do not start from the standard
+ * setup get SetUp and FEN tags.
+ * @author Ryan Gisleson
+ */
+public class PgnWriter implements Flushable {
+
+    private static final int LINE_LENGTH = 80;
+    private static final String[] ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+
+    /**
+     * @param out Where to write, wrap it in a BufferedWriter when writing to a file
+     */
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a game read by PgnReader, with its tags and result.
+     */
+    public void write(PgnGame game) throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>(game.getTags());
+        tags.put("Result", game.getResult());
+        write(game.startPosition(), game.getMoves(), tags);
+    }
+
+    /**
+     * Writes the moves of a game's history, everything that can be taken back with unmakeMove.
+     * The game is taken back to its start and played forward again, so it ends where it was.
+     * @param game The game to write
+     * @param tags Tags to write, the result is "*" unless there is a Result tag
+     */
+    public void write(Game game, Map<String, String> tags) throws IOException {
+        int plies = game.getPly();
+        int[] moves = new int[plies];
+        for (int i = 0; i < plies; i++)
+            moves[i] = game.getPlyMove(i);
+        game.undoToPly(0);
+        write(game, moves, tags);
+    }
+
+    /**
+     * Writes moves played forward from the game's position, leaving the game after the last move.
+     */
+    private void write(Game game, int[] moves, Map<String, String> tags) throws IOException {
+        int played = 0;
+        try {
+            String result = tags.getOrDefault("Result", "*");
+            for (String name : ROSTER)
+                writeTag(name, name.equals("Result") ? result : tags.getOrDefault(name, "?"));
+            String fen = Fen.write(game);
+            if (!fen.equals(Fen.STANDARD)) {
+                writeTag("SetUp", "1");
+                writeTag("FEN", fen);
+            }
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                String name = tag.getKey();
+                if (!isRosterTag(name) && !name.equals("SetUp") && !name.equals("FEN"))
+                    writeTag(name, tag.getValue());
+            }
+            out.write('\n');
+
+            int number = 1;
+            line.setLength(0);
+            for (int i = 0; i < moves.length; i++) {
+                if (game.getTurn() == Team.WHITE)
+                    append(number + ".");
+                else if (i == 0)
+                    append(number + "...");
+                append(San.write(game, moves[i]));
+                game.makeMove(moves[i]);
+                played++;
+                if (game.getTurn() == Team.WHITE)
+                    number++;
+            }
+            append(result);
+            out.write(line.toString());
+            out.write("\n\n");
+        } finally {
+            while (played < moves.length)
+                game.makeMove(moves[played++]);
+        }
+    }
+
+    private static boolean isRosterTag(String name) {
+        for (String tag : ROSTER)
+            if (tag.equals(name))
+                return true;
+        return false;
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        out.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        out.write("\"]\n");
+    }
+
+    private void append(String token) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() > LINE_LENGTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0)
+            line.append(' ');
+        line.append(token);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
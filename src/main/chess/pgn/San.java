@@ -0,0 +1,145 @@
+package chess.pgn;
+
+import chess.Board;
+import chess.Game;
+import chess.Moves;
+import chess.Piece;
+import chess.PieceType;
+
+/**
+ * Standard algebraic notation, the move format of PGN, like "Nf3", "exd5" or "Rad1+".
+ * Piece letters are the PieceType letters, so archbishop moves start with 'A' and squirrel moves with 'S'.
+ * Moves are read by checking which pieces of the named type can legally reach the target square, without
+ * generating every legal move, and long forms like "Ng1f3" or "e2-e4" are accepted too.
+ * There is no castling or promotion in this game, so those are rejected.
+ * @author Ryan Gisleson
+ */
+public final class San {
+
+    private San() {}
+
+    /**
+     * Finds the legal move a SAN string names, for the side to move.
+     * @param game Game in the position before the move
+     * @param san The move, check marks and annotations like "!?" are allowed
+     * @return The packed move, see Moves
+     * @throws IllegalArgumentException If the string is not a legal move, or names more than one
+     */
+    public static int parse(Game game, String san) {
+        Board board = game.getBoard();
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0)
+            end--;
+        if (end == 0)
+            throw new IllegalArgumentException("Empty move \"" + san + "\".");
+        if (san.startsWith("O-O") || san.startsWith("0-0"))
+            throw new IllegalArgumentException("Castling is not supported: " + san);
+        if (san.indexOf('=') >= 0 || Character.isUpperCase(san.charAt(end - 1)))
+            throw new IllegalArgumentException("Promotion is not supported: " + san);
+
+        int start = 0;
+        PieceType type = PieceType.PAWN;
+        if (Character.isUpperCase(san.charAt(0))) {
+            type = PieceType.fromLetter(san.charAt(0));
+            if (type == null)
+                throw new IllegalArgumentException("Unknown piece letter in \"" + san + "\".");
+            start = 1;
+        }
+        // the target square is the last file letter and the digits after it
+        int rankStart = end;
+        while (rankStart > start && Character.isDigit(san.charAt(rankStart - 1)))
+            rankStart--;
+        int file = rankStart - 1;
+        if (rankStart == end || file < start || san.charAt(file) < 'a' || san.charAt(file) > 'z')
+            throw new IllegalArgumentException("No target square in \"" + san + "\".");
+        int toX = san.charAt(file) - 'a';
+        int toY = board.getHeight() - Integer.parseInt(san.substring(rankStart, end));
+        if (!board.isValidSpace(toX, toY))
+            throw new IllegalArgumentException("Target square off the board in \"" + san + "\".");
+
+        // anything before the target square narrows down where the piece comes from
+        int fromX = -1;
+        int fromY = -1;
+        for (int i = start; i < file; i++) {
+            char c = san.charAt(i);
+            if (c == 'x' || c == ':' || c == '-')
+                continue; // capture marks and the dash of long notation
+            if (c >= 'a' && c <= 'z') {
+                fromX = c - 'a';
+            } else if (Character.isDigit(c)) {
+                int rank = 0;
+                while (i < file && Character.isDigit(san.charAt(i)))
+                    rank = rank * 10 + (san.charAt(i++) - '0');
+                i--;
+                fromY = board.getHeight() - rank;
+            } else {
+                throw new IllegalArgumentException("Unexpected '" + c + "' in \"" + san + "\".");
+            }
+        }
+
+        Piece found = null;
+        for (Piece piece : game.getPieces(game.getTurn())) {
+            if (piece == null) break;
+            if (piece.isCaptured() || piece.getType() != type || (fromX >= 0 && piece.getX() != fromX)
+                    || (fromY >= 0 && piece.getY() != fromY) || !game.isLegalMove(piece, toX, toY))
+                continue;
+            if (found != null)
+                throw new IllegalArgumentException("Ambiguous move \"" + san + "\".");
+            found = piece;
+        }
+        if (found == null)
+            throw new IllegalArgumentException("Illegal move \"" + san + "\".");
+        return Moves.of(board, found.getX(), found.getY(), toX, toY);
+    }
+
+    /**
+     * Names a legal move in SAN, with only as much of the from square as it takes to tell it apart
+     * and "+" or "#" when it gives check or mate.
+     * @param game Game in the position before the move, it is the same again afterwards
+     * @param move A legal packed move of the side to move
+     * @return The move, like "Nbd7" or "Qxf7#"
+     * @throws IllegalArgumentException If the moving piece has no PieceType and so no letter
+     */
+    public static String write(Game game, int move) {
+        Board board = game.getBoard();
+        PieceType type = Moves.getMoved(move);
+        if (type == null)
+            throw new IllegalArgumentException("Pieces without a type have no SAN letter.");
+        int fromX = Moves.getFromX(move);
+        int fromY = Moves.getFromY(move);
+        int toX = Moves.getToX(move);
+        int toY = Moves.getToY(move);
+        StringBuilder san = new StringBuilder(8);
+        if (type != PieceType.PAWN) {
+            san.append(type.getLetter());
+            boolean other = false;
+            boolean sameFile = false;
+            boolean sameRank = false;
+            for (Piece piece : game.getPieces(game.getTurn())) {
+                if (piece == null) break;
+                if (piece.isCaptured() || piece.getType() != type || (piece.getX() == fromX && piece.getY() == fromY)
+                        || !game.isLegalMove(piece, toX, toY))
+                    continue;
+                other = true;
+                sameFile |= piece.getX() == fromX;
+                sameRank |= piece.getY() == fromY;
+            }
+            if (other && (!sameFile || sameRank))
+                san.append((char) ('a' + fromX));
+            if (other && sameFile)
+                san.append(board.getHeight() - fromY);
+        } else if (Moves.isCapture(move)) {
+            san.append((char) ('a' + fromX));
+        }
+        if (Moves.isCapture(move))
+            san.append('x');
+        san.append(board.getSquareName(toX, toY));
+
+        game.makeMove(move);
+        Piece king = game.getKing(game.getTurn());
+        if (king != null && !king.isCaptured() && game.inCheck(king, king.getX(), king.getY()))
+            san.append(game.hasLegalMoves(game.getTurn()) ? '+' : '#');
+        game.unmakeMove();
+        return san.toString();
+    }
+}
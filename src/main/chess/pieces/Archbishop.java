@@ -1,5 +1,6 @@
 package chess.pieces;
 
+import chess.Bitboards;
 import chess.Board;
 import chess.Team;
 import chess.Piece;
@@ -23,16 +24,18 @@ public class Archbishop extends Piece {
     public boolean canMove(Board board, int x, int y) {
         if (!super.canMove(board, x, y))
             return false;
-        // test if a knight could make move
-        Piece dummyKnight = new Knight(this.getTeam());
-        dummyKnight.setX(this.getX());
-        dummyKnight.setY(this.getY());
-        // test if a bishop could make move
-        Piece dummyBishop = new Bishop(this.getTeam());
-        dummyBishop.setX(this.getX());
-        dummyBishop.setY(this.getY());
-
-        return dummyKnight.canMove(board, x, y) || dummyBishop.canMove(board, x, y);
+        // moves as either a knight or a bishop
+        return Movement.isKnightLeap(this, x, y) || Movement.canSlideDiagonal(board, this, x, y);
     }
 
+    @Override
+    public int[][] getMoves(Board board) {
+        if (Movement.hasMasks(board, this))
+            return Movement.toMoves(board, this, Bitboards.bishopAttacks(Movement.square(this), board.getOccupied())
+                    | Bitboards.knightAttacks(Movement.square(this)));
+        int[] squares = new int[Movement.maxSlide(board) + Movement.KNIGHT.length];
+        int count = Movement.slide(board, this, Movement.DIAGONAL, squares, 0);
+        count = Movement.leap(board, this, Movement.KNIGHT, squares, count);
+        return Movement.toMoves(board, squares, count);
+    }
 }
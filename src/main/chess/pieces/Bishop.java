@@ -1,5 +1,6 @@
 package chess.pieces;
 
+import chess.Bitboards;
 import chess.Piece;
 import chess.Team;
 import chess.Board;
@@ -18,27 +19,15 @@ public class Bishop extends Piece {
     }
 
     public boolean canMove(Board board, int x, int y) {
-        if (!super.canMove(board, x, y))
-            return false;
-
-        int xVal = this.getX() - x;
-        int yVal = this.getY() - y;
-        // these are the same when point is on the diagonal of bishop
-        if (Math.abs(xVal) != Math.abs(yVal))
-            return false;
-
-        int xDir = (xVal < 0) ? 1 : -1; // xVal is negative when moving right
-        int yDir = (yVal < 0) ? 1 : -1; // yVal is negative when moving down
-        int i = this.getX() + xDir;
-        int j = this.getY() + yDir;
-        while (i != x && j != y) {
-            if (board.getPiece(i, j) != null)
-                return false; // path is blocked
-            i += xDir;
-            j += yDir;
-        }
-
-        return true;
+        return super.canMove(board, x, y) && Movement.canSlideDiagonal(board, this, x, y);
     }
 
+    @Override
+    public int[][] getMoves(Board board) {
+        if (Movement.hasMasks(board, this))
+            return Movement.toMoves(board, this, Bitboards.bishopAttacks(Movement.square(this), board.getOccupied()));
+        int[] squares = new int[Movement.maxSlide(board)];
+        int count = Movement.slide(board, this, Movement.DIAGONAL, squares, 0);
+        return Movement.toMoves(board, squares, count);
+    }
 }
@@ -1,5 +1,6 @@
 package chess.pieces;
 
+import chess.Bitboards;
 import chess.Board;
 import chess.Piece;
 import chess.Team;
@@ -18,8 +19,15 @@ public class King extends Piece {
     }
 
     public boolean canMove(Board board, int x, int y) {
-        int xVal = Math.abs(this.getX() - x);
-        int yVal = Math.abs(this.getY() - y);
-        return xVal <= 1 && yVal <= 1 && super.canMove(board, x, y);
+        return Movement.isKingStep(this, x, y) && super.canMove(board, x, y);
+    }
+
+    @Override
+    public int[][] getMoves(Board board) {
+        if (Movement.hasMasks(board, this))
+            return Movement.toMoves(board, this, Bitboards.kingAttacks(Movement.square(this)));
+        int[] squares = new int[Movement.KING.length];
+        int count = Movement.leap(board, this, Movement.KING, squares, 0);
+        return Movement.toMoves(board, squares, count);
     }
 }
@@ -1,5 +1,6 @@
 package chess.pieces;
 
+import chess.Bitboards;
 import chess.Team;
 import chess.Board;
 import chess.Piece;
@@ -18,11 +19,15 @@ public class Knight extends Piece {
     }
 
     public boolean canMove(Board board, int x, int y) {
-        if (!super.canMove(board, x, y))
-            return false;
-        int xVal = Math.abs(this.getX() - x);
-        int yVal = Math.abs(this.getY() - y);
-        // matches knight movement rules
-        return (xVal == 2 && yVal == 1) || (xVal == 1 && yVal == 2);
+        return super.canMove(board, x, y) && Movement.isKnightLeap(this, x, y);
+    }
+
+    @Override
+    public int[][] getMoves(Board board) {
+        if (Movement.hasMasks(board, this))
+            return Movement.toMoves(board, this, Bitboards.knightAttacks(Movement.square(this)));
+        int[] squares = new int[Movement.KNIGHT.length];
+        int count = Movement.leap(board, this, Movement.KNIGHT, squares, 0);
+        return Movement.toMoves(board, squares, count);
     }
 }
@@ -0,0 +1,187 @@
+package chess.pieces;
+
+import chess.Bitboards;
+import chess.Board;
+import chess.Piece;
+
+/**
+ * Shared move rules for the standard piece shapes.
+ * The can* checks test a single target square without creating any objects, so compound
+ * pieces can combine them instead of asking throwaway pieces.
+ * For generating moves, leaping pieces step once by each offset, sliding pieces walk each direction until blocked.
+ * Squares are collected as x * height + y so they can be put back into the same
+ * column-by-column order that Piece.getMoves scans in.
+ * On boards with bitboards the moves come straight from the attack masks instead.
+ * @author Ryan Gisleson
+ */
+final class Movement {
+
+    static final int[][] ORTHOGONAL = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    static final int[][] DIAGONAL = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    static final int[][] KNIGHT = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    static final int[][] KING = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+    static final int[][] SQUIRREL = {{-2, -2}, {-2, -1}, {-2, 0}, {-2, 1}, {-2, 2}, {-1, -2}, {-1, 2}, {0, -2},
+                                     {0, 2}, {1, -2}, {1, 2}, {2, -2}, {2, -1}, {2, 0}, {2, 1}, {2, 2}};
+
+    private Movement() {}
+
+    /**
+     * Check if the piece could slide along a row or column to the target without jumping over anything.
+     * Does not check what is on the target square itself.
+     */
+    static boolean canSlideOrthogonal(Board board, Piece piece, int x, int y) {
+        int xVal = x - piece.getX();
+        int yVal = y - piece.getY();
+        if ((xVal != 0) == (yVal != 0))
+            return false; // not on the same row or column, or not moving at all
+        return isPathClear(board, piece, Integer.signum(xVal), Integer.signum(yVal), x, y);
+    }
+
+    /**
+     * Check if the piece could slide along a diagonal to the target without jumping over anything.
+     * Does not check what is on the target square itself.
+     */
+    static boolean canSlideDiagonal(Board board, Piece piece, int x, int y) {
+        int xVal = x - piece.getX();
+        int yVal = y - piece.getY();
+        if (xVal == 0 || Math.abs(xVal) != Math.abs(yVal))
+            return false;
+        return isPathClear(board, piece, Integer.signum(xVal), Integer.signum(yVal), x, y);
+    }
+
+    private static boolean isPathClear(Board board, Piece piece, int xDir, int yDir, int x, int y) {
+        int i = piece.getX() + xDir;
+        int j = piece.getY() + yDir;
+        while (i != x || j != y) {
+            if (board.getPiece(i, j) != null)
+                return false; // path is blocked
+            i += xDir;
+            j += yDir;
+        }
+        return true;
+    }
+
+    /**
+     * Check if the target is a knight's jump away.
+     */
+    static boolean isKnightLeap(Piece piece, int x, int y) {
+        int xVal = Math.abs(piece.getX() - x);
+        int yVal = Math.abs(piece.getY() - y);
+        return (xVal == 2 && yVal == 1) || (xVal == 1 && yVal == 2);
+    }
+
+    /**
+     * Check if the target is exactly two squares away in some direction, as the squirrel jumps.
+     */
+    static boolean isSquirrelLeap(Piece piece, int x, int y) {
+        int xVal = Math.abs(piece.getX() - x);
+        int yVal = Math.abs(piece.getY() - y);
+        return (xVal == 2 && yVal <= 2) || (xVal <= 2 && yVal == 2);
+    }
+
+    /**
+     * Check if the target is one of the eight neighbouring squares.
+     */
+    static boolean isKingStep(Piece piece, int x, int y) {
+        int xVal = Math.abs(piece.getX() - x);
+        int yVal = Math.abs(piece.getY() - y);
+        return xVal <= 1 && yVal <= 1 && (xVal | yVal) != 0;
+    }
+
+    /**
+     * Adds every square one offset away that is empty or holds an opposing piece.
+     * @return The new number of squares stored
+     */
+    static int leap(Board board, Piece piece, int[][] offsets, int[] squares, int count) {
+        for (int[] offset : offsets) {
+            int x = piece.getX() + offset[0];
+            int y = piece.getY() + offset[1];
+            if (board.isValidSpace(x, y) && !piece.isSameColor(board.getPiece(x, y)))
+                squares[count++] = x * board.getHeight() + y;
+        }
+        return count;
+    }
+
+    /**
+     * Walks each direction adding empty squares, stopping at the first piece and adding it if it is opposing.
+     * @return The new number of squares stored
+     */
+    static int slide(Board board, Piece piece, int[][] directions, int[] squares, int count) {
+        for (int[] dir : directions) {
+            int x = piece.getX() + dir[0];
+            int y = piece.getY() + dir[1];
+            while (board.isValidSpace(x, y)) {
+                Piece other = board.getPiece(x, y);
+                if (other == null) {
+                    squares[count++] = x * board.getHeight() + y;
+                } else {
+                    if (!piece.isSameColor(other))
+                        squares[count++] = x * board.getHeight() + y;
+                    break;
+                }
+                x += dir[0];
+                y += dir[1];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of squares a slider could reach from anywhere on the board, used to size buffers.
+     */
+    static int maxSlide(Board board) {
+        return 2 * (board.getWidth() + board.getHeight());
+    }
+
+    /**
+     * Whether the piece's moves can be read from the board's attack masks.
+     */
+    static boolean hasMasks(Board board, Piece piece) {
+        return board.hasBitboards() && board.isValidSpace(piece.getX(), piece.getY());
+    }
+
+    /**
+     * Square of the piece in the Bitboards layout.
+     */
+    static int square(Piece piece) {
+        return Bitboards.square(piece.getX(), piece.getY());
+    }
+
+    /**
+     * Converts an attack mask into the move array format used by Piece.getMoves,
+     * leaving out squares held by the piece's own team.
+     */
+    static int[][] toMoves(Board board, Piece piece, long attacks) {
+        // transposed so that the lowest bit is the next square in x then y order
+        long mask = Bitboards.transpose(attacks & ~board.getOccupied(piece.getTeam()));
+        int[][] moves = new int[Long.bitCount(mask)][];
+        for (int i = 0; mask != 0; i++) {
+            int square = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            moves[i] = new int[]{Bitboards.getY(square), Bitboards.getX(square)};
+        }
+        return moves;
+    }
+
+    /**
+     * Converts collected squares into the move array format used by Piece.getMoves.
+     * @param squares Squares encoded as x * height + y, no duplicates
+     * @param count Number of squares stored
+     */
+    static int[][] toMoves(Board board, int[] squares, int count) {
+        // insertion sort, move lists are short and mostly ordered already
+        for (int i = 1; i < count; i++) {
+            int square = squares[i];
+            int j = i - 1;
+            while (j >= 0 && squares[j] > square) {
+                squares[j + 1] = squares[j];
+                j--;
+            }
+            squares[j + 1] = square;
+        }
+        int[][] moves = new int[count][];
+        for (int i = 0; i < count; i++)
+            moves[i] = new int[]{squares[i] / board.getHeight(), squares[i] % board.getHeight()};
+        return moves;
+    }
+}
@@ -48,4 +48,28 @@ public class Pawn extends Piece {
         }
         return false; // shouldn't get here
     }
+
+    @Override
+    public int[][] getMoves(Board board) {
+        int[] squares = new int[4];
+        int count = 0;
+        int dir = (getTeam() == Team.WHITE) ? -1 : 1;
+        int startRow = (getTeam() == Team.WHITE) ? 6 : 1;
+        int x = getX();
+        int y = getY() + dir;
+        if (board.isValidSpace(x, y) && board.getPiece(x, y) == null) {
+            squares[count++] = x * board.getHeight() + y;
+            // two square move is only possible when the first square is free
+            if (getY() == startRow && board.isValidSpace(x, y + dir) && board.getPiece(x, y + dir) == null)
+                squares[count++] = x * board.getHeight() + y + dir;
+        }
+        for (int side = -1; side <= 1; side += 2) {
+            if (board.isValidSpace(x + side, y)) {
+                Piece other = board.getPiece(x + side, y);
+                if (other != null && !isSameColor(other))
+                    squares[count++] = (x + side) * board.getHeight() + y;
+            }
+        }
+        return Movement.toMoves(board, squares, count);
+    }
 }
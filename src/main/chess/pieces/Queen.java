@@ -1,5 +1,6 @@
 package chess.pieces;
 
+import chess.Bitboards;
 import chess.Piece;
 import chess.Team;
 import chess.Board;
@@ -20,15 +21,18 @@ public class Queen extends Piece {
     public boolean canMove(Board board, int x, int y) {
         if (!super.canMove(board, x, y))
             return false;
-        // test if a rook could make move
-        Piece dummyRook = new Rook(this.getTeam());
-        dummyRook.setX(this.getX());
-        dummyRook.setY(this.getY());
-        // test if a bishop could make move
-        Piece dummyBishop = new Bishop(this.getTeam());
-        dummyBishop.setX(this.getX());
-        dummyBishop.setY(this.getY());
+        // moves as either a rook or a bishop
+        return Movement.canSlideOrthogonal(board, this, x, y) || Movement.canSlideDiagonal(board, this, x, y);
+    }
 
-        return dummyRook.canMove(board, x, y) || dummyBishop.canMove(board, x, y);
+    @Override
+    public int[][] getMoves(Board board) {
+        if (Movement.hasMasks(board, this))
+            return Movement.toMoves(board, this, Bitboards.rookAttacks(Movement.square(this), board.getOccupied())
+                    | Bitboards.bishopAttacks(Movement.square(this), board.getOccupied()));
+        int[] squares = new int[2 * Movement.maxSlide(board)];
+        int count = Movement.slide(board, this, Movement.ORTHOGONAL, squares, 0);
+        count = Movement.slide(board, this, Movement.DIAGONAL, squares, count);
+        return Movement.toMoves(board, squares, count);
     }
 }
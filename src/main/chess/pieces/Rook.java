@@ -1,5 +1,6 @@
 package chess.pieces;
 
+import chess.Bitboards;
 import chess.Board;
 import chess.Piece;
 import chess.Team;
@@ -18,30 +19,15 @@ public class Rook extends Piece {
     }
 
     public boolean canMove(Board board, int x, int y) {
-        if (!super.canMove(board, x, y))
-            return false;
-        int xVal = this.getX() - x;
-        int yVal = this.getY() - y;
-        // if either [x/y]Val is 0 then rook is same column/row as specified point
-        if (xVal != 0 && yVal != 0)
-            return false;
-
-        // check all spaces between target point and current
-        if (xVal == 0) {
-            int dir = (yVal < 0) ? 1 : -1; // whether rook is moving up or down
-            for (int i = this.getY() + dir; i != y; i += dir) {
-                if (board.getPiece(x, i) != null)
-                    return false; // there is piece between the rook and target square
-            }
-        }
-        else { // yVal == 0
-            int dir = (xVal < 0) ? 1 : -1; // whether rook is moving up or down
-            for (int i = this.getX() + dir; i != x; i += dir) {
-                if (board.getPiece(i, y) != null)
-                    return false; // there is piece between the rook and target square
-            }
-        }
+        return super.canMove(board, x, y) && Movement.canSlideOrthogonal(board, this, x, y);
+    }
 
-        return true;
+    @Override
+    public int[][] getMoves(Board board) {
+        if (Movement.hasMasks(board, this))
+            return Movement.toMoves(board, this, Bitboards.rookAttacks(Movement.square(this), board.getOccupied()));
+        int[] squares = new int[Movement.maxSlide(board)];
+        int count = Movement.slide(board, this, Movement.ORTHOGONAL, squares, 0);
+        return Movement.toMoves(board, squares, count);
     }
 }
@@ -1,5 +1,6 @@
 package chess.pieces;
 
+import chess.Bitboards;
 import chess.Piece;
 import chess.Team;
 import chess.Board;
@@ -21,11 +22,16 @@ public class Squirrel extends Piece {
     }
 
     public boolean canMove(Board board, int x, int y) {
-        if (!super.canMove(board, x, y))
-            return false;
-        int xVal = Math.abs(this.getX() - x);
-        int yVal = Math.abs(this.getY() - y);
-        // matches cannot move further than 2 squares in any direction
-        return (xVal == 2 && yVal <= 2) || (xVal <= 2 && yVal == 2);
+        // can only land on squares exactly two away in some direction
+        return super.canMove(board, x, y) && Movement.isSquirrelLeap(this, x, y);
+    }
+
+    @Override
+    public int[][] getMoves(Board board) {
+        if (Movement.hasMasks(board, this))
+            return Movement.toMoves(board, this, Bitboards.squirrelAttacks(Movement.square(this)));
+        int[] squares = new int[Movement.SQUIRREL.length];
+        int count = Movement.leap(board, this, Movement.SQUIRREL, squares, 0);
+        return Movement.toMoves(board, squares, count);
     }
 }
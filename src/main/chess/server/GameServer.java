@@ -0,0 +1,212 @@
+package chess.server;
+
+import chess.GameType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts many games at once without a GUI, over a small JSON API on the loopback interface.
+ * <pre>
+ * POST   /games              new standard game, /games?type=custom for the custom pieces
+ * GET    /games/{id}         state of a game
+ * POST   /games/{id}/moves   play a move, body {"move":"e2e4"}
+ * DELETE /games/{id}         end a game
+ * </pre>
+ * Every request runs on its own virtual thread when the JDK has them. Older JDKs get a fixed pool of
+ * platform threads instead, since a thread per request does not scale there.
+ * @author Ryan Gisleson
+ */
+public class GameServer {
+
+    private static final Pattern MOVE = Pattern.compile("\"move\"\\s*:\\s*\"([a-z0-9]+)\"");
+    private static final int BACKLOG = 4096;
+
+    static {
+        // without TCP_NODELAY the response body waits on the client's delayed ack, about 40ms per request.
+        // The JDK server only reads this once, so it has to be set before the first server is made.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Map<String, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Creates a server on the loopback interface, call start to begin serving.
+     * @param port Port to listen on, 0 for any free port
+     */
+    public GameServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        virtualThreads = virtual != null;
+        executor = virtualThreads ? virtual : Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors() * 2, runnable -> {
+                    Thread thread = new Thread(runnable, "game-server");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        server.setExecutor(executor);
+        server.createContext("/games", this::handle);
+    }
+
+    /**
+     * Gets Executors.newVirtualThreadPerTaskExecutor by reflection, so the server still compiles and
+     * runs on JDKs from before virtual threads.
+     * @return The executor, or null if this JDK has no virtual threads
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null; // not there, or a preview feature that is switched off
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for running ones and shuts the threads down.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Starts a new game.
+     * @return The session hosting it
+     */
+    public GameSession createSession(GameType type) {
+        String id = Long.toString(nextId.getAndIncrement());
+        GameSession session = new GameSession(id, type);
+        sessions.put(id, session);
+        return session;
+    }
+
+    public GameSession getSession(String id) {
+        return sessions.get(id);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (RuntimeException e) {
+            send(exchange, 500, error("Internal error: " + e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        URI uri = exchange.getRequestURI();
+        String[] parts = uri.getPath().split("/"); // "", "games", id, "moves"
+        if (parts.length == 2 && method.equals("POST")) {
+            String query = uri.getQuery();
+            GameType type = (query != null && query.contains("type=custom")) ? GameType.CUSTOM : GameType.STANDARD;
+            send(exchange, 201, createSession(type).toJson());
+            return;
+        }
+        GameSession session = (parts.length >= 3) ? sessions.get(parts[2]) : null;
+        if (session == null) {
+            send(exchange, 404, error("No such game."));
+        } else if (parts.length == 3 && method.equals("GET")) {
+            send(exchange, 200, session.toJson());
+        } else if (parts.length == 3 && method.equals("DELETE")) {
+            sessions.remove(session.getId());
+            // 200 with a body rather than 204, the JDK client loses its connection on an empty 204 response
+            send(exchange, 200, "{\"id\":\"" + session.getId() + "\",\"deleted\":true}");
+        } else if (parts.length == 4 && parts[3].equals("moves") && method.equals("POST")) {
+            Matcher matcher = MOVE.matcher(readBody(exchange));
+            if (!matcher.find()) {
+                send(exchange, 400, error("Expected a body like {\"move\":\"e2e4\"}."));
+                return;
+            }
+            int result = session.play(matcher.group(1));
+            if (result == GameSession.OK)
+                send(exchange, 200, session.toJson());
+            else
+                send(exchange, 409, error(describe(result)));
+        } else {
+            send(exchange, 405, error("Unsupported request."));
+        }
+    }
+
+    private static String describe(int result) {
+        switch (result) {
+            case GameSession.INVALID_MOVE: return "Illegal move, piece cannot move there.";
+            case GameSession.INTO_CHECK: return "Illegal move, move would put you in check.";
+            case GameSession.NOT_YOUR_PIECE: return "No piece of the side to move on that square.";
+            default: return "The game is over.";
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped. Argument: port, default 8080.
+     */
+    public static void main(String[] args) throws IOException {
+        GameServer server = new GameServer((args.length > 0) ? Integer.parseInt(args[0]) : 8080);
+        server.start();
+        System.out.println("Serving games on http://127.0.0.1:" + server.getPort() + "/games"
+                + (server.usesVirtualThreads() ? " with virtual threads" : " with a thread pool"));
+    }
+}
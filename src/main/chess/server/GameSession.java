@@ -0,0 +1,131 @@
+package chess.server;
+
+import chess.Board;
+import chess.DrawRule;
+import chess.Game;
+import chess.GameType;
+import chess.LegalMoves;
+import chess.Piece;
+import chess.PieceType;
+import chess.Team;
+
+/**
+ * One game hosted by the server. Moves go through Game.attemptMove and then the position is checked
+ * for check, checkmate, stalemate and the other draws, the same way the GUI does it.
+ * Requests for the same session can arrive on many threads, so every method locks the session.
+ * @author Ryan Gisleson
+ */
+public class GameSession {
+
+    public enum Status {
+        ACTIVE, CHECK, CHECKMATE, STALEMATE, DRAW // DRAW by repetition, the fifty move rule or material
+    }
+
+    // results of play, the first three match Game.attemptMove
+    public static final int OK = 0;
+    public static final int INVALID_MOVE = 1;
+    public static final int INTO_CHECK = 2;
+    public static final int NOT_YOUR_PIECE = 3;
+    public static final int GAME_OVER = 4;
+
+    private final String id;
+    private final Game game;
+    private Status status = Status.ACTIVE;
+    private int moves = 0;
+
+    public GameSession(String id, GameType type) {
+        this.id = id;
+        this.game = new Game(type);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Plays a move for the side to move.
+     * @return OK, INVALID_MOVE, INTO_CHECK, NOT_YOUR_PIECE or GAME_OVER
+     */
+    public synchronized int play(int fromX, int fromY, int toX, int toY) {
+        if (status == Status.CHECKMATE || status == Status.STALEMATE || status == Status.DRAW)
+            return GAME_OVER;
+        Board board = game.getBoard();
+        if (!board.isValidSpace(fromX, fromY) || !board.isValidSpace(toX, toY) || !game.isValidPiece(fromX, fromY))
+            return NOT_YOUR_PIECE;
+        Piece piece = board.getPiece(fromX, fromY);
+        int result = game.attemptMove(piece, toX, toY);
+        if (result != OK)
+            return result;
+        game.nextTurn();
+        moves++;
+        DrawRule draw = game.getDraw();
+        Piece king = game.getKing(game.getTurn());
+        if (draw == DrawRule.STALEMATE)
+            status = Status.STALEMATE;
+        else if (draw != null)
+            status = Status.DRAW;
+        else if (king != null && game.inCheck(king, king.getX(), king.getY()))
+            status = game.hasLegalMoves(game.getTurn()) ? Status.CHECK : Status.CHECKMATE;
+        else
+            status = Status.ACTIVE;
+        return OK;
+    }
+
+    /**
+     * Plays a move named by its squares, like "e2e4".
+     * @return As play, or INVALID_MOVE if the name is not two squares of the board
+     */
+    public synchronized int play(String move) {
+        if (move == null || move.length() < 4)
+            return INVALID_MOVE;
+        Board board = game.getBoard();
+        int split = 1;
+        while (split < move.length() && Character.isDigit(move.charAt(split)))
+            split++;
+        int[] from = board.parseSquare(move.substring(0, split));
+        int[] to = board.parseSquare(move.substring(split));
+        if (from == null || to == null)
+            return INVALID_MOVE;
+        return play(from[0], from[1], to[0], to[1]);
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Writes the session as a JSON object: id, side to move, status, number of moves played, the board
+     * as one string per row from the top with '.' for empty squares, and the legal moves.
+     */
+    public synchronized String toJson() {
+        Board board = game.getBoard();
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"id\":\"").append(id)
+                .append("\",\"turn\":\"").append(game.getTurn())
+                .append("\",\"status\":\"").append(status)
+                .append("\",\"moves\":").append(moves)
+                .append(",\"board\":[");
+        for (int y = 0; y < board.getHeight(); y++) {
+            json.append(y == 0 ? "\"" : ",\"");
+            for (int x = 0; x < board.getWidth(); x++) {
+                Piece piece = board.getPiece(x, y);
+                json.append(piece == null ? '.' : piece.getType() == null ? '?' : PieceType.getLetter(piece));
+            }
+            json.append('"');
+        }
+        json.append("],\"legalMoves\":[");
+        LegalMoves legal = game.getLegalMoveSet(game.getTurn()); // kept for checking the next move
+        for (int i = 0; i < legal.size(); i++) {
+            json.append(i == 0 ? "\"" : ",\"").append(board.getSquareName(legal.getFromX(i), legal.getFromY(i)))
+                    .append(board.getSquareName(legal.getToX(i), legal.getToY(i))).append('"');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * @return Whose turn it is, for callers that do not want the whole JSON state
+     */
+    public synchronized Team getTurn() {
+        return game.getTurn();
+    }
+}
@@ -0,0 +1,254 @@
+package chess.tablebase;
+
+import chess.Bitboards;
+import chess.PieceType;
+import chess.Team;
+
+import java.nio.ByteBuffer;
+import java.util.stream.LongStream;
+
+/**
+ * Works out every position of one endgame by retrograde analysis, backwards from the mates.
+ * First every checkmate and stalemate is found. Then pass n marks as won in n moves every position with
+ * a move to a position lost in n - 1, and as lost in n every position whose moves all lead to positions
+ * won in at most n. Captures lead into smaller endgames, which must be solved already.
+ * Whatever is left when passes stop finding anything is a draw.
+ * Each pass splits the positions into chunks and runs them on all cores. The two halves of a pass each
+ * only read results the other half writes, so threads never depend on each other's writes within a half.
+ * @author Ryan Gisleson
+ */
+final class EndgameSolver {
+
+    private static final int UNRESOLVED = 0;
+    private static final int STALEMATE = 254; // drawn for certain, stored as a draw at the end
+    private static final int CHUNK = 1 << 14;
+    // what Position.scan looks for
+    private static final int COUNT = 0; // number of legal moves
+    private static final int WIN = 1; // 1 if a move reaches a position lost in n - 1
+    private static final int LOSS = 2; // 1 if every move reaches a position won in at most n
+
+    private final Material material;
+    private final TablebaseIndex index;
+    private final byte[] values;
+    private final Tablebase[] captures; // the endgame after capturing each piece, null for the kings
+    private final int pieces;
+    private final PieceType[] types;
+    private final Team[] teams;
+
+    /**
+     * @param captures Solved table for the endgame left after capturing each piece, null for the kings
+     */
+    EndgameSolver(Material material, Tablebase[] captures) {
+        this.material = material;
+        this.index = new TablebaseIndex(material);
+        if (index.size() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(material + " has too many positions for one table.");
+        this.values = new byte[(int) index.size()];
+        this.captures = captures;
+        this.pieces = material.size();
+        this.types = new PieceType[pieces];
+        this.teams = new Team[pieces];
+        for (int i = 0; i < pieces; i++) {
+            types[i] = material.getType(i);
+            teams[i] = material.getTeam(i);
+        }
+    }
+
+    private interface Step {
+        /**
+         * Works on one position.
+         * @return 1 if the position was resolved, 0 if not
+         */
+        int apply(Position position, int index);
+    }
+
+    Tablebase solve() {
+        run(this::initialize);
+        int longestCapture = 0;
+        for (Tablebase capture : captures)
+            if (capture != null)
+                longestCapture = Math.max(longestCapture, capture.getLongest());
+        int longest = 0;
+        for (int n = 1; ; n++) {
+            if (n > Tablebase.MAX_DISTANCE)
+                throw new IllegalStateException(material + " has mates longer than " + Tablebase.MAX_DISTANCE + " moves.");
+            int moves = n;
+            long found = run((position, i) -> findWin(position, i, moves));
+            found += run((position, i) -> findLoss(position, i, moves));
+            if (found > 0)
+                longest = n;
+            else if (n > longestCapture + 1)
+                break; // a lost position of a smaller endgame can still make a win in this one
+        }
+        for (int i = 0; i < values.length; i++)
+            if ((values[i] & 0xFF) == STALEMATE)
+                values[i] = Tablebase.DRAW;
+        return new Tablebase(material, ByteBuffer.wrap(values), longest);
+    }
+
+    private long run(Step step) {
+        long chunks = (values.length + CHUNK - 1) / CHUNK;
+        return LongStream.range(0, chunks).parallel().map(chunk -> {
+            Position position = new Position();
+            int end = (int) Math.min(values.length, (chunk + 1) * CHUNK);
+            long resolved = 0;
+            for (int i = (int) (chunk * CHUNK); i < end; i++)
+                resolved += step.apply(position, i);
+            return resolved;
+        }).sum();
+    }
+
+    private int initialize(Position position, int i) {
+        position.decode(i);
+        if (!position.isLegal()) {
+            values[i] = (byte) Tablebase.ILLEGAL;
+            return 1;
+        }
+        if (position.scan(COUNT, 0) > 0)
+            return 0;
+        values[i] = (byte) (position.inCheck() ? Tablebase.loss(0) : STALEMATE);
+        return 1;
+    }
+
+    private int findWin(Position position, int i, int n) {
+        if (values[i] != UNRESOLVED)
+            return 0;
+        position.decode(i);
+        if (position.scan(WIN, n) == 0)
+            return 0;
+        values[i] = (byte) Tablebase.win(n);
+        return 1;
+    }
+
+    private int findLoss(Position position, int i, int n) {
+        if (values[i] != UNRESOLVED)
+            return 0;
+        position.decode(i);
+        if (position.scan(LOSS, n) == 0)
+            return 0;
+        values[i] = (byte) Tablebase.loss(n);
+        return 1;
+    }
+
+    /**
+     * One thread's view of a position and its moves, reused for every position of a chunk.
+     */
+    private final class Position {
+        final int[] squares = new int[pieces];
+        final int[] child = new int[pieces];
+        final int[] smaller = new int[pieces - 1];
+        boolean blackToMove;
+        long occupied;
+
+        void decode(int i) {
+            blackToMove = index.decode(i, squares);
+            occupied = 0;
+            for (int square : squares)
+                occupied |= 1L << square;
+        }
+
+        Team toMove() {
+            return blackToMove ? Team.BLACK : Team.WHITE;
+        }
+
+        /**
+         * @return Whether no two pieces share a square and the side that just moved is not in check
+         */
+        boolean isLegal() {
+            if (Long.bitCount(occupied) != pieces)
+                return false;
+            Team moved = blackToMove ? Team.WHITE : Team.BLACK;
+            return !attacked(squares, squares[material.getKing(moved)], toMove(), -1, occupied);
+        }
+
+        boolean inCheck() {
+            Team team = toMove();
+            return attacked(squares, squares[material.getKing(team)], (team == Team.WHITE) ? Team.BLACK : Team.WHITE,
+                    -1, occupied);
+        }
+
+        /**
+         * Whether any piece of a team, other than the skipped one, attacks a square.
+         */
+        boolean attacked(int[] at, int square, Team by, int skip, long occupied) {
+            long bit = 1L << square;
+            for (int k = 0; k < pieces; k++)
+                if (k != skip && teams[k] == by && (Bitboards.attacks(types[k], by, at[k], occupied) & bit) != 0)
+                    return true;
+            return false;
+        }
+
+        /**
+         * Plays the legal moves of the side to move, stopping as soon as the answer is known.
+         * @param mode COUNT, WIN or LOSS
+         * @param n Number of the pass
+         */
+        int scan(int mode, int n) {
+            Team team = toMove();
+            Team enemy = (team == Team.WHITE) ? Team.BLACK : Team.WHITE;
+            long own = 0;
+            for (int k = 0; k < pieces; k++)
+                if (teams[k] == team)
+                    own |= 1L << squares[k];
+            int king = material.getKing(team);
+            int count = 0;
+            for (int p = 0; p < pieces; p++) {
+                if (teams[p] != team)
+                    continue;
+                int from = squares[p];
+                long targets;
+                if (types[p] == PieceType.PAWN)
+                    targets = pawnTargets(team, from) | (Bitboards.pawnAttacks(team, from) & occupied & ~own);
+                else
+                    targets = Bitboards.attacks(types[p], team, from, occupied) & ~own;
+                while (targets != 0) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    int captured = -1;
+                    for (int k = 0; k < pieces; k++)
+                        if (k != p && squares[k] == to)
+                            captured = k;
+                    System.arraycopy(squares, 0, child, 0, pieces);
+                    child[p] = to;
+                    long after = (occupied & ~(1L << from)) | (1L << to);
+                    if (attacked(child, child[king], enemy, captured, after))
+                        continue; // leaves the king in check
+                    count++;
+                    if (mode == WIN && lookUp(captured) == Tablebase.loss(n - 1))
+                        return 1;
+                    if (mode == LOSS) {
+                        int value = lookUp(captured);
+                        if (!Tablebase.isWin(value) || Tablebase.getDistance(value) > n)
+                            return 0;
+                    }
+                }
+            }
+            return (mode == COUNT) ? count : (mode == LOSS && count > 0) ? 1 : 0;
+        }
+
+        private long pawnTargets(Team team, int from) {
+            int step = (team == Team.WHITE) ? -Bitboards.SIZE : Bitboards.SIZE;
+            int startRow = (team == Team.WHITE) ? 6 : 1;
+            int to = from + step;
+            if (to < 0 || to >= 64 || (occupied & (1L << to)) != 0)
+                return 0;
+            long targets = 1L << to;
+            if (Bitboards.getY(from) == startRow && (occupied & (1L << (to + step))) == 0)
+                targets |= 1L << (to + step);
+            return targets;
+        }
+
+        /**
+         * @return The result of the position in child, for the other side to move
+         */
+        private int lookUp(int captured) {
+            if (captured < 0)
+                return values[(int) index.index(child, !blackToMove)] & 0xFF;
+            for (int k = 0, j = 0; k < pieces; k++)
+                if (k != captured)
+                    smaller[j++] = child[k];
+            Tablebase table = captures[captured];
+            return table.get(table.getIndex().index(smaller, !blackToMove));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package chess.tablebase;
+
+import chess.Bitboards;
+import chess.Game;
+import chess.Piece;
+import chess.PieceType;
+import chess.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pieces of an endgame, named like "KQvKR": white's pieces, 'v', then black's, each side starting
+ * with its king. Within a side pieces are kept strongest first, so every set of pieces has one name.
+ * Pieces are numbered in that order, white's from 0 and black's after them.
+ * @author Ryan Gisleson
+ */
+public final class Material {
+
+    public static final int MAX_PIECES = 5;
+    private static final String ORDER = "KQARBSNP"; // letters from the strongest piece to the weakest
+
+    private final PieceType[] types;
+    private final Team[] teams;
+    private final int whiteCount;
+    private final String name;
+
+    private Material(List<PieceType> white, List<PieceType> black) {
+        white.sort((a, b) -> ORDER.indexOf(a.getLetter()) - ORDER.indexOf(b.getLetter()));
+        black.sort((a, b) -> ORDER.indexOf(a.getLetter()) - ORDER.indexOf(b.getLetter()));
+        whiteCount = white.size();
+        types = new PieceType[white.size() + black.size()];
+        teams = new Team[types.length];
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            types[i] = (i < whiteCount) ? white.get(i) : black.get(i - whiteCount);
+            teams[i] = (i < whiteCount) ? Team.WHITE : Team.BLACK;
+            if (i == whiteCount)
+                name.append('v');
+            name.append(types[i].getLetter());
+        }
+        this.name = name.toString();
+    }
+
+    /**
+     * Reads a name like "KQvKR" or "KASvK".
+     * @throws IllegalArgumentException If it is not two sides of known pieces with one king each,
+     *                                  or has more than MAX_PIECES pieces
+     */
+    public static Material parse(String name) {
+        String[] sides = name.split("v", -1);
+        if (sides.length != 2)
+            throw new IllegalArgumentException("Endgame \"" + name + "\" needs one 'v' between the sides.");
+        List<PieceType> white = readSide(name, sides[0]);
+        List<PieceType> black = readSide(name, sides[1]);
+        if (white.size() + black.size() > MAX_PIECES)
+            throw new IllegalArgumentException("Endgame \"" + name + "\" has more than " + MAX_PIECES + " pieces.");
+        return new Material(white, black);
+    }
+
+    private static List<PieceType> readSide(String name, String side) {
+        List<PieceType> types = new ArrayList<>();
+        int kings = 0;
+        for (char letter : side.toCharArray()) {
+            PieceType type = Character.isUpperCase(letter) ? PieceType.fromLetter(letter) : null;
+            if (type == null)
+                throw new IllegalArgumentException("Unknown piece '" + letter + "' in endgame \"" + name + "\".");
+            if (type == PieceType.KING)
+                kings++;
+            types.add(type);
+        }
+        if (kings != 1)
+            throw new IllegalArgumentException("Each side of endgame \"" + name + "\" needs one king.");
+        return types;
+    }
+
+    /**
+     * Finds the endgame a game is in.
+     * @return The material, or null if the game is not on an 8x8 board, has more than MAX_PIECES pieces,
+     *         a piece without a type or a side without exactly one king
+     */
+    public static Material of(Game game) {
+        if (game.getBoard().getWidth() != Bitboards.SIZE || game.getBoard().getHeight() != Bitboards.SIZE)
+            return null;
+        List<PieceType> white = new ArrayList<>();
+        List<PieceType> black = new ArrayList<>();
+        int kings = 0;
+        for (Team team : Team.values()) {
+            for (Piece piece : game.getPieces(team)) {
+                if (piece == null) break;
+                if (piece.isCaptured())
+                    continue;
+                if (piece.getType() == null || white.size() + black.size() == MAX_PIECES)
+                    return null;
+                if (piece.getType() == PieceType.KING)
+                    kings += (team == Team.WHITE) ? 1 : 16;
+                ((team == Team.WHITE) ? white : black).add(piece.getType());
+            }
+        }
+        return (kings == 17) ? new Material(white, black) : null;
+    }
+
+    /**
+     * Puts the squares of a game's pieces in this material's order, as Bitboards squares.
+     * @param game A game whose material this is
+     */
+    void getSquares(Game game, int[] squares) {
+        int filled = 0; // bit per piece already placed
+        for (Team team : Team.values()) {
+            for (Piece piece : game.getPieces(team)) {
+                if (piece == null) break;
+                if (piece.isCaptured())
+                    continue;
+                for (int i = 0; i < types.length; i++) {
+                    if ((filled & (1 << i)) == 0 && teams[i] == team && types[i] == piece.getType()) {
+                        squares[i] = Bitboards.square(piece.getX(), piece.getY());
+                        filled |= 1 << i;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The endgame left when piece i is captured
+     */
+    Material without(int i) {
+        List<PieceType> white = new ArrayList<>();
+        List<PieceType> black = new ArrayList<>();
+        for (int j = 0; j < types.length; j++)
+            if (j != i)
+                ((j < whiteCount) ? white : black).add(types[j]);
+        return new Material(white, black);
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    public PieceType getType(int i) {
+        return types[i];
+    }
+
+    public Team getTeam(int i) {
+        return teams[i];
+    }
+
+    /**
+     * @return Number of the team's king, which comes first among its pieces
+     */
+    public int getKing(Team team) {
+        return (team == Team.WHITE) ? 0 : whiteCount;
+    }
+
+    public boolean hasPawns() {
+        for (PieceType type : types)
+            if (type == PieceType.PAWN)
+                return true;
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Material && ((Material) other).name.equals(name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,164 @@
+package chess.tablebase;
+
+import chess.Game;
+import chess.Team;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The result of every position of one endgame, one byte per position numbered by TablebaseIndex.
+ * A byte holds both who wins and how far away mate is:
+ * <pre>
+ * 0         draw
+ * 1 - 127   the side to move mates in that many moves
+ * 128 - 253 the side to move is mated after 0 to 125 moves, 0 meaning it is checkmated now
+ * 255       not a position that can happen
+ * </pre>
+ * Files have a 32 byte header, "CHTB" magic, int version, int longest mate in moves and the endgame's name,
+ * then the bytes. Opened tables are memory mapped and safe to probe from many threads.
+ * @author Ryan Gisleson
+ */
+public final class Tablebase {
+
+    public static final int DRAW = 0;
+    public static final int ILLEGAL = 255;
+    static final int MAX_DISTANCE = 125;
+
+    private static final int MAGIC = 0x43485442; // "CHTB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int LOSS = 128;
+
+    private final Material material;
+    private final TablebaseIndex index;
+    private final ByteBuffer values;
+    private final int longest;
+
+    Tablebase(Material material, ByteBuffer values, int longest) {
+        this.material = material;
+        this.index = new TablebaseIndex(material);
+        this.values = values;
+        this.longest = longest;
+    }
+
+    /**
+     * Maps a table file.
+     * @throws IOException If the file cannot be read or is not a table for the endgame its header names
+     */
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException(path + " is not an endgame table.");
+            byte[] name = new byte[header.get(12)];
+            header.position(13);
+            header.get(name);
+            Material material;
+            try {
+                material = Material.parse(new String(name, StandardCharsets.US_ASCII));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + " names no endgame.", e);
+            }
+            long size = new TablebaseIndex(material).size();
+            if (channel.size() != HEADER_SIZE + size)
+                throw new IOException(path + " is not the size of a " + material + " table.");
+            // the mapping stays valid after the channel is closed
+            return new Tablebase(material, channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, size),
+                    header.getInt(8));
+        }
+    }
+
+    /**
+     * Writes the table to a file, replacing any file there.
+     */
+    void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            byte[] name = material.toString().getBytes(StandardCharsets.US_ASCII);
+            header.putInt(MAGIC).putInt(VERSION).putInt(longest).put((byte) name.length).put(name);
+            header.clear();
+            while (header.hasRemaining())
+                channel.write(header);
+            ByteBuffer body = values.duplicate();
+            body.clear();
+            while (body.hasRemaining())
+                channel.write(body);
+        }
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * @return Number of positions, including the ones that cannot happen
+     */
+    public long size() {
+        return index.size();
+    }
+
+    /**
+     * @return The longest mate in the endgame, in moves
+     */
+    public int getLongest() {
+        return longest;
+    }
+
+    TablebaseIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the byte of a numbered position.
+     */
+    int get(long position) {
+        return values.get((int) position) & 0xFF;
+    }
+
+    /**
+     * Looks up a game's position.
+     * @param game A game in this table's endgame, see Material.of
+     * @return The result byte, see the class comment
+     */
+    public int probe(Game game) {
+        int[] squares = new int[material.size()];
+        material.getSquares(game, squares);
+        return get(index.index(squares, game.getTurn() != Team.WHITE));
+    }
+
+    /**
+     * @return Whether the side to move wins
+     */
+    public static boolean isWin(int value) {
+        return value > DRAW && value < LOSS;
+    }
+
+    /**
+     * @return Whether the side to move loses
+     */
+    public static boolean isLoss(int value) {
+        return value >= LOSS && value < ILLEGAL;
+    }
+
+    /**
+     * @return Moves until mate, for a win or a loss
+     */
+    public static int getDistance(int value) {
+        return isLoss(value) ? value - LOSS : value;
+    }
+
+    static int win(int moves) {
+        return moves;
+    }
+
+    static int loss(int moves) {
+        return LOSS + moves;
+    }
+}
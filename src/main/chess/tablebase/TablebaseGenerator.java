@@ -0,0 +1,80 @@
+package chess.tablebase;
+
+import chess.PieceType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Generates endgame tables into a directory, along with the tables of every smaller endgame a capture
+ * can lead to. Tables already in the directory are used instead of being made again.
+ * Each table is solved on all cores, see EndgameSolver. The table being solved is held in memory:
+ * up to 5 MB for four pieces, and 335 MB for five pieces without pawns or 1 GB with them.
+ * @author Ryan Gisleson
+ */
+public class TablebaseGenerator {
+
+    private final Path directory;
+    private final Map<Material, Tablebase> tables = new HashMap<>();
+    private Consumer<String> progress = message -> {};
+
+    /**
+     * @param directory Where to write tables, it must exist
+     */
+    public TablebaseGenerator(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Sets something to be told about each table as it is finished, for example to print it.
+     */
+    public void setProgress(Consumer<String> progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Gets the table of an endgame, from the directory or by solving it.
+     */
+    public Tablebase generate(Material material) throws IOException {
+        Tablebase table = tables.get(material);
+        if (table != null)
+            return table;
+        Path file = directory.resolve(Tablebases.fileName(material));
+        if (Files.exists(file)) {
+            table = Tablebase.open(file);
+        } else {
+            Tablebase[] captures = new Tablebase[material.size()];
+            for (int i = 0; i < material.size(); i++)
+                if (material.getType(i) != PieceType.KING)
+                    captures[i] = generate(material.without(i));
+            long start = System.nanoTime();
+            table = new EndgameSolver(material, captures).solve();
+            table.write(file);
+            progress.accept(String.format("%s: %d positions, longest mate %d moves, %.1fs", material, table.size(),
+                    table.getLongest(), (System.nanoTime() - start) / 1e9));
+        }
+        tables.put(material, table);
+        return table;
+    }
+
+    /**
+     * Arguments: the directory to write to, then the endgames to generate, like KQvK or KASvK.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TablebaseGenerator <directory> <endgame>...");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        TablebaseGenerator generator = new TablebaseGenerator(directory);
+        generator.setProgress(System.out::println);
+        for (int i = 1; i < args.length; i++)
+            generator.generate(Material.parse(args[i]));
+    }
+}
@@ -0,0 +1,110 @@
+package chess.tablebase;
+
+import chess.Bitboards;
+
+/**
+ * Numbers the positions of an endgame. A position is the square of every piece, in the material's order,
+ * and the side to move. Mirrored and rotated copies of a position have the same result, so only one of them
+ * is stored: the board is turned so the white king is on one of the 10 squares of the a8-a5-d5 triangle,
+ * or without turning, when there are pawns, just mirrored so the white king is on the a to d files.
+ * Positions that cannot happen, like two pieces on one square, still get numbers; the generator marks them.
+ * <pre>
+ * index = ((kingSlot * 64 + square1) * 64 + square2 ...) * 2 + blackToMove
+ * </pre>
+ * @author Ryan Gisleson
+ */
+final class TablebaseIndex {
+
+    private static final int TRANSFORMS = 8;
+    private static final int[][] TRANSFORMED = new int[TRANSFORMS][64]; // square after each turn or mirror
+    private static final int[] TRIANGLE_SLOT = new int[64]; // king slot of each square, -1 if not a slot
+    private static final int[] HALF_SLOT = new int[64];
+    private static final int[] TRIANGLE = new int[10]; // square of each king slot
+    private static final int[] HALF = new int[32];
+
+    static {
+        for (int t = 0; t < TRANSFORMS; t++) {
+            for (int square = 0; square < 64; square++) {
+                int x = Bitboards.getX(square);
+                int y = Bitboards.getY(square);
+                if ((t & 1) != 0)
+                    x = 7 - x;
+                if ((t & 2) != 0)
+                    y = 7 - y;
+                if ((t & 4) != 0) {
+                    int swap = x;
+                    x = y;
+                    y = swap;
+                }
+                TRANSFORMED[t][square] = Bitboards.square(x, y);
+            }
+        }
+        int triangle = 0;
+        int half = 0;
+        for (int square = 0; square < 64; square++) {
+            int x = Bitboards.getX(square);
+            int y = Bitboards.getY(square);
+            TRIANGLE_SLOT[square] = (x <= 3 && y <= 3 && x <= y) ? triangle : -1;
+            if (TRIANGLE_SLOT[square] >= 0)
+                TRIANGLE[triangle++] = square;
+            HALF_SLOT[square] = (x <= 3) ? half : -1;
+            if (HALF_SLOT[square] >= 0)
+                HALF[half++] = square;
+        }
+    }
+
+    private final int pieces;
+    private final int[] slotOf;
+    private final int[] squareOf;
+    private final int transforms; // 8 without pawns, only the mirror with them
+    private final long size;
+
+    TablebaseIndex(Material material) {
+        pieces = material.size();
+        boolean pawns = material.hasPawns();
+        slotOf = pawns ? HALF_SLOT : TRIANGLE_SLOT;
+        squareOf = pawns ? HALF : TRIANGLE;
+        transforms = pawns ? 2 : TRANSFORMS;
+        size = (long) squareOf.length << (6 * (pieces - 1) + 1);
+    }
+
+    /**
+     * @return Number of positions
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Numbers a position, turning the board as needed.
+     * @param squares Square of every piece, the white king first
+     */
+    long index(int[] squares, boolean blackToMove) {
+        long best = Long.MAX_VALUE;
+        for (int t = 0; t < transforms; t++) {
+            int slot = slotOf[TRANSFORMED[t][squares[0]]];
+            if (slot < 0)
+                continue;
+            long index = slot;
+            for (int i = 1; i < pieces; i++)
+                index = (index << 6) | TRANSFORMED[t][squares[i]];
+            best = Math.min(best, index); // the white king can be on the triangle's diagonal both ways
+        }
+        return (best << 1) | (blackToMove ? 1 : 0);
+    }
+
+    /**
+     * Finds the squares of a numbered position.
+     * @return Whether black is to move
+     */
+    boolean decode(long index, int[] squares) {
+        boolean blackToMove = (index & 1) != 0;
+        index >>>= 1;
+        for (int i = pieces - 1; i > 0; i--) {
+            squares[i] = (int) (index & 63);
+            index >>>= 6;
+        }
+        squares[0] = squareOf[(int) index];
+        return blackToMove;
+    }
+}
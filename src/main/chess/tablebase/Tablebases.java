@@ -0,0 +1,98 @@
+package chess.tablebase;
+
+import chess.Game;
+import chess.Moves;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up game positions in a directory of endgame tables, opening each table the first time it is needed.
+ * Safe to use from many threads, as the search does.
+ * @author Ryan Gisleson
+ */
+public class Tablebases {
+
+    public static final int UNKNOWN = -1;
+
+    private final Path directory;
+    private final Map<Material, Optional<Tablebase>> tables = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory Directory of tables written by TablebaseGenerator
+     */
+    public Tablebases(Path directory) {
+        this.directory = directory;
+    }
+
+    static String fileName(Material material) {
+        return material + ".tbl";
+    }
+
+    /**
+     * Looks up the game's position.
+     * @return The result for the side to move as a Tablebase byte, or UNKNOWN if there is no table for it
+     * @throws UncheckedIOException If a table is there but cannot be read
+     */
+    public int probe(Game game) {
+        Material material = Material.of(game);
+        if (material == null)
+            return UNKNOWN;
+        Tablebase table = tables.computeIfAbsent(material, this::open).orElse(null);
+        return (table != null) ? table.probe(game) : UNKNOWN;
+    }
+
+    private Optional<Tablebase> open(Material material) {
+        Path file = directory.resolve(fileName(material));
+        if (!Files.exists(file))
+            return Optional.empty();
+        try {
+            return Optional.of(Tablebase.open(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finds the move that keeps the best result: the quickest mate when winning, a draw when one is left,
+     * and the longest way to be mated when losing.
+     * @return The packed move, or Moves.NONE if the position is not in the tables or has no legal move
+     */
+    public int bestMove(Game game) {
+        if (probe(game) == UNKNOWN)
+            return Moves.NONE;
+        int[] moves = new int[Moves.bufferSize(game.getBoard())];
+        int count = game.getLegalMoves(game.getTurn(), moves);
+        int best = Moves.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            int value = probe(game);
+            game.unmakeMove();
+            if (value == UNKNOWN)
+                continue;
+            int rank = rank(value);
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Orders results of the opponent's positions from best to worst for the side that moved into them.
+     */
+    private static int rank(int opponentValue) {
+        if (Tablebase.isLoss(opponentValue))
+            return 1000 - Tablebase.getDistance(opponentValue);
+        if (Tablebase.isWin(opponentValue))
+            return -1000 + Tablebase.getDistance(opponentValue);
+        return 0;
+    }
+}
@@ -0,0 +1,100 @@
+package chess;
+
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class AnalysisTest {
+
+    @Test
+    public void testDescribe() {
+        Game game = new Game(GameType.STANDARD);
+        List<int[]> line = Arrays.asList(new int[]{4, 6, 4, 4}, new int[]{4, 1, 4, 3});
+        SearchResult result = new SearchResult(line.get(0), 35, 7, 1000, 1_000_000, line);
+        assertEquals("depth 7  +0.35  e4 e5", Analysis.describe(game, result));
+        assertEquals(0, game.getPly());
+
+        game.makeMove(Moves.of(game.getBoard(), 4, 6, 4, 4));
+        SearchResult black = new SearchResult(new int[]{4, 1, 4, 3}, 35, 3, 10, 10, line.subList(1, 2));
+        assertEquals("depth 3  -0.35  e5", Analysis.describe(game, black));
+        SearchResult mate = new SearchResult(new int[]{4, 1, 4, 3}, Search.MATE - 3, 4, 10, 10, line.subList(1, 2));
+        assertEquals("depth 4  -M2  e5", Analysis.describe(game, mate));
+    }
+
+    @Test
+    public void testFindsMoveOffTheEventThread() throws Exception {
+        Game game = Fen.parse("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1");
+        Analysis analysis = new Analysis();
+        BlockingQueue<Integer> moves = new ArrayBlockingQueue<>(1);
+        BlockingQueue<Boolean> onEventThread = new ArrayBlockingQueue<>(1);
+        analysis.findMove(game, 1000, move -> {
+            onEventThread.add(SwingUtilities.isEventDispatchThread());
+            moves.add(move);
+        });
+        int move = moves.poll(10, TimeUnit.SECONDS);
+        assertTrue(onEventThread.take());
+        game.makeMove(move);
+        Piece king = game.getKing(Team.BLACK);
+        assertTrue(game.inCheckmate(king, king.getX(), king.getY()));
+        analysis.shutdown();
+    }
+
+    @Test
+    public void testFindMoveKeepsQueuedCheck() throws Exception {
+        Analysis analysis = new Analysis();
+        Game game = Fen.parse("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1");
+        BlockingQueue<String> checked = new ArrayBlockingQueue<>(1);
+        BlockingQueue<Integer> moves = new ArrayBlockingQueue<>(1);
+        analysis.check(game, Fen::write, checked::add);
+        analysis.findMove(game, 200, moves::add);
+        assertEquals(Fen.write(game), checked.poll(10, TimeUnit.SECONDS));
+        assertNotNull(moves.poll(10, TimeUnit.SECONDS));
+
+        // a cancel still drops a queued check, held back here behind one that waits
+        CountDownLatch release = new CountDownLatch(1);
+        analysis.check(game, copy -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "first";
+        }, checked::add);
+        analysis.check(game, Fen::write, checked::add);
+        analysis.cancel();
+        release.countDown();
+        Thread.sleep(100);
+        assertTrue(checked.isEmpty());
+        analysis.shutdown();
+    }
+
+    @Test
+    public void testCancelStopsAnalysis() throws Exception {
+        Analysis analysis = new Analysis();
+        BlockingQueue<String> lines = new ArrayBlockingQueue<>(100);
+        analysis.analyse(new Game(GameType.CUSTOM), Long.MAX_VALUE, lines::offer);
+        assertTrue(lines.poll(10, TimeUnit.SECONDS).startsWith("depth 1 "));
+        // the next task only runs on the one analysis thread once the endless search has stopped
+        BlockingQueue<String> checked = new ArrayBlockingQueue<>(1);
+        analysis.check(new Game(GameType.STANDARD), Fen::write, checked::add);
+        assertEquals(Fen.STANDARD, checked.poll(10, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        lines.clear();
+        Thread.sleep(50);
+        assertTrue(lines.isEmpty());
+        analysis.shutdown();
+    }
+}
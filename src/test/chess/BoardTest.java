@@ -1,11 +1,14 @@
 package chess;
 
-import chess.pieces.King;
+import chess.pieces.*;
 import org.junit.Test;
 
 import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -59,4 +62,120 @@ public class BoardTest {
         Board board = new Board();
         board.getPiece(10, 10);
     }
+
+    @Test
+    public void testMasksFollowSetAndRemove() {
+        Board board = new Board();
+        Piece rook = new Rook(Team.WHITE);
+        board.setPiece(rook, 2, 3);
+        assertEquals(Bitboards.bit(2, 3), board.getOccupied(Team.WHITE));
+        assertEquals(Bitboards.bit(2, 3), board.getPieces(Team.WHITE, PieceType.ROOK));
+        board.setPiece(new Knight(Team.BLACK), 2, 3); // replaces the rook
+        assertEquals(0L, board.getOccupied(Team.WHITE));
+        assertEquals(Bitboards.bit(2, 3), board.getPieces(Team.BLACK, PieceType.KNIGHT));
+        assertTrue(board.isOccupied(2, 3));
+        board.removePiece(2, 3);
+        assertEquals(0L, board.getOccupied());
+        assertFalse(board.isOccupied(2, 3));
+    }
+
+    @Test
+    public void testCountPieces() {
+        Game game = new Game(GameType.CUSTOM);
+        Board board = game.getBoard();
+        assertEquals(16, board.countPieces(Team.WHITE));
+        assertEquals(8, board.countPieces(Team.BLACK, PieceType.PAWN));
+        assertEquals(1, board.countPieces(Team.BLACK, PieceType.SQUIRREL));
+        assertEquals(1, board.countPieces(Team.WHITE, PieceType.ARCHBISHOP));
+        assertEquals(1, board.countPieces(Team.WHITE, PieceType.BISHOP));
+    }
+
+    @Test
+    public void testNoMasksOffStandardSize() {
+        Board board = new Board(10, 10);
+        board.setPiece(new King(Team.WHITE), 9, 9);
+        assertFalse(board.hasBitboards());
+        assertEquals(0L, board.getOccupied());
+        assertEquals(1, board.countPieces(Team.WHITE));
+        assertTrue(board.isOccupied(9, 9));
+    }
+
+    @Test
+    public void testTranspose() {
+        for (int x = 0; x < 8; x++)
+            for (int y = 0; y < 8; y++)
+                assertEquals(Bitboards.bit(y, x), Bitboards.transpose(Bitboards.bit(x, y)));
+    }
+
+    @Test
+    public void testIsAttackedMatchesCanMove() {
+        Random rand = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            Board board = new Board();
+            for (int j = rand.nextInt(16) + 1; j > 0; j--) {
+                Team team = rand.nextBoolean() ? Team.WHITE : Team.BLACK;
+                Piece[] choices = {new King(team), new Queen(team), new Rook(team), new Bishop(team),
+                        new Knight(team), new Pawn(team), new Archbishop(team), new Squirrel(team)};
+                board.setPiece(choices[rand.nextInt(choices.length)], rand.nextInt(8), rand.nextInt(8));
+            }
+            for (Team team : Team.values()) {
+                for (int x = 0; x < 8; x++) {
+                    for (int y = 0; y < 8; y++) {
+                        Piece target = board.getPiece(x, y);
+                        if (target != null && target.getTeam() == team) continue; // defended squares
+                        assertEquals(attackedByScan(board, team, x, y), board.isAttacked(x, y, team));
+                        assertEquals(board.isAttacked(x, y, team), (board.getAttacks(team) & Bitboards.bit(x, y)) != 0);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean attackedByScan(Board board, Team team, int x, int y) {
+        int forward = (team == Team.WHITE) ? -1 : 1;
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                Piece piece = board.getPiece(i, j);
+                if (piece == null || piece.getTeam() != team) continue;
+                if (piece instanceof Pawn) {
+                    if (Math.abs(i - x) == 1 && j + forward == y) return true;
+                } else if (piece.canMove(board, x, y)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testHashUndoneByRemove() {
+        Board board = new Board(10, 12);
+        board.setPiece(new Squirrel(Team.WHITE), 9, 11);
+        long hash = board.getHash();
+        Piece archbishop = new Archbishop(Team.BLACK);
+        board.setPiece(archbishop, 3, 8);
+        assertEquals(board.computeHash(false), board.getHash());
+        board.removePiece(archbishop);
+        assertEquals(hash, board.getHash());
+        board.removePiece(9, 11);
+        assertEquals(0L, board.getHash());
+    }
+
+    @Test
+    public void testParseSquare() {
+        Board board = new Board();
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                int[] square = board.parseSquare(board.getSquareName(x, y));
+                assertEquals(x, square[0]);
+                assertEquals(y, square[1]);
+            }
+        }
+        assertNull(board.parseSquare("i1"));
+        assertNull(board.parseSquare("a9"));
+        assertNull(board.parseSquare("a"));
+        assertNull(board.parseSquare("ax"));
+        Board wide = new Board(10, 12);
+        assertArrayEquals(new int[]{9, 0}, wide.parseSquare("j12"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package chess;
+
+import chess.pieces.King;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class BoardViewTest {
+
+    private static BufferedImage paint(BoardView view) {
+        BufferedImage image = new BufferedImage(view.getWidth(), view.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        view.paint(g);
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    public void testClicksMapToSquares() {
+        int[] clicked = new int[2];
+        BoardView view = new BoardView(new SpriteCache(), (x, y) -> {
+            clicked[0] = x;
+            clicked[1] = y;
+        });
+        view.setBoard(new Board(16, 16));
+        view.setSize(500, 520); // 31 pixel squares, 2 pixels over on each side and 12 above and below
+        assertEquals(31, view.getSquareSize());
+        assertEquals(0, view.squareAt(2, 12));
+        assertEquals(-1, view.squareAt(1, 12));
+        assertEquals(15 * 16 + 15, view.squareAt(2 + 16 * 31 - 1, 12 + 16 * 31 - 1));
+        assertEquals(-1, view.squareAt(2 + 16 * 31, 100));
+        assertEquals(3 * 16 + 5, view.squareAt(2 + 5 * 31 + 30, 12 + 3 * 31));
+    }
+
+    @Test
+    public void testPaintsSquaresPiecesAndOutlines() {
+        Board board = new Board();
+        board.setPiece(new King(Team.WHITE), 4, 7);
+        BoardView view = new BoardView(new SpriteCache(), (x, y) -> {});
+        view.setBoard(board);
+        view.setSize(400, 400);
+        view.outline(0, 1, Color.GREEN);
+        BufferedImage image = paint(view);
+        assertEquals(BoardView.LIGHT.getRGB(), image.getRGB(25, 25));
+        assertEquals(BoardView.DARK.getRGB(), image.getRGB(75, 25));
+        assertEquals(Color.GREEN.getRGB(), image.getRGB(1, 51));
+        assertEquals(BoardView.DARK.getRGB(), image.getRGB(25, 75)); // inside the outline
+        int differing = 0;
+        for (int x = 200; x < 250; x++)
+            for (int y = 350; y < 400; y++)
+                if (image.getRGB(x, y) != BoardView.DARK.getRGB())
+                    differing++;
+        assertTrue(differing > 100); // the king
+
+        view.clearOutlines();
+        assertEquals(BoardView.DARK.getRGB(), paint(view).getRGB(1, 51));
+    }
+
+    @Test
+    public void testOnlyChangedSquaresAreRepainted() {
+        Game game = new Game(GameType.STANDARD);
+        BoardView view = new BoardView(new SpriteCache(), (x, y) -> {});
+        view.setBoard(game.getBoard());
+        view.setSize(400, 400);
+        long repaints = view.getRepaintCount();
+        view.update();
+        assertEquals(repaints, view.getRepaintCount());
+        game.makeMove(Moves.of(game.getBoard(), 4, 6, 4, 4));
+        view.update();
+        assertEquals(repaints + 2, view.getRepaintCount());
+    }
+}
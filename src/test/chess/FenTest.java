@@ -0,0 +1,164 @@
+package chess;
+
+import chess.pieces.*;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class FenTest {
+
+    private static void assertSamePosition(Game expected, Game actual) {
+        Board a = expected.getBoard();
+        Board b = actual.getBoard();
+        assertEquals(a.getWidth(), b.getWidth());
+        assertEquals(a.getHeight(), b.getHeight());
+        for (int x = 0; x < a.getWidth(); x++) {
+            for (int y = 0; y < a.getHeight(); y++) {
+                Piece p = a.getPiece(x, y);
+                Piece q = b.getPiece(x, y);
+                assertEquals(p == null, q == null);
+                if (p != null) {
+                    assertEquals(p.getClass(), q.getClass());
+                    assertEquals(p.getTeam(), q.getTeam());
+                }
+            }
+        }
+        assertEquals(expected.getTurn(), actual.getTurn());
+        assertEquals(expected.getHash(), actual.getHash());
+    }
+
+    @Test
+    public void testStandardAndCustomSetups() {
+        assertEquals(Fen.STANDARD, Fen.write(new Game(GameType.STANDARD)));
+        assertEquals(Fen.CUSTOM, Fen.write(new Game(GameType.CUSTOM)));
+        assertSamePosition(new Game(GameType.STANDARD), Fen.parse(Fen.STANDARD));
+        assertSamePosition(new Game(GameType.CUSTOM), Fen.parse(Fen.CUSTOM));
+    }
+
+    @Test
+    public void testParsedGameIsPlayable() {
+        Game game = Fen.parse("4k3/8/8/8/8/8/4q3/4K3 w - - 0 1");
+        assertEquals(Team.WHITE, game.getKing(Team.WHITE).getTeam());
+        assertEquals(Team.BLACK, game.getKing(Team.BLACK).getTeam());
+        Piece king = game.getKing(Team.WHITE);
+        assertTrue(game.inCheck(king, king.getX(), king.getY()));
+        assertFalse(game.inCheckmate(king, king.getX(), king.getY())); // the king takes the queen
+        assertEquals(0, game.attemptMove(king, 4, 6));
+    }
+
+    @Test
+    public void testSideToMoveAndIgnoredFields() {
+        Game game = Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        assertEquals(Team.BLACK, game.getTurn());
+        assertTrue(game.getBoard().getPiece(4, 4) instanceof Pawn);
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - 0 1", Fen.write(game));
+        // EPD: four fields and operations
+        Game epd = Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - bm e5; id \"test\";");
+        assertSamePosition(game, epd);
+        assertEquals(Team.WHITE, Fen.parse("8/8/8/8/8/8/8/K6k").getTurn());
+    }
+
+    @Test
+    public void testWriteAfterMoves() {
+        Game game = new Game(GameType.CUSTOM);
+        Board board = game.getBoard();
+        game.makeMove(board.getPiece(6, 7), 5, 5); // squirrel
+        game.makeMove(board.getPiece(4, 1), 4, 3);
+        String fen = Fen.write(game);
+        assertEquals("rsbqkanr/pppp1ppp/8/4p3/8/5S2/PPPPPPPP/RNAQKB1R w - - 0 1", fen);
+        assertSamePosition(game, Fen.parse(fen));
+    }
+
+    @Test
+    public void testOtherBoardSizes() {
+        String fen = "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w - - 0 1"
+                .replace('c', 's').replace('C', 'S');
+        Game game = Fen.parse(fen);
+        assertEquals(9, game.getBoard().getWidth());
+        assertEquals(10, game.getBoard().getHeight());
+        assertEquals(fen, Fen.write(game));
+        assertTrue(game.getBoard().getPiece(3, 0) instanceof Archbishop);
+        assertTrue(game.getBoard().getPiece(1, 7) instanceof Squirrel);
+
+        Game wide = Fen.parse("k11/12/12/11K w - - 0 1");
+        assertEquals(12, wide.getBoard().getWidth());
+        assertEquals(4, wide.getBoard().getHeight());
+        assertTrue(wide.getBoard().getPiece(11, 3) instanceof King);
+        assertEquals("k11/12/12/11K w - - 0 1", Fen.write(wide));
+    }
+
+    @Test
+    public void testPieceListsGrow() {
+        Game game = Fen.parse("qqqqqqqq/qqqqqqqq/qqqqqqqq/3k4/8/8/8/4K3 b - - 0 1");
+        int queens = 0;
+        for (Piece piece : game.getPieces(Team.BLACK))
+            if (piece instanceof Queen)
+                queens++;
+        assertEquals(24, queens);
+        assertEquals(25, game.getBoard().countPieces(Team.BLACK));
+        assertTrue(game.getKing(Team.BLACK) instanceof King);
+        assertSamePosition(game, new Game(game));
+    }
+
+    @Test
+    public void testRejectsBadStrings() {
+        String[] bad = {
+                "", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPP/RNBQKBNR w", "rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x"};
+        for (String fen : bad) {
+            try {
+                Fen.parse(fen);
+                fail("Accepted \"" + fen + "\"");
+            } catch (IllegalArgumentException expected) {
+                // rejected
+            }
+        }
+        Game game = new Game(GameType.STANDARD);
+        try {
+            Fen.load(game, "k6/7/7/7/7/7/7/6K w"); // 7 wide
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(0, game.getBoard().countPieces(Team.WHITE));
+            assertEquals(Team.WHITE, game.getTurn());
+        }
+    }
+
+    @Test
+    public void testLoadReusesGame() {
+        Game game = new Game(GameType.STANDARD);
+        game.makeMove(game.getBoard().getPiece(4, 6), 4, 4);
+        Fen.load(game, "4k3/8/8/8/8/8/8/4K2R b - - 0 1");
+        assertEquals(0, game.getPly());
+        assertEquals(Team.BLACK, game.getTurn());
+        assertEquals(3, game.getBoard().countPieces(Team.WHITE) + game.getBoard().countPieces(Team.BLACK));
+        assertEquals(game.getBoard().computeHash(true), game.getHash());
+        assertFalse(game.unmakeMove());
+    }
+
+    @Test
+    public void testLoadAll() throws Exception {
+        String input = "# positions\n" + Fen.STANDARD + "\n\n  " + Fen.CUSTOM + "\n8/8/8/8/8/8/8/K6k b - -\n";
+        Game game = new Game();
+        List<String> seen = new ArrayList<>();
+        long count = Fen.loadAll(new BufferedReader(new StringReader(input)), game, loaded -> seen.add(Fen.write(loaded)));
+        assertEquals(3, count);
+        assertEquals(Fen.STANDARD, seen.get(0));
+        assertEquals(Fen.CUSTOM, seen.get(1));
+        assertEquals("8/8/8/8/8/8/8/K6k b - - 0 1", seen.get(2));
+
+        try {
+            Fen.loadAll(new BufferedReader(new StringReader(Fen.STANDARD + "\nbad\n")), game, loaded -> {});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Line 2:"));
+        }
+    }
+}
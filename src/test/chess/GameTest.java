@@ -4,6 +4,10 @@ import chess.pieces.*;
 import org.junit.After;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 /**
@@ -142,4 +146,429 @@ public class GameTest {
         assertFalse(game.inCheck(king, king.getX(), king.getY()));
         assertFalse(game.inCheckmate(king, king.getX(), king.getY()));
     }
+
+    @Test
+    public void testKingCannotRetreatAlongCheckingRay() {
+        initEmptyGame();
+        Piece king = new King(Team.WHITE);
+        game.addPiece(king, 4, 4);
+        game.addPiece(new Rook(Team.BLACK), 4, 0);
+        assertTrue(game.inCheck(king, 4, 4));
+        assertTrue(game.inCheck(king, 4, 5)); // still on the rook's file behind the king
+        assertFalse(game.inCheck(king, 3, 5));
+    }
+
+    @Test
+    public void testAttackMapFollowsMoves() {
+        initCustomGame();
+        Random rand = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            Piece[] pieces = game.getPieces(game.getTurn());
+            Piece piece = pieces[rand.nextInt(pieces.length)];
+            if (piece.isCaptured()) continue;
+            int[][] moves = piece.getMoves(game.getBoard());
+            if (moves.length == 0) continue;
+            int[] move = moves[rand.nextInt(moves.length)];
+            if (game.attemptMove(piece, move[0], move[1]) == 0) {
+                if (rand.nextInt(5) == 0)
+                    game.undoMove(game.getLastMove());
+                else
+                    game.nextTurn();
+            }
+            for (Team team : Team.values())
+                assertEquals(new AttackMap(game.getBoard()).getAttacks(team), game.getAttackedSquares(team));
+        }
+    }
+
+    @Test
+    public void testFoolsMate() {
+        initStandardGame();
+        playMoves(5, 6, 5, 5,  4, 1, 4, 3,  6, 6, 6, 4,  3, 0, 7, 4);
+        Piece king = game.getKing(Team.WHITE);
+        assertTrue(game.inCheckmate(king, king.getX(), king.getY()));
+        assertFalse(game.hasLegalMoves(Team.WHITE));
+    }
+
+    @Test
+    public void testCheckCanBeBlocked() {
+        initEmptyGame();
+        Piece king = new King(Team.WHITE);
+        game.addPiece(king, 0, 7);
+        game.addPiece(new Pawn(Team.WHITE), 0, 6);
+        game.addPiece(new Pawn(Team.WHITE), 1, 6);
+        game.addPiece(new Rook(Team.WHITE), 3, 3);
+        game.addPiece(new Rook(Team.BLACK), 7, 7);
+        assertTrue(game.inCheck(king, 0, 7));
+        assertFalse(game.inCheckmate(king, 0, 7));
+        int[][] rookMoves = game.getLegalMoves(game.getBoard().getPiece(3, 3));
+        assertEquals(1, rookMoves.length);
+        assertArrayEquals(new int[]{3, 7}, rookMoves[0]);
+    }
+
+    @Test
+    public void testPinnedPieceStaysOnRay() {
+        initEmptyGame();
+        game.addPiece(new King(Team.WHITE), 4, 7);
+        Piece bishop = new Bishop(Team.WHITE);
+        game.addPiece(bishop, 4, 5);
+        Piece squirrel = new Squirrel(Team.WHITE);
+        game.addPiece(squirrel, 3, 6);
+        game.addPiece(new Rook(Team.BLACK), 4, 0);
+        game.addPiece(new Queen(Team.BLACK), 0, 3);
+        assertEquals(0, game.getLegalMoves(bishop).length);
+        // the squirrel can only jump along the queen's diagonal
+        int[][] moves = game.getLegalMoves(squirrel);
+        assertEquals(1, moves.length);
+        assertArrayEquals(new int[]{1, 4}, moves[0]);
+        assertEquals(2, game.attemptMove(bishop, 5, 4));
+    }
+
+    @Test
+    public void testStalemate() {
+        initEmptyGame();
+        game.addPiece(new King(Team.BLACK), 0, 0);
+        game.addPiece(new Queen(Team.WHITE), 1, 2);
+        game.addPiece(new King(Team.WHITE), 7, 7);
+        assertTrue(game.inStalemate(Team.BLACK));
+        assertFalse(game.inStalemate(Team.WHITE));
+    }
+
+    @Test
+    public void testLegalMovesMatchPlayingThemOut() {
+        for (long seed = 0; seed < 20; seed++) {
+            game = new Game(seed % 2 == 0 ? GameType.STANDARD : GameType.CUSTOM);
+            Random rand = new Random(seed);
+            for (int ply = 0; ply < 150; ply++) {
+                Team team = game.getTurn();
+                Team other = (team == Team.WHITE) ? Team.BLACK : Team.WHITE;
+                Piece king = game.getKing(team);
+                List<Piece> movable = new ArrayList<>();
+                for (Piece piece : game.getPieces(team)) {
+                    if (piece.isCaptured()) continue;
+                    int[][] legal = game.getLegalMoves(piece);
+                    int count = 0;
+                    for (int[] move : piece.getMoves(game.getBoard())) {
+                        Move played = piece.movePiece(game.getBoard(), move[0], move[1]);
+                        boolean safe = !game.getBoard().isAttacked(king.getX(), king.getY(), other);
+                        game.undoMove(played);
+                        if (safe)
+                            assertArrayEquals(move, legal[count++]);
+                    }
+                    assertEquals(count, legal.length);
+                    if (count > 0)
+                        movable.add(piece);
+                }
+                assertEquals(!movable.isEmpty(), game.hasLegalMoves(team));
+                if (movable.isEmpty())
+                    break;
+                Piece piece = movable.get(rand.nextInt(movable.size()));
+                int[][] legal = game.getLegalMoves(piece);
+                int[] move = legal[rand.nextInt(legal.length)];
+                assertEquals(0, game.attemptMove(piece, move[0], move[1]));
+                game.nextTurn();
+            }
+        }
+    }
+
+    private void playMoves(int... coordinates) {
+        for (int i = 0; i < coordinates.length; i += 4) {
+            Piece piece = game.getBoard().getPiece(coordinates[i], coordinates[i + 1]);
+            assertEquals(0, game.attemptMove(piece, coordinates[i + 2], coordinates[i + 3]));
+            game.nextTurn();
+        }
+    }
+
+    @Test
+    public void testHashFollowsMovesAndUndo() {
+        initCustomGame();
+        Random rand = new Random(5);
+        long start = game.getHash();
+        assertEquals(game.getBoard().computeHash(false), start);
+        for (int ply = 0; ply < 200 && game.hasLegalMoves(game.getTurn()); ply++) {
+            Piece piece;
+            int[][] legal;
+            do {
+                Piece[] pieces = game.getPieces(game.getTurn());
+                piece = pieces[rand.nextInt(pieces.length)];
+                legal = piece.isCaptured() ? new int[0][] : game.getLegalMoves(piece);
+            } while (legal.length == 0);
+            int[] move = legal[rand.nextInt(legal.length)];
+            long before = game.getHash();
+            game.attemptMove(piece, move[0], move[1]);
+            assertNotEquals(before, game.getHash());
+            game.undoMove(game.getLastMove());
+            assertEquals(before, game.getHash());
+            game.attemptMove(piece, move[0], move[1]);
+            game.nextTurn();
+            assertEquals(game.getBoard().computeHash(game.getTurn() == Team.BLACK), game.getHash());
+        }
+    }
+
+    @Test
+    public void testHashTranspositions() {
+        initCustomGame();
+        playMoves(1, 7, 2, 5,  1, 0, 1, 2,  6, 6, 6, 5,  6, 1, 6, 2);
+        long first = game.getHash();
+        initCustomGame();
+        playMoves(6, 6, 6, 5,  6, 1, 6, 2,  1, 7, 2, 5,  1, 0, 1, 2);
+        assertEquals(first, game.getHash());
+        initCustomGame();
+        long start = game.getHash();
+        game.nextTurn();
+        assertNotEquals(start, game.getHash());
+        game.nextTurn();
+        assertEquals(start, game.getHash());
+    }
+
+    @Test
+    public void testUnmakeSeveralMoves() {
+        initCustomGame();
+        long start = game.getHash();
+        playMoves(4, 6, 4, 4,  4, 1, 4, 3,  6, 7, 5, 5);
+        long afterThree = game.getHash();
+        Piece pawn = game.getBoard().getPiece(3, 1);
+        game.makeMove(game.getBoard().getPiece(5, 5), 4, 3); // squirrel takes the e5 pawn
+        Piece taken = game.getPieces(Team.BLACK)[4];
+        assertTrue(taken.isCaptured());
+        game.makeMove(pawn, 3, 2);
+        assertEquals(5, game.getPly());
+        assertTrue(game.unmakeMove());
+        assertTrue(game.unmakeMove());
+        assertFalse(taken.isCaptured());
+        assertSame(taken, game.getBoard().getPiece(4, 3));
+        assertEquals(afterThree, game.getHash());
+        assertEquals(Team.BLACK, game.getTurn());
+        game.undoToPly(0);
+        assertEquals(start, game.getHash());
+        assertEquals(Team.WHITE, game.getTurn());
+        assertFalse(game.unmakeMove());
+        assertEquals(24, game.getLegalMoves(Team.WHITE).size());
+    }
+
+    @Test
+    public void testUndoToPlyPastHistoryThrows() {
+        initStandardGame();
+        playMoves(4, 6, 4, 4);
+        try {
+            game.undoToPly(2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, game.getPly());
+        }
+    }
+
+    @Test
+    public void testManyMovesUnmakeInOrder() {
+        initStandardGame();
+        long start = game.getHash();
+        Random rand = new Random(7);
+        List<Long> hashes = new ArrayList<>();
+        for (int i = 0; i < 400; i++) { // more than the stack starts with
+            List<int[]> moves = game.getLegalMoves(game.getTurn());
+            if (moves.isEmpty()) break;
+            hashes.add(game.getHash());
+            int[] move = moves.get(rand.nextInt(moves.size()));
+            game.makeMove(game.getBoard().getPiece(move[0], move[1]), move[2], move[3]);
+        }
+        for (int i = hashes.size() - 1; i >= 0; i--) {
+            assertTrue(game.unmakeMove());
+            assertEquals((long) hashes.get(i), game.getHash());
+        }
+        assertEquals(start, game.getHash());
+    }
+
+    @Test
+    public void testMakeUnmakeDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        initCustomGame();
+        Piece squirrel = game.getBoard().getPiece(6, 7);
+        for (int i = 0; i < 1000; i++) { // warm up
+            game.makeMove(squirrel, 6, 5);
+            game.unmakeMove();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            game.makeMove(squirrel, 6, 5);
+            game.unmakeMove();
+        }
+        assertEquals(0, threads.getCurrentThreadAllocatedBytes() - before);
+    }
+
+    @Test
+    public void testAttemptMoveCanBeUnmade() {
+        initStandardGame();
+        playMoves(4, 6, 4, 4,  3, 1, 3, 3,  4, 4, 3, 3);
+        assertEquals(3, game.getPly());
+        assertTrue(game.unmakeMove());
+        assertEquals(Team.WHITE, game.getTurn());
+        assertNotNull(game.getBoard().getPiece(3, 3));
+        assertEquals(Team.BLACK, game.getBoard().getPiece(3, 3).getTeam());
+        assertFalse(game.getBoard().getPiece(3, 3).isCaptured());
+    }
+
+    @Test
+    public void testLegalMoveSetIsKeptUntilTheBoardChanges() {
+        initCustomGame();
+        LegalMoves moves = game.getLegalMoveSet(Team.WHITE);
+        assertSame(moves, game.getLegalMoveSet(Team.WHITE));
+        assertEquals(game.getLegalMoves(Team.WHITE).size(), moves.size());
+        for (int[] move : game.getLegalMoves(Team.WHITE))
+            assertTrue(moves.contains(move[0], move[1], move[2], move[3]));
+        assertEquals(2, moves.count(4, 6));
+        assertArrayEquals(new int[]{4, 4}, moves.getMoves(4, 6)[0]); // in the order of Piece.getMoves
+        assertEquals(0, moves.getMoves(4, 7).length);
+        // grouped by the square the moves start from
+        for (int i = 1; i < moves.size(); i++)
+            assertTrue(moves.getFromY(i - 1) * 8 + moves.getFromX(i - 1) <= moves.getFromY(i) * 8 + moves.getFromX(i));
+
+        assertEquals(0, game.attemptMove(game.getBoard().getPiece(4, 6), 4, 4));
+        assertNotSame(moves, game.getLegalMoveSet(Team.WHITE));
+        game.unmakeMove();
+        assertNotSame(moves, game.getLegalMoveSet(Team.WHITE));
+        assertEquals(moves.size(), game.getLegalMoveSet(Team.WHITE).size());
+    }
+
+    @Test
+    public void testLegalMoveSetLeavesOutPinnedMoves() {
+        initEmptyGame();
+        game.addPiece(new King(Team.WHITE), 4, 7);
+        game.addPiece(new Rook(Team.WHITE), 4, 5);
+        game.addPiece(new Rook(Team.BLACK), 4, 0);
+        game.addPiece(new King(Team.BLACK), 0, 0);
+        LegalMoves moves = game.getLegalMoveSet(Team.WHITE);
+        Piece rook = game.getBoard().getPiece(4, 5);
+        assertTrue(rook.getMoves(game.getBoard()).length > moves.count(4, 5)); // what the highlights used to show
+        assertEquals(6, moves.count(4, 5)); // along the pin only
+        assertFalse(moves.contains(4, 5, 0, 5));
+        assertEquals(2, game.attemptMove(rook, 0, 5));
+        assertEquals(1, game.attemptMove(rook, 3, 4));
+        assertEquals(0, game.attemptMove(rook, 4, 0));
+    }
+
+    @Test
+    public void testLegalMoveSetOnLargerBoards() {
+        game = new Game(10, 10);
+        game.addPiece(new King(Team.WHITE), 9, 9);
+        game.addPiece(new Squirrel(Team.WHITE), 5, 5);
+        game.addPiece(new King(Team.BLACK), 0, 0);
+        LegalMoves moves = game.getLegalMoveSet(Team.WHITE);
+        assertEquals(game.getLegalMoves(Team.WHITE).size(), moves.size());
+        assertEquals(3, moves.count(9, 9));
+        assertTrue(moves.contains(5, 5, 7, 7));
+        assertEquals(9, moves.getFromX(moves.size() - 1));
+    }
+
+    private void shuffleKnights() {
+        game.makeMove(game.getBoard().getPiece(6, 7), 5, 5);
+        game.makeMove(game.getBoard().getPiece(6, 0), 5, 2);
+        game.makeMove(game.getBoard().getPiece(5, 5), 6, 7);
+        game.makeMove(game.getBoard().getPiece(5, 2), 6, 0);
+    }
+
+    @Test
+    public void testRepetition() {
+        initStandardGame();
+        shuffleKnights();
+        assertTrue(game.isRepetition(2));
+        assertFalse(game.isRepetition(3));
+        assertNull(game.getDraw());
+        shuffleKnights();
+        assertTrue(game.isRepetition(3));
+        assertEquals(DrawRule.REPETITION, game.getDraw());
+        game.unmakeMove();
+        assertTrue(game.isRepetition(2)); // black to move after Ng1 was also seen three plies in
+        assertFalse(game.isRepetition(3));
+        assertNull(game.getDraw());
+    }
+
+    @Test
+    public void testCopyKeepsRepetitions() {
+        initStandardGame();
+        shuffleKnights();
+        shuffleKnights();
+        Game copy = new Game(game);
+        assertEquals(0, copy.getPly());
+        assertTrue(copy.isRepetition(3));
+        assertEquals(DrawRule.REPETITION, copy.getDraw());
+        assertFalse(new Game(copy).isRepetition(4));
+        copy.makeMove(copy.getBoard().getPiece(6, 7), 5, 5);
+        assertTrue(copy.isRepetition(3));
+        copy.makeMove(copy.getBoard().getPiece(4, 1), 4, 3);
+        assertFalse(copy.isRepetition(2));
+    }
+
+    @Test
+    public void testPawnMoveEndsRepetitions() {
+        initStandardGame();
+        shuffleKnights();
+        assertEquals(4, game.getHalfmoveClock());
+        game.makeMove(game.getBoard().getPiece(4, 6), 4, 4);
+        assertEquals(0, game.getHalfmoveClock());
+        game.makeMove(game.getBoard().getPiece(4, 1), 4, 3);
+        shuffleKnights();
+        assertTrue(game.isRepetition(2));
+        assertFalse(game.isRepetition(3)); // the start position only counts before the pawns moved
+        game.undoToPly(4);
+        assertEquals(4, game.getHalfmoveClock());
+    }
+
+    @Test
+    public void testFiftyMoveRule() {
+        game = Fen.parse("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 60");
+        assertEquals(99, game.getHalfmoveClock());
+        assertNull(game.getDraw());
+        game.makeMove(game.getBoard().getPiece(0, 7), 0, 6);
+        assertEquals(DrawRule.FIFTY_MOVES, game.getDraw());
+        game.unmakeMove();
+        game.makeMove(game.getBoard().getPiece(4, 6), 4, 5);
+        assertEquals(0, game.getHalfmoveClock());
+        assertNull(game.getDraw());
+    }
+
+    @Test
+    public void testCheckmateBeatsFiftyMoveRule() {
+        game = Fen.parse("k7/8/1K6/8/8/8/8/7R w - - 99 80");
+        game.makeMove(game.getBoard().getPiece(7, 7), 7, 0);
+        assertEquals(100, game.getHalfmoveClock());
+        assertNull(game.getDraw());
+    }
+
+    @Test
+    public void testInsufficientMaterial() {
+        assertTrue(Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1").isInsufficientMaterial());
+        assertTrue(Fen.parse("4k3/8/8/8/8/8/8/4KN2 w - - 0 1").isInsufficientMaterial());
+        assertTrue(Fen.parse("4kb2/8/8/8/8/8/8/2B1K3 w - - 0 1").isInsufficientMaterial()); // both on light squares
+        assertEquals(DrawRule.INSUFFICIENT_MATERIAL, Fen.parse("4k3/8/8/8/8/8/8/3BK3 b - - 0 1").getDraw());
+        assertFalse(Fen.parse("4kb2/8/8/8/8/8/8/3BK3 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Fen.parse("4k3/8/8/8/8/8/8/3NKN2 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Fen.parse("4k3/8/8/8/8/8/8/4KR2 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Fen.parse("4k3/4p3/8/8/8/8/8/4K3 w - - 0 1").isInsufficientMaterial());
+    }
+
+    @Test
+    public void testArchbishopAndSquirrelCanMate() {
+        assertFalse(Fen.parse("4k3/8/8/8/8/8/8/4KA2 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Fen.parse("4k3/8/8/8/8/8/8/4KS2 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Fen.parse("4ks2/8/8/8/8/8/8/4K3 w - - 0 1").isInsufficientMaterial());
+    }
+
+    @Test
+    public void testInsufficientMaterialOnLargerBoards() {
+        game = new Game(10, 10);
+        game.addPiece(new King(Team.WHITE), 9, 9);
+        game.addPiece(new Knight(Team.WHITE), 5, 5);
+        game.addPiece(new King(Team.BLACK), 0, 0);
+        assertTrue(game.isInsufficientMaterial());
+        game.addPiece(new Queen(Team.BLACK), 3, 3);
+        assertFalse(game.isInsufficientMaterial());
+    }
+
+    @Test
+    public void testStalemateDraw() {
+        game = Fen.parse("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1");
+        assertEquals(DrawRule.STALEMATE, game.getDraw());
+        game = Fen.parse("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1");
+        assertNull(game.getDraw()); // checkmate
+    }
 }
\ No newline at end of file
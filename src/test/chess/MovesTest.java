@@ -0,0 +1,154 @@
+package chess;
+
+import chess.pieces.*;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class MovesTest {
+
+    @Test
+    public void testEncodeDecode() {
+        int move = Moves.encode(15, 3, 0, 14, PieceType.SQUIRREL, PieceType.ARCHBISHOP, Moves.CAPTURE);
+        assertEquals(15, Moves.getFromX(move));
+        assertEquals(3, Moves.getFromY(move));
+        assertEquals(0, Moves.getToX(move));
+        assertEquals(14, Moves.getToY(move));
+        assertEquals(PieceType.SQUIRREL, Moves.getMoved(move));
+        assertEquals(PieceType.ARCHBISHOP, Moves.getCaptured(move));
+        assertTrue(Moves.isCapture(move));
+        assertArrayEquals(new int[]{15, 3, 0, 14}, Moves.toArray(move));
+        int quiet = Moves.encode(0, 0, 0, 1, null, null, 0);
+        assertNotEquals(Moves.NONE, quiet);
+        assertNull(Moves.getMoved(quiet));
+        assertNull(Moves.getCaptured(quiet));
+        assertFalse(Moves.isCapture(quiet));
+    }
+
+    @Test
+    public void testBoardSizeLimit() {
+        Game game = Fen.parse("15k/16/16/16/16/16/16/16/16/16/16/16/16/16/16/K15 w - - 0 1");
+        Piece king = game.getKing(Team.WHITE);
+        assertEquals(0, game.attemptMove(king, 1, 14));
+        int move = game.getPlyMove(0);
+        assertArrayEquals(new int[]{0, 15, 1, 14}, Moves.toArray(move));
+        for (int[] size : new int[][]{{17, 8}, {8, 17}, {17, 17}}) {
+            try {
+                new Game(size[0], size[1]);
+                fail("Accepted a " + size[0] + "x" + size[1] + " board");
+            } catch (IllegalArgumentException expected) {
+                // moves on it could not be encoded
+            }
+        }
+        try {
+            Fen.parse("16k/17/17/17/17/17/17/K16 w - - 0 1");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 17 wide
+        }
+    }
+
+    @Test
+    public void testMoveObjectsRoundTrip() {
+        Game game = new Game(GameType.STANDARD);
+        Board board = game.getBoard();
+        int push = Moves.of(board, 4, 6, 4, 4);
+        assertEquals(Moves.DOUBLE_STEP, Moves.getFlags(push));
+        assertEquals("e2e4", Moves.toString(board, push));
+        Move move = Moves.toMove(board, push);
+        assertSame(board.getPiece(4, 6), move.getAttacker());
+        assertNull(move.getDefender());
+        assertEquals(push, Moves.fromMove(move));
+
+        game.makeMove(push);
+        game.makeMove(Moves.of(board, 3, 1, 3, 3));
+        int capture = Moves.of(board, 4, 4, 3, 3);
+        assertEquals(PieceType.PAWN, Moves.getCaptured(capture));
+        assertEquals(0, game.attemptMove(board.getPiece(4, 4), 3, 3));
+        assertEquals(capture, Moves.fromMove(game.getLastMove()));
+    }
+
+    @Test
+    public void testPackedMovesMatchLegalMoves() {
+        int[] buffer = new int[Moves.MAX_MOVES];
+        for (long seed = 0; seed < 10; seed++) {
+            Game game = new Game(seed % 2 == 0 ? GameType.STANDARD : GameType.CUSTOM);
+            Random rand = new Random(seed);
+            for (int ply = 0; ply < 120; ply++) {
+                List<int[]> expected = game.getLegalMoves(game.getTurn());
+                int count = game.getLegalMoves(game.getTurn(), buffer);
+                assertEquals(expected.size(), count);
+                for (int i = 0; i < count; i++) {
+                    assertArrayEquals(expected.get(i), Moves.toArray(buffer[i]));
+                    assertEquals(Moves.of(game.getBoard(), expected.get(i)[0], expected.get(i)[1],
+                            expected.get(i)[2], expected.get(i)[3]), buffer[i]);
+                }
+                if (count == 0)
+                    break;
+                game.makeMove(buffer[rand.nextInt(count)]);
+            }
+        }
+    }
+
+    @Test
+    public void testUntypedPiecesFallBack() {
+        Game game = new Game();
+        game.addPiece(new King(Team.WHITE), 4, 7);
+        game.addPiece(new Rook(Team.WHITE) {}, 0, 7); // anonymous subclass has no type
+        game.addPiece(new King(Team.BLACK), 4, 0);
+        game.addPiece(new Knight(Team.BLACK), 0, 3);
+        int[] buffer = new int[Moves.MAX_MOVES];
+        int count = game.getLegalMoves(Team.WHITE, buffer);
+        assertEquals(game.getLegalMoves(Team.WHITE).size(), count);
+        boolean capture = false;
+        for (int i = 0; i < count; i++) {
+            if (Moves.getToX(buffer[i]) == 0 && Moves.getToY(buffer[i]) == 3) {
+                assertTrue(Moves.isCapture(buffer[i]));
+                assertEquals(PieceType.KNIGHT, Moves.getCaptured(buffer[i]));
+                assertNull(Moves.getMoved(buffer[i]));
+                capture = true;
+            }
+        }
+        assertTrue(capture);
+    }
+
+    @Test
+    public void testGeneratingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Game game = new Game(GameType.CUSTOM);
+        int[] buffer = new int[Moves.MAX_MOVES];
+        int[] replies = new int[Moves.MAX_MOVES];
+        long total = 0;
+        for (int i = 0; i < 1000; i++) // warm up
+            total += playAndTakeBack(game, buffer, replies);
+        // the JIT can still be recompiling after the warm up, and undoing an optimisation
+        // allocates the objects it had removed, so measure until a round runs on settled code
+        long allocated = -1;
+        for (int round = 0; round < 10 && allocated != 0; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 1000; i++)
+                total += playAndTakeBack(game, buffer, replies);
+            allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        }
+        assertEquals(0, allocated);
+        assertTrue(total > 0);
+    }
+
+    private static int playAndTakeBack(Game game, int[] buffer, int[] replies) {
+        int count = game.getLegalMoves(game.getTurn(), buffer);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(buffer[i]);
+            total += game.getLegalMoves(game.getTurn(), replies);
+            game.unmakeMove();
+        }
+        return total;
+    }
+}
@@ -5,6 +5,12 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -75,4 +81,77 @@ public class PieceTest {
         piece.setY(6);
         assertEquals(6, piece.getY());
     }
+
+    @Test
+    public void testGetMovesMatchesFullScanStandard() {
+        assertGetMovesMatchScan(new Game(GameType.STANDARD).getBoard());
+    }
+
+    @Test
+    public void testGetMovesMatchesFullScanCustom() {
+        assertGetMovesMatchScan(new Game(GameType.CUSTOM).getBoard());
+    }
+
+    @Test
+    public void testGetMovesMatchesFullScanRandom() {
+        Random rand = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            Board random = new Board(rand.nextInt(8) + 3, rand.nextInt(8) + 3);
+            int count = rand.nextInt(12) + 1;
+            for (int j = 0; j < count; j++) {
+                Team team = rand.nextBoolean() ? Team.WHITE : Team.BLACK;
+                Piece[] choices = {new King(team), new Queen(team), new Rook(team), new Bishop(team),
+                        new Knight(team), new Pawn(team), new Archbishop(team), new Squirrel(team)};
+                random.setPiece(choices[rand.nextInt(choices.length)],
+                        rand.nextInt(random.getWidth()), rand.nextInt(random.getHeight()));
+            }
+            assertGetMovesMatchScan(random);
+        }
+    }
+
+    private void assertGetMovesMatchScan(Board board) {
+        for (int x = 0; x < board.getWidth(); x++) {
+            for (int y = 0; y < board.getHeight(); y++) {
+                Piece piece = board.getPiece(x, y);
+                if (piece == null) continue;
+                List<int[]> expected = new ArrayList<>();
+                for (int i = 0; i < board.getWidth(); i++)
+                    for (int j = 0; j < board.getHeight(); j++)
+                        if (piece.canMove(board, i, j))
+                            expected.add(new int[]{i, j});
+                assertArrayEquals(expected.toArray(new int[0][]), piece.getMoves(board));
+            }
+        }
+    }
+
+    @Test
+    public void testCanMoveDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Game game = new Game(GameType.CUSTOM);
+        Board board = game.getBoard();
+        int calls = countCanMoveCalls(board); // warm up, and loads everything the calls touch
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100; i++)
+            calls += countCanMoveCalls(board);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(calls > 0);
+        assertEquals(0, allocated);
+    }
+
+    private int countCanMoveCalls(Board board) {
+        int calls = 0;
+        for (int i = 0; i < board.getWidth(); i++) {
+            for (int j = 0; j < board.getHeight(); j++) {
+                Piece piece = board.getPiece(i, j);
+                if (piece == null) continue;
+                for (int x = 0; x < board.getWidth(); x++) {
+                    for (int y = 0; y < board.getHeight(); y++) {
+                        piece.canMove(board, x, y);
+                        calls++;
+                    }
+                }
+            }
+        }
+        return calls;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package chess;
+
+import chess.pieces.Archbishop;
+import chess.pieces.King;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class SpriteCacheTest {
+
+    @Test
+    public void testSpritesAreReadOnce() {
+        SpriteCache sprites = new SpriteCache();
+        BufferedImage king = sprites.getImage(new King(Team.WHITE));
+        assertNotNull(king);
+        assertSame(king, sprites.getImage(new King(Team.WHITE)));
+        assertEquals(1, sprites.getLoadCount());
+        assertNotSame(king, sprites.getImage(new King(Team.BLACK)));
+        sprites.getImage(new Archbishop(Team.BLACK));
+        sprites.getImage(new Archbishop(Team.BLACK));
+        assertEquals(3, sprites.getLoadCount());
+    }
+
+    @Test
+    public void testScaledSpritesAreKeptPerSize() {
+        SpriteCache sprites = new SpriteCache();
+        BufferedImage scaled = sprites.getImage(new King(Team.WHITE), 31);
+        assertEquals(31, scaled.getWidth());
+        assertSame(scaled, sprites.getImage(new King(Team.WHITE), 31));
+        assertEquals(62, sprites.getImage(new King(Team.WHITE), 62).getWidth());
+        assertEquals(1, sprites.getLoadCount());
+    }
+
+    @Test
+    public void testMissingSpriteIsTriedOnce() {
+        SpriteCache sprites = new SpriteCache();
+        Piece unknown = new Piece(Team.WHITE) {}; // no sprite for a class without a name
+        assertNull(sprites.getImage(unknown));
+        assertNull(sprites.getImage(unknown, 40));
+        assertEquals(1, sprites.getLoadCount());
+    }
+}
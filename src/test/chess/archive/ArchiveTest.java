@@ -0,0 +1,226 @@
+package chess.archive;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Moves;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnWriter;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class ArchiveTest {
+
+    private static Path tempArchive() throws IOException {
+        File file = File.createTempFile("games", ".archive");
+        file.delete(); // the writer makes it
+        file.deleteOnExit();
+        new File(file.getPath() + ".idx").deleteOnExit();
+        return file.toPath();
+    }
+
+    private static Game randomGame(Random rand, GameType type) {
+        Game game = new Game(type);
+        int[] moves = new int[Moves.MAX_MOVES];
+        for (int ply = 0; ply < 60; ply++) {
+            int count = game.getLegalMoves(game.getTurn(), moves);
+            if (count == 0)
+                break;
+            game.makeMove(moves[rand.nextInt(count)]);
+        }
+        return game;
+    }
+
+    private static int[] movesOf(Game game) {
+        int[] moves = new int[game.getPly()];
+        for (int i = 0; i < moves.length; i++)
+            moves[i] = game.getPlyMove(i);
+        return moves;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path path = tempArchive();
+        Random rand = new Random(3);
+        Game[] games = new Game[50];
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            for (int i = 0; i < games.length; i++) {
+                games[i] = randomGame(rand, (i % 2 == 0) ? GameType.STANDARD : GameType.CUSTOM);
+                String before = Fen.write(games[i]);
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Round", Integer.toString(i));
+                tags.put("Result", "1/2-1/2");
+                assertEquals(i, writer.append(games[i], tags));
+                assertEquals(before, Fen.write(games[i])); // played forward again
+            }
+        }
+        try (ArchiveReader reader = new ArchiveReader(path)) {
+            assertEquals(games.length, reader.getGameCount());
+            Game reused = new Game(GameType.STANDARD);
+            for (int i = games.length - 1; i >= 0; i--) { // backwards, so every read is a jump
+                PgnGame game = reader.read(i);
+                assertTrue(game.isValid());
+                assertEquals("1/2-1/2", game.getResult());
+                assertEquals(Integer.toString(i), game.getTag("Round"));
+                assertEquals(i % 2 == 1, game.getTag("FEN") != null);
+                assertArrayEquals(movesOf(games[i]), game.getMoves());
+                assertEquals(games[i].getPly(), reader.getPlyCount(i));
+                assertEquals(game.getTags(), reader.getTags(i));
+                assertEquals(Fen.write(games[i]), Fen.write(reader.replay(i)));
+                reader.replay(i, reused, reader.getPlyCount(i));
+                assertEquals(Fen.write(games[i]), Fen.write(reused));
+            }
+            reader.replay(1, reused, 0);
+            assertEquals(Fen.CUSTOM, Fen.write(reused));
+            try {
+                reader.read(games.length);
+                fail("There is no such game");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testGameFromFenAndError() throws Exception {
+        Path path = tempArchive();
+        Game game = Fen.parse("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        int[] moves = new int[]{Moves.of(game.getBoard(), 0, 7, 0, 0)};
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("FEN", "4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        PgnGame stopped = new PgnGame(tags, moves, "*", "Ply 2: Illegal move \"Ke9\".");
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            writer.append(stopped);
+        }
+        try (ArchiveReader reader = new ArchiveReader(path)) {
+            PgnGame read = reader.read(0);
+            assertFalse(read.isValid());
+            assertEquals(stopped.getError(), read.getError());
+            assertEquals("*", read.getResult());
+            assertArrayEquals(moves, read.getMoves());
+            assertEquals("R3k3/8/8/8/8/8/8/4K3 b - - 0 1", Fen.write(reader.replay(0)));
+        }
+    }
+
+    @Test
+    public void testBadFenIsStoredWithoutMoves() throws Exception {
+        Path pgn = Files.createTempFile("games", ".pgn");
+        pgn.toFile().deleteOnExit();
+        Files.writeString(pgn, "[FEN \"garbage\"]\n\n1. e4 e5 1-0\n\n[Result \"0-1\"]\n\n1. d4 d5 0-1\n");
+        Path path = tempArchive();
+        assertEquals(2, PgnConverter.convert(pgn, path));
+        try (ArchiveReader reader = new ArchiveReader(path)) {
+            PgnGame bad = reader.read(0);
+            assertFalse(bad.isValid());
+            assertTrue(bad.getError(), bad.getError().startsWith("Bad FEN tag"));
+            assertEquals("garbage", bad.getTag("FEN"));
+            assertEquals(0, bad.getMoveCount());
+            assertEquals("1-0", bad.getResult());
+            PgnGame good = reader.read(1);
+            assertTrue(good.isValid());
+            assertEquals(2, good.getMoveCount());
+            assertEquals("0-1", good.getResult());
+        }
+    }
+
+    @Test
+    public void testIllegalMoveIsRejected() throws Exception {
+        Path path = tempArchive();
+        Game game = new Game(GameType.STANDARD);
+        PgnGame illegal = new PgnGame(Collections.<String, String>emptyMap(),
+                new int[]{Moves.of(game.getBoard(), 4, 6, 4, 3)}, "*", null);
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            try {
+                writer.append(illegal);
+                fail("e2-e5 is not legal");
+            } catch (IllegalArgumentException expected) {
+            }
+            assertEquals(0, writer.getGameCount());
+        }
+    }
+
+    @Test
+    public void testSecondWriterIsLockedOut() throws Exception {
+        Path path = tempArchive();
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            try {
+                new ArchiveWriter(path).close();
+                fail("The archive is already open");
+            } catch (IOException expected) {
+            }
+            assertEquals(0, writer.getGameCount());
+        }
+    }
+
+    @Test
+    public void testReopenAppendAndRecover() throws Exception {
+        Path path = tempArchive();
+        Random rand = new Random(5);
+        Map<String, String> tags = Collections.emptyMap();
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            writer.append(randomGame(rand, GameType.STANDARD), tags);
+            writer.append(randomGame(rand, GameType.STANDARD), tags);
+        }
+        long twoGames = Files.size(path);
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            assertEquals(2, writer.getGameCount());
+            writer.append(randomGame(rand, GameType.CUSTOM), tags);
+        }
+        try (ArchiveReader reader = new ArchiveReader(path)) {
+            assertEquals(3, reader.getGameCount());
+        }
+
+        // a crash after the third game's offset got to disk but before all of its data did
+        try (FileChannel data = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            data.truncate(Files.size(path) - 3);
+        }
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            assertEquals(2, writer.getGameCount());
+            assertEquals(twoGames, Files.size(path));
+            writer.append(randomGame(rand, GameType.STANDARD), tags);
+        }
+        try (ArchiveReader reader = new ArchiveReader(path)) {
+            assertEquals(3, reader.getGameCount());
+            for (int i = 0; i < 3; i++)
+                assertTrue(reader.read(i).isValid());
+        }
+    }
+
+    @Test
+    public void testConvert() throws Exception {
+        File pgn = File.createTempFile("games", ".pgn");
+        pgn.deleteOnExit();
+        Random rand = new Random(9);
+        Game[] games = new Game[20];
+        try (BufferedWriter out = Files.newBufferedWriter(pgn.toPath())) {
+            PgnWriter writer = new PgnWriter(out);
+            for (int i = 0; i < games.length; i++) {
+                games[i] = randomGame(rand, (i % 2 == 0) ? GameType.STANDARD : GameType.CUSTOM);
+                writer.write(games[i], Collections.singletonMap("Round", Integer.toString(i)));
+            }
+        }
+        Path path = tempArchive();
+        assertEquals(games.length, PgnConverter.convert(pgn.toPath(), path));
+        try (ArchiveReader reader = new ArchiveReader(path)) {
+            for (int i = 0; i < games.length; i++) {
+                assertEquals(Integer.toString(i), reader.getTags(i).get("Round"));
+                assertEquals(Fen.write(games[i]), Fen.write(reader.replay(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package chess.book;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Moves;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+import chess.pgn.San;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class OpeningBookTest {
+
+    private static Game play(GameType type, String... sans) {
+        Game game = new Game(type);
+        for (String san : sans)
+            game.makeMove(San.parse(game, san));
+        return game;
+    }
+
+    private static Path tempBook() throws Exception {
+        File file = File.createTempFile("opening", ".book");
+        file.deleteOnExit();
+        return file.toPath();
+    }
+
+    @Test
+    public void testCountsMovesAndResults() throws Exception {
+        BookBuilder builder = new BookBuilder(4);
+        builder.add(play(GameType.STANDARD, "e4", "e5", "Nf3", "Nc6", "Bb5"), "1-0");
+        builder.add(play(GameType.STANDARD, "e4", "c5", "Nf3"), "0-1");
+        builder.add(play(GameType.STANDARD, "e4", "e5", "Nf3", "d6"), "1/2-1/2");
+        builder.add(play(GameType.STANDARD, "d4", "d5"), "*");
+        Game played = play(GameType.STANDARD, "d4", "Nf6");
+        String before = Fen.write(played);
+        builder.add(played, "0-1");
+        assertEquals(before, Fen.write(played)); // played forward again
+        assertEquals(5, builder.getGameCount());
+
+        Path path = tempBook();
+        long entries = builder.write(path, 1);
+        assertEquals(Files.size(path), BookFormat.HEADER_SIZE + entries * BookFormat.ENTRY_SIZE);
+        try (OpeningBook book = new OpeningBook(path)) {
+            assertEquals(entries, book.getEntryCount());
+            Game start = new Game(GameType.STANDARD);
+            List<BookMove> moves = book.getMoves(start);
+            assertEquals(2, moves.size());
+            assertEquals("e4", San.write(start, moves.get(0).getMove())); // most played first
+            assertEquals(3, moves.get(0).getGames());
+            assertEquals(1, moves.get(0).getWins());
+            assertEquals(1, moves.get(0).getDraws());
+            assertEquals(1, moves.get(0).getLosses());
+            assertEquals(0.5, moves.get(0).getScore(), 1e-9);
+            assertEquals(2, moves.get(1).getGames());
+            assertEquals(0, moves.get(1).getWins());
+
+            // black's replies are scored for black
+            List<BookMove> replies = book.getMoves(play(GameType.STANDARD, "e4"));
+            assertEquals(2, replies.size());
+            assertEquals(2, replies.get(0).getGames());
+            assertEquals(1, replies.get(1).getWins());
+
+            // the same position reached another way is found too
+            assertEquals(2, book.getMoves(play(GameType.STANDARD, "Nf3", "e5", "e4")).size());
+
+            // past the ply limit and off the book
+            assertFalse(book.contains(play(GameType.STANDARD, "e4", "e5", "Nf3", "Nc6")));
+            assertTrue(book.getMoves(play(GameType.STANDARD, "a3")).isEmpty());
+            assertEquals(Moves.NONE, book.choose(play(GameType.STANDARD, "a3"), new Random(1)));
+
+            Random rand = new Random(2);
+            int e4 = San.parse(start, "e4");
+            int d4 = San.parse(start, "d4");
+            int chosenE4 = 0;
+            for (int i = 0; i < 1000; i++) {
+                int move = book.choose(start, rand);
+                assertTrue(move == e4 || move == d4);
+                if (move == e4)
+                    chosenE4++;
+            }
+            assertTrue(chosenE4 > 500 && chosenE4 < 700); // 3 of 5 games
+        }
+
+        assertEquals(4, builder.write(path, 2)); // e4, d4, then e5 and Nf3
+    }
+
+    @Test
+    public void testCustomGamesAndMerging() throws Exception {
+        BookBuilder first = new BookBuilder();
+        first.add(play(GameType.CUSTOM, "e4", "Sc6"), "1-0");
+        BookBuilder second = new BookBuilder();
+        second.add(play(GameType.CUSTOM, "Ab3", "e5"), "1-0");
+        second.add(play(GameType.STANDARD, "e4", "Nc6"), "0-1");
+        first.merge(second);
+        assertEquals(3, first.getGameCount());
+
+        Path path = tempBook();
+        first.write(path, 1);
+        try (OpeningBook book = new OpeningBook(path)) {
+            Game custom = new Game(GameType.CUSTOM);
+            List<BookMove> moves = book.getMoves(custom);
+            assertEquals(2, moves.size());
+            Game afterE4 = play(GameType.CUSTOM, "e4");
+            assertEquals("Sc6", San.write(afterE4, book.getMoves(afterE4).get(0).getMove()));
+            Game standard = play(GameType.STANDARD, "e4");
+            assertEquals("Nc6", San.write(standard, book.getMoves(standard).get(0).getMove()));
+        }
+    }
+
+    @Test
+    public void testSkipsGamesWithBadStartPositions() throws Exception {
+        Path pgn = Files.createTempFile("games", ".pgn");
+        pgn.toFile().deleteOnExit();
+        Files.writeString(pgn, "[FEN \"garbage\"]\n\n1. e4 e5 1-0\n\n[Result \"0-1\"]\n\n1. d4 d5 2. c4 0-1\n");
+        BookBuilder builder;
+        try (Stream<PgnGame> games = PgnReader.parallelStream(pgn)) {
+            builder = games.collect(BookBuilder::new, BookBuilder::add, BookBuilder::merge);
+        }
+        assertEquals(1, builder.getGameCount());
+        assertEquals(1, builder.getSkippedCount());
+        assertEquals(3, builder.getPositionCount());
+    }
+
+    @Test
+    public void testSearchPlaysFromBook() throws Exception {
+        BookBuilder builder = new BookBuilder();
+        builder.add(play(GameType.STANDARD, "c4"), "1-0");
+        Path path = tempBook();
+        builder.write(path, 1);
+        try (OpeningBook book = new OpeningBook(path)) {
+            Game game = new Game(GameType.STANDARD);
+            Search search = new Search(game);
+            search.setBook(book);
+            SearchResult result = search.search(4, Long.MAX_VALUE, Long.MAX_VALUE);
+            assertEquals(0, result.getDepth());
+            assertEquals(0, result.getNodes());
+            assertArrayEquals(new int[]{2, 6, 2, 4}, result.getBestMove());
+
+            game.makeMove(San.parse(game, "e4"));
+            result = search.search(2, Long.MAX_VALUE, Long.MAX_VALUE);
+            assertEquals(2, result.getDepth()); // out of book, searched
+        }
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws Exception {
+        Path path = tempBook();
+        Files.write(path, new byte[40]);
+        try {
+            new OpeningBook(path).close();
+            fail("Not a book");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package chess.engine;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Moves;
+import chess.PieceType;
+import chess.Team;
+import chess.pieces.King;
+import chess.pieces.Squirrel;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class EvaluatorTest {
+
+    @Test
+    public void testStartingPositionsAreEven() {
+        Evaluator evaluator = new Evaluator();
+        for (GameType type : GameType.values()) {
+            Game game = new Game(type);
+            assertEquals(0, evaluator.evaluate(game));
+            assertEquals(0, evaluator.evaluateFully(game));
+        }
+        assertEquals(Evaluator.MAX_PHASE, Evaluation.of(new Game(GameType.STANDARD).getBoard()).getPhase());
+        assertEquals(30, Evaluation.of(new Game(GameType.CUSTOM).getBoard()).getPhase());
+    }
+
+    @Test
+    public void testKeptSumsFollowMovesAndUndos() {
+        Evaluator evaluator = new Evaluator();
+        evaluator.setChecking(true);
+        Random rand = new Random(5);
+        int[] moves = new int[Moves.MAX_MOVES];
+        for (GameType type : GameType.values()) {
+            for (int playout = 0; playout < 20; playout++) {
+                Game game = new Game(type);
+                int start = evaluator.evaluate(game);
+                for (int ply = 0; ply < 80; ply++) {
+                    int count = game.getLegalMoves(game.getTurn(), moves);
+                    if (count == 0)
+                        break;
+                    game.makeMove(moves[rand.nextInt(count)]);
+                    evaluator.evaluate(game);
+                }
+                game.undoToPly(0);
+                assertEquals(start, evaluator.evaluate(game));
+            }
+        }
+    }
+
+    @Test
+    public void testEndgameKingWantsTheCentre() {
+        Evaluator evaluator = new Evaluator();
+        // with only kings left the endgame table decides, and a king in the corner is worse off
+        Game game = Fen.parse("k7/8/8/8/3K4/8/8/8 w - - 0 1");
+        assertTrue(evaluator.evaluate(game) > 0);
+        game.nextTurn();
+        assertTrue(evaluator.evaluate(game) < 0);
+    }
+
+    @Test
+    public void testOtherBoardSizesCountMaterial() {
+        Game game = new Game(10, 10);
+        game.addPiece(new King(Team.WHITE), 0, 9);
+        game.addPiece(new King(Team.BLACK), 0, 0);
+        Evaluator evaluator = new Evaluator();
+        evaluator.setChecking(true);
+        assertEquals(0, evaluator.evaluate(game));
+        game.addPiece(new Squirrel(Team.BLACK), 5, 5);
+        assertEquals(-Evaluator.getValue(PieceType.SQUIRREL), evaluator.evaluate(game));
+    }
+
+    @Test
+    public void testSearchWithChecking() {
+        Game game = new Game(GameType.CUSTOM);
+        Search search = new Search(game);
+        search.getEvaluator().setChecking(true);
+        search.search(3, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertSame(Evaluation.of(game.getBoard()), Evaluation.of(game.getBoard()));
+    }
+}
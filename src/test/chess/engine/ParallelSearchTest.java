@@ -0,0 +1,71 @@
+package chess.engine;
+
+import chess.Game;
+import chess.GameType;
+import chess.Team;
+import org.junit.Test;
+
+import static chess.engine.TestGames.playMoves;
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class ParallelSearchTest {
+
+    @Test
+    public void testFindsMateInOne() {
+        Game game = new Game(GameType.STANDARD);
+        playMoves(game, 5, 6, 5, 5,  4, 1, 4, 3,  6, 6, 6, 4);
+        SearchResult result = new ParallelSearch(game, 4, new TranspositionTable(4)).search(3, Long.MAX_VALUE);
+        assertArrayEquals(new int[]{3, 0, 7, 4}, result.getBestMove());
+        assertEquals(1, Search.getMateDistance(result.getScore()));
+    }
+
+    @Test
+    public void testLeavesGameUnchanged() {
+        Game game = new Game(GameType.CUSTOM);
+        long hash = game.getHash();
+        SearchResult result = new ParallelSearch(game, 3, new TranspositionTable(4)).search(4, Long.MAX_VALUE);
+        assertNotNull(result.getBestMove());
+        assertTrue(result.getDepth() >= 4);
+        assertEquals(hash, game.getHash());
+        assertEquals(Team.WHITE, game.getTurn());
+    }
+
+    @Test
+    public void testStopsOnDeadline() {
+        Game game = new Game(GameType.STANDARD);
+        long start = System.nanoTime();
+        SearchResult result = new ParallelSearch(game, 4, new TranspositionTable(4)).search(64, 200);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertNotNull(result.getBestMove());
+        assertTrue("took " + millis + "ms", millis < 2000);
+    }
+
+    @Test(timeout = 30_000)
+    public void testShallowSearchesWithoutTimeLimitEnd() {
+        // helpers stopped before their threads got going used to miss the stop and search forever
+        for (int i = 0; i < 50; i++) {
+            SearchResult result = new ParallelSearch(new Game(GameType.STANDARD), 4, new TranspositionTable(1))
+                    .search(1, Long.MAX_VALUE);
+            assertNotNull(result.getBestMove());
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void testStopBeforeSearchIsKept() {
+        Search search = new Search(new Game(GameType.STANDARD), new TranspositionTable(1));
+        search.stop();
+        SearchResult result = search.search(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertTrue(result.getDepth() < 64);
+        assertNotNull(search.search(2, Long.MAX_VALUE, Long.MAX_VALUE).getBestMove()); // the next search runs as asked
+    }
+
+    @Test
+    public void testCopiesHashTheSame() {
+        Game game = new Game(GameType.CUSTOM);
+        playMoves(game, 4, 6, 4, 4,  4, 1, 4, 3,  6, 7, 5, 5);
+        assertEquals(game.getHash(), new Game(game).getHash());
+    }
+}
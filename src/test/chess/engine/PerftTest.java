@@ -0,0 +1,80 @@
+package chess.engine;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Move;
+import chess.Moves;
+import chess.Piece;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class PerftTest {
+
+    @Test
+    public void testStandardCounts() {
+        Perft perft = new Perft(new Game(GameType.STANDARD));
+        assertEquals(20, perft.count(1));
+        assertEquals(400, perft.count(2));
+        assertEquals(8902, perft.count(3));
+    }
+
+    @Test
+    public void testDivideAddsUpToCount() {
+        Game game = new Game(GameType.CUSTOM);
+        Perft perft = new Perft(game);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Map<String, Long> counts = perft.divide(3, pool);
+        pool.shutdown();
+        long total = 0;
+        for (long count : counts.values())
+            total += count;
+        assertEquals(perft.count(3), total);
+        assertEquals(24, counts.size());
+        assertTrue(counts.containsKey("g1g3")); // squirrel jump over the pawns
+    }
+
+    @Test
+    public void testCustomCountMatchesAttemptMove() {
+        Game game = new Game(GameType.CUSTOM);
+        assertEquals(countWithAttemptMove(game, 2), new Perft(game).count(2));
+    }
+
+    @Test
+    public void testMoreMovesThanMaxMoves() {
+        Game game = Fen.parse(TestGames.MANY_QUEENS);
+        int legal = game.getLegalMoves(game.getTurn()).size();
+        assertTrue(legal > Moves.MAX_MOVES);
+        Perft perft = new Perft(game);
+        assertEquals(legal, perft.count(1));
+        assertEquals(legal, perft.divide(1, ForkJoinPool.commonPool()).size());
+        assertTrue(perft.count(2) > 0);
+    }
+
+    private long countWithAttemptMove(Game game, int depth) {
+        if (depth == 0) return 1;
+        long nodes = 0;
+        for (Piece piece : game.getPieces(game.getTurn())) {
+            if (piece.isCaptured()) continue;
+            for (int x = 0; x < 8; x++) {
+                for (int y = 0; y < 8; y++) {
+                    if (game.attemptMove(piece, x, y) != 0) continue;
+                    Move move = game.getLastMove(); // deeper calls replace the last move
+                    game.nextTurn();
+                    nodes += countWithAttemptMove(game, depth - 1);
+                    game.nextTurn();
+                    game.undoMove(move);
+                }
+            }
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,113 @@
+package chess.engine;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Team;
+import chess.pieces.King;
+import chess.pieces.Queen;
+import chess.pieces.Rook;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static chess.engine.TestGames.playMoves;
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class SearchTest {
+
+    @Test
+    public void testFindsMateInOne() {
+        Game game = new Game(GameType.STANDARD);
+        playMoves(game, 5, 6, 5, 5,  4, 1, 4, 3,  6, 6, 6, 4);
+        SearchResult result = new Search(game).search(3, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertArrayEquals(new int[]{3, 0, 7, 4}, result.getBestMove());
+        assertTrue(Search.isMateScore(result.getScore()));
+        assertEquals(1, Search.getMateDistance(result.getScore()));
+    }
+
+    @Test
+    public void testCapturesHangingQueen() {
+        Game game = new Game();
+        game.addPiece(new King(Team.WHITE), 4, 7);
+        game.addPiece(new Rook(Team.WHITE), 0, 7);
+        game.addPiece(new King(Team.BLACK), 4, 0);
+        game.addPiece(new Queen(Team.BLACK), 0, 3);
+        SearchResult result = new Search(game).search(4, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertArrayEquals(new int[]{0, 7, 0, 3}, result.getBestMove());
+        assertTrue(result.getScore() > 0);
+    }
+
+    @Test
+    public void testLeavesGameUnchanged() {
+        Game game = new Game(GameType.CUSTOM);
+        long hash = game.getHash();
+        new Search(game).search(3, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(hash, game.getHash());
+        assertEquals(Team.WHITE, game.getTurn());
+        assertEquals(24, game.getLegalMoves(Team.WHITE).size());
+    }
+
+    @Test
+    public void testRespectsNodeLimit() {
+        Game game = new Game(GameType.STANDARD);
+        SearchResult result = new Search(game).search(64, 5000, Long.MAX_VALUE);
+        assertNotNull(result.getBestMove());
+        assertTrue(result.getNodes() <= 5000);
+        assertTrue(result.getDepth() < 64);
+    }
+
+    @Test
+    public void testPrincipalVariationStartsWithBestMove() {
+        Game game = new Game(GameType.CUSTOM);
+        SearchResult result = new Search(game).search(4, Long.MAX_VALUE, Long.MAX_VALUE);
+        List<int[]> pv = result.getPrincipalVariation();
+        assertFalse(pv.isEmpty());
+        assertArrayEquals(result.getBestMove(), pv.get(0));
+        assertEquals(4, result.getDepth());
+        // every move of the line is legal when played out in order
+        for (int[] move : pv) {
+            boolean legal = false;
+            for (int[] candidate : game.getLegalMoves(game.getTurn()))
+                legal |= Arrays.equals(candidate, move);
+            assertTrue(legal);
+            playMoves(game, move);
+        }
+    }
+
+    @Test
+    public void testNoMoveWhenMated() {
+        Game game = new Game(GameType.STANDARD);
+        playMoves(game, 5, 6, 5, 5,  4, 1, 4, 3,  6, 6, 6, 4,  3, 0, 7, 4);
+        SearchResult result = new Search(game).search(3, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertNull(result.getBestMove());
+        assertEquals(-Search.MATE, result.getScore());
+    }
+
+    @Test
+    public void testSearchesPositionsWithManyMoves() {
+        Game game = Fen.parse(TestGames.MANY_QUEENS);
+        SearchResult result = new Search(game, new TranspositionTable(1)).search(2, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(2, result.getDepth());
+        assertNotNull(result.getBestMove());
+    }
+
+    @Test
+    public void testCopySeesRepetitionsFromBeforeIt() {
+        String fen = "7k/q7/8/8/8/8/8/1N5K w - - 0 1";
+        Game game = Fen.parse(fen);
+        playMoves(game, 1, 7, 2, 5,  7, 0, 6, 0,  2, 5, 1, 7,  6, 0, 7, 0);
+        Game copy = new Game(game);
+        assertTrue(copy.isRepetition(2));
+        // a queen down, white takes the draw by going back to a position seen before the copy was made
+        SearchResult result = new Search(copy, new TranspositionTable(1)).search(3, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertArrayEquals(new int[]{1, 7, 2, 5}, result.getBestMove());
+        assertEquals(0, result.getScore());
+        SearchResult fresh = new Search(Fen.parse(fen), new TranspositionTable(1)).search(3, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertTrue(fresh.getScore() < 0);
+    }
+}
@@ -0,0 +1,33 @@
+package chess.engine;
+
+import chess.Game;
+import chess.Piece;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Game setup shared by the engine tests.
+ * @author Ryan Gisleson
+ */
+final class TestGames {
+
+    /**
+     * 16x16 board with 17 white queens, far more moves than a side has in a normal game.
+     * The black king is walled in by its own pawns.
+     */
+    static final String MANY_QUEENS = "kp14/pp14/16/Q1Q1Q1Q1Q1Q1Q1Q1/16/16/16/1Q1Q1Q1Q1Q1Q1Q1Q/16/16/16/7Q8/16/16/16/15K w - - 0 1";
+
+    private TestGames() {}
+
+    /**
+     * Plays moves through attemptMove, passing the turn after each.
+     * @param coordinates fromX, fromY, toX, toY of each move
+     */
+    static void playMoves(Game game, int... coordinates) {
+        for (int i = 0; i < coordinates.length; i += 4) {
+            Piece piece = game.getBoard().getPiece(coordinates[i], coordinates[i + 1]);
+            assertEquals(0, game.attemptMove(piece, coordinates[i + 2], coordinates[i + 3]));
+            game.nextTurn();
+        }
+    }
+}
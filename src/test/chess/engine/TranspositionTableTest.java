@@ -0,0 +1,117 @@
+package chess.engine;
+
+import chess.Moves;
+import chess.PieceType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class TranspositionTableTest {
+
+    private TranspositionTable table;
+
+    @Before
+    public void setUp() {
+        table = new TranspositionTable(1);
+    }
+
+    @Test
+    public void testSizeInMegabytes() {
+        assertEquals(1024 * 1024 / 16, table.getCapacity());
+        assertEquals(2 * 1024 * 1024 / 16, new TranspositionTable(3).getCapacity());
+    }
+
+    @Test
+    public void testStoreAndProbe() {
+        long key = 0x1234_5678_9ABC_DEF0L;
+        assertEquals(0, table.probe(key));
+        int move = Moves.encode(4, 6, 4, 4, PieceType.PAWN, null, Moves.DOUBLE_STEP);
+        table.store(key, move, -250, 7, TranspositionTable.LOWER);
+        long entry = table.probe(key);
+        assertEquals(Moves.getSquares(move), TranspositionTable.getMove(entry));
+        assertEquals(-250, TranspositionTable.getScore(entry));
+        assertEquals(7, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+        assertEquals(0.5, table.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testMateScoresFit() {
+        table.store(1, Moves.NONE, Search.MATE - 3, 1, TranspositionTable.EXACT);
+        table.store(2, Moves.NONE, -Search.MATE + 3, 1, TranspositionTable.EXACT);
+        assertEquals(Search.MATE - 3, TranspositionTable.getScore(table.probe(1)));
+        assertEquals(-Search.MATE + 3, TranspositionTable.getScore(table.probe(2)));
+        assertEquals(Moves.NONE, TranspositionTable.getMove(table.probe(1)));
+    }
+
+    @Test
+    public void testOtherKeyInSameSlotMisses() {
+        long key = 42;
+        table.store(key, Moves.NONE, 10, 3, TranspositionTable.EXACT);
+        assertEquals(0, table.probe(key + table.getCapacity()));
+    }
+
+    @Test
+    public void testDeeperEntryIsKept() {
+        long key = 42;
+        long other = key + table.getCapacity(); // same slot
+        table.store(key, Moves.NONE, 10, 6, TranspositionTable.EXACT);
+        table.store(other, Moves.NONE, 20, 2, TranspositionTable.EXACT);
+        assertEquals(10, TranspositionTable.getScore(table.probe(key)));
+        assertEquals(0, table.probe(other));
+        table.newSearch();
+        table.store(other, Moves.NONE, 20, 2, TranspositionTable.EXACT);
+        assertEquals(20, TranspositionTable.getScore(table.probe(other)));
+    }
+
+    @Test
+    public void testMoveKeptWhenStoredWithout() {
+        int move = Moves.encode(1, 2, 3, 4, PieceType.QUEEN, PieceType.ROOK, Moves.CAPTURE);
+        table.store(7, move, 0, 1, TranspositionTable.LOWER);
+        table.store(7, Moves.NONE, -5, 2, TranspositionTable.UPPER);
+        assertEquals(Moves.getSquares(move), TranspositionTable.getMove(table.probe(7)));
+    }
+
+    @Test
+    public void testFillRate() {
+        assertEquals(0, table.getFillRate(), 1e-9);
+        for (int i = 0; i < 500; i++)
+            table.store(i, Moves.NONE, 0, 1, TranspositionTable.EXACT);
+        assertEquals(0.5, table.getFillRate(), 1e-9);
+        table.newSearch();
+        assertEquals(0, table.getFillRate(), 1e-9);
+    }
+
+    @Test
+    public void testConcurrentWritersNeverGiveWrongData() throws InterruptedException {
+        TranspositionTable small = new TranspositionTable(1);
+        int slots = 64; // few slots so threads keep overwriting each other
+        AtomicInteger wrong = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                Random rand = new Random(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    long key = (rand.nextInt(slots) + (long) rand.nextInt(1000) * small.getCapacity()) | 1L << 40;
+                    int score = (int) (key % 1000); // every key has its own score
+                    small.store(key, Moves.NONE, score, rand.nextInt(10), TranspositionTable.EXACT);
+                    long entry = small.probe(key);
+                    if (entry != 0 && TranspositionTable.getScore(entry) != score)
+                        wrong.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, wrong.get());
+    }
+}
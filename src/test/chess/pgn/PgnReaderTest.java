@@ -0,0 +1,184 @@
+package chess.pgn;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Moves;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class PgnReaderTest {
+
+    private static final String SAMPLE = "[Event \"Casual\"]\n"
+            + "[Site \"?\"]\n"
+            + "[White \"A \\\"quoted\\\" name\"]\n"
+            + "[Result \"0-1\"]\n"
+            + "\n"
+            + "1. f3 {weak} e5 (1... d5 2. g4 {also bad}) 2. g4?? $4 Qh4# 0-1\n"
+            + "\n"
+            + "[Event \"Second\"]\r\n"
+            + "[SetUp \"1\"]\r\n"
+            + "[FEN \"4k3/8/8/8/8/8/8/R3K3 w - - 0 1\"]\r\n"
+            + "\r\n"
+            + "1. Ra8+ Kd7 2.Ra7+ Kc6 *\r\n"
+            + "; a comment line\n"
+            + "\n"
+            + "1. e4 e5 2. O-O Nc6 1-0\n";
+
+    private static List<PgnGame> read(String pgn) {
+        PgnReader reader = new PgnReader(ByteBuffer.wrap(pgn.getBytes(StandardCharsets.UTF_8)));
+        return reader.stream().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testReadsGames() {
+        List<PgnGame> games = read(SAMPLE);
+        assertEquals(3, games.size());
+
+        PgnGame first = games.get(0);
+        assertTrue(first.isValid());
+        assertEquals("Casual", first.getTag("Event"));
+        assertEquals("A \"quoted\" name", first.getTag("White"));
+        assertEquals("0-1", first.getResult());
+        assertEquals(4, first.getMoveCount());
+        assertArrayEquals(new int[]{3, 0, 7, 4}, Moves.toArray(first.getMove(3)));
+        Game mated = first.replay();
+        assertEquals("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w - - 0 1", Fen.write(mated));
+
+        PgnGame second = games.get(1);
+        assertTrue(second.isValid());
+        assertEquals("*", second.getResult());
+        assertEquals(4, second.getMoveCount());
+        assertEquals("8/R7/2k5/8/8/8/8/4K3 w - - 0 1", Fen.write(second.replay()));
+
+        PgnGame third = games.get(2);
+        assertFalse(third.isValid());
+        assertTrue(third.getError(), third.getError().startsWith("Ply 3: Castling"));
+        assertEquals(2, third.getMoveCount());
+        assertEquals("1-0", third.getResult());
+        assertTrue(third.getTags().isEmpty());
+    }
+
+    @Test
+    public void testGameWithoutResult() {
+        List<PgnGame> games = read("[Event \"a\"]\n[Result \"1-0\"]\n\n1. e4 e5\n\n[Event \"b\"]\n\n1. d4\n");
+        assertEquals(2, games.size());
+        assertEquals(2, games.get(0).getMoveCount());
+        assertEquals("1-0", games.get(0).getResult());
+        assertEquals("b", games.get(1).getTag("Event"));
+        assertEquals("*", games.get(1).getResult());
+        assertEquals(0, read("\n  \n").size());
+    }
+
+    @Test
+    public void testIllegalMoveStopsGame() {
+        PgnGame game = read("1. e4 e5 2. Ke3 Nc6 3. Nf3 *\n1. d4 *").get(0);
+        assertEquals(2, game.getMoveCount());
+        assertTrue(game.getError().contains("Illegal move \"Ke3\""));
+        assertEquals(1, read("1. e4 e5 2. Ke3 Nc6 3. Nf3 *\n1. d4 *").get(1).getMoveCount());
+    }
+
+    @Test
+    public void testFilesSequentialMappedAndParallel() throws Exception {
+        File file = File.createTempFile("games", ".pgn");
+        file.deleteOnExit();
+        Path path = file.toPath();
+        int count = 400;
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            PgnWriter writer = new PgnWriter(out);
+            Random rand = new Random(7);
+            for (int i = 0; i < count; i++) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Round", Integer.toString(i));
+                writer.write(randomGame(rand, (i % 2 == 0) ? GameType.STANDARD : GameType.CUSTOM), tags);
+            }
+        }
+
+        List<PgnGame> sequential;
+        try (Stream<PgnGame> games = PgnReader.stream(path)) {
+            sequential = games.collect(Collectors.toList());
+        }
+        assertEquals(count, sequential.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(sequential.get(i).getError(), sequential.get(i).isValid());
+            assertEquals(Integer.toString(i), sequential.get(i).getTag("Round"));
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<PgnGame> mapped = new ArrayList<>();
+            PgnReader.map(channel).forEachRemaining(mapped::add);
+            assertEquals(count, mapped.size());
+            assertArrayEquals(sequential.get(count - 1).getMoves(), mapped.get(count - 1).getMoves());
+
+            long start = PgnReader.nextGameStart(channel, Files.size(path) / 2, Files.size(path));
+            ByteBuffer bracket = ByteBuffer.allocate(7);
+            channel.read(bracket, start);
+            assertEquals("[Event ", new String(bracket.array(), StandardCharsets.US_ASCII));
+        }
+
+        List<PgnGame> parallel;
+        try (Stream<PgnGame> games = PgnReader.parallelStream(path)) {
+            parallel = games.collect(Collectors.toList());
+        }
+        assertEquals(count, parallel.size());
+
+        // small parts, so the file is split into many
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            PgnSpliterator whole = new PgnSpliterator(channel, 0, channel.size(), 4096);
+            Spliterator<PgnGame> prefix = whole.trySplit();
+            assertNotNull(prefix);
+            assertTrue(prefix.estimateSize() > 0);
+            parallel = StreamSupport.stream(new PgnSpliterator(channel, 0, channel.size(), 4096), true)
+                    .collect(Collectors.toList());
+        }
+        assertEquals(count, parallel.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(sequential.get(i).getTags(), parallel.get(i).getTags());
+            assertArrayEquals(sequential.get(i).getMoves(), parallel.get(i).getMoves());
+        }
+    }
+
+    /**
+     * Plays up to 60 random legal moves, stopping early at mate or stalemate.
+     */
+    static Game randomGame(Random rand, GameType type) {
+        Game game = new Game(type);
+        int[] moves = new int[Moves.MAX_MOVES];
+        for (int ply = 0; ply < 60; ply++) {
+            int count = game.getLegalMoves(game.getTurn(), moves);
+            if (count == 0)
+                break;
+            game.makeMove(moves[rand.nextInt(count)]);
+        }
+        return game;
+    }
+
+    static int[] movesOf(Game game) {
+        int[] moves = new int[game.getPly()];
+        for (int i = 0; i < moves.length; i++)
+            moves[i] = game.getPlyMove(i);
+        return moves;
+    }
+}
@@ -0,0 +1,84 @@
+package chess.pgn;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Piece;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class PgnWriterTest {
+
+    private static String write(Game game, Map<String, String> tags) throws Exception {
+        StringWriter out = new StringWriter();
+        new PgnWriter(out).write(game, tags);
+        return out.toString();
+    }
+
+    private static PgnGame read(String pgn) {
+        PgnReader reader = new PgnReader(ByteBuffer.wrap(pgn.getBytes(StandardCharsets.UTF_8)));
+        return reader.next();
+    }
+
+    @Test
+    public void testWritesHistory() throws Exception {
+        Game game = new Game(GameType.STANDARD);
+        int[] moves = {5, 6, 5, 5,  4, 1, 4, 3,  6, 6, 6, 4,  3, 0, 7, 4};
+        for (int i = 0; i < moves.length; i += 4) {
+            Piece piece = game.getBoard().getPiece(moves[i], moves[i + 1]);
+            assertEquals(0, game.attemptMove(piece, moves[i + 2], moves[i + 3]));
+            game.nextTurn();
+        }
+        long hash = game.getHash();
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("White", "Fool");
+        tags.put("Result", "0-1");
+        tags.put("Annotator", "me");
+        assertEquals("[Event \"?\"]\n[Site \"?\"]\n[Date \"?\"]\n[Round \"?\"]\n[White \"Fool\"]\n[Black \"?\"]\n"
+                + "[Result \"0-1\"]\n[Annotator \"me\"]\n\n1. f3 e5 2. g4 Qh4# 0-1\n\n", write(game, tags));
+        assertEquals(4, game.getPly());
+        assertEquals(hash, game.getHash());
+    }
+
+    @Test
+    public void testSetUpPositionAndBlackFirst() throws Exception {
+        Game game = Fen.parse("4k3/8/8/8/8/8/8/R3K3 b - - 0 1");
+        game.makeMove(San.parse(game, "Kd7"));
+        game.makeMove(San.parse(game, "Ra7+"));
+        String pgn = write(game, new LinkedHashMap<>());
+        assertTrue(pgn.contains("[SetUp \"1\"]\n[FEN \"4k3/8/8/8/8/8/8/R3K3 b - - 0 1\"]\n"));
+        assertTrue(pgn.endsWith("\n\n1... Kd7 2. Ra7+ *\n\n"));
+        PgnGame read = read(pgn);
+        assertTrue(read.isValid());
+        assertEquals(Fen.write(game), Fen.write(read.replay()));
+    }
+
+    @Test
+    public void testRoundTripAndWrapping() throws Exception {
+        Random rand = new Random(3);
+        for (int i = 0; i < 20; i++) {
+            Game game = PgnReaderTest.randomGame(rand, (i % 2 == 0) ? GameType.STANDARD : GameType.CUSTOM);
+            String pgn = write(game, new LinkedHashMap<>());
+            for (String line : pgn.split("\n"))
+                assertTrue(line, line.length() <= 80);
+            PgnGame read = read(pgn);
+            assertTrue(read.getError(), read.isValid());
+            assertArrayEquals(PgnReaderTest.movesOf(game), read.getMoves());
+
+            StringWriter again = new StringWriter();
+            new PgnWriter(again).write(read);
+            assertEquals(pgn, again.toString());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package chess.pgn;
+
+import chess.Fen;
+import chess.Game;
+import chess.GameType;
+import chess.Moves;
+import chess.PieceType;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class SanTest {
+
+    private static void assertRejected(Game game, String san) {
+        try {
+            San.parse(game, san);
+            fail("Accepted " + san);
+        } catch (IllegalArgumentException expected) {
+            // rejected
+        }
+    }
+
+    @Test
+    public void testParse() {
+        Game game = new Game(GameType.STANDARD);
+        int move = San.parse(game, "e4");
+        assertArrayEquals(new int[]{4, 6, 4, 4}, Moves.toArray(move));
+        assertEquals(PieceType.PAWN, Moves.getMoved(move));
+        assertArrayEquals(new int[]{6, 7, 5, 5}, Moves.toArray(San.parse(game, "Nf3!?")));
+        assertArrayEquals(new int[]{6, 7, 5, 5}, Moves.toArray(San.parse(game, "Ng1-f3")));
+        assertArrayEquals(new int[]{4, 6, 4, 4}, Moves.toArray(San.parse(game, "e2e4")));
+        assertRejected(game, "e5");
+        assertRejected(game, "Ke2");
+        assertRejected(game, "Xe4");
+        assertRejected(game, "");
+    }
+
+    @Test
+    public void testUnsupportedMoves() {
+        Game game = Fen.parse("4k3/P7/8/8/8/8/8/R3K2R w - - 0 1");
+        for (String san : new String[]{"O-O", "O-O-O", "0-0", "a8=Q", "a8Q"}) {
+            try {
+                San.parse(game, san);
+                fail("Accepted " + san);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("not supported"));
+            }
+        }
+    }
+
+    @Test
+    public void testDisambiguation() {
+        Game game = Fen.parse("4k3/8/8/8/8/8/8/R4RK1 w - - 0 1");
+        assertRejected(game, "Rd1"); // both rooks
+        int move = San.parse(game, "Rad1");
+        assertEquals(0, Moves.getFromX(move));
+        assertEquals("Rad1", San.write(game, move));
+        assertEquals("Rfd1", San.write(game, San.parse(game, "Rfd1")));
+        assertEquals("Rf8+", San.write(game, San.parse(game, "Rf8")));
+
+        Game files = Fen.parse("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        int up = San.parse(files, "R1a3");
+        assertEquals(7, Moves.getFromY(up));
+        assertEquals("R1a3", San.write(files, up));
+        assertEquals("Rb5", San.write(files, San.parse(files, "Rb5")));
+    }
+
+    @Test
+    public void testCustomPiecesAndCaptures() {
+        Game game = new Game(GameType.CUSTOM);
+        int squirrel = San.parse(game, "Sf3");
+        assertEquals(PieceType.SQUIRREL, Moves.getMoved(squirrel));
+        assertEquals("Sf3", San.write(game, squirrel));
+        game.makeMove(squirrel);
+        game.makeMove(San.parse(game, "d5"));
+        game.makeMove(San.parse(game, "e4"));
+        int capture = San.parse(game, "dxe4");
+        assertTrue(Moves.isCapture(capture));
+        assertEquals("dxe4", San.write(game, capture));
+    }
+
+    @Test
+    public void testCheckAndMate() {
+        Game game = new Game(GameType.STANDARD);
+        String[] line = {"f3", "e5", "g4", "Qh4#"};
+        for (String san : line) {
+            int move = San.parse(game, san);
+            assertEquals(san, San.write(game, move));
+            game.makeMove(move);
+        }
+        Game check = Fen.parse("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        assertEquals("Ra8+", San.write(check, San.parse(check, "Ra8")));
+        assertEquals(0, check.getPly());
+    }
+}
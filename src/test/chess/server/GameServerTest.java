@@ -0,0 +1,120 @@
+package chess.server;
+
+import chess.GameType;
+import chess.Team;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class GameServerTest {
+
+    private GameServer server;
+    private HttpClient client;
+    private String base;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new GameServer(0);
+        server.start();
+        client = HttpClient.newHttpClient();
+        base = "http://127.0.0.1:" + server.getPort() + "/games";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(base + path))
+                .POST(body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(base + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testCreateAndMove() throws Exception {
+        HttpResponse<String> created = post("", null);
+        assertEquals(201, created.statusCode());
+        assertTrue(created.body().contains("\"id\":\"1\""));
+        assertTrue(created.body().contains("\"turn\":\"WHITE\""));
+        assertTrue(created.body().contains("\"rnbqkbnr\""));
+        assertTrue(created.body().contains("\"e2e4\""));
+
+        HttpResponse<String> moved = post("/1/moves", "{\"move\":\"e2e4\"}");
+        assertEquals(200, moved.statusCode());
+        assertTrue(moved.body().contains("\"turn\":\"BLACK\""));
+        assertTrue(moved.body().contains("\"PPPP.PPP\""));
+        assertEquals(moved.body(), get("/1").body());
+    }
+
+    @Test
+    public void testCustomGame() throws Exception {
+        HttpResponse<String> created = post("?type=custom", null);
+        assertTrue(created.body().contains("\"rsbqkanr\""));
+        assertTrue(created.body().contains("\"RNAQKBSR\""));
+    }
+
+    @Test
+    public void testRejectedRequests() throws Exception {
+        post("", null);
+        assertEquals(409, post("/1/moves", "{\"move\":\"e2e5\"}").statusCode());
+        assertEquals(409, post("/1/moves", "{\"move\":\"e7e5\"}").statusCode()); // black piece on white's turn
+        assertEquals(400, post("/1/moves", "{}").statusCode());
+        assertEquals(404, get("/99").statusCode());
+        HttpResponse<String> deleted = client.send(HttpRequest.newBuilder(URI.create(base + "/1")).DELETE().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, deleted.statusCode());
+        assertEquals(404, get("/1").statusCode());
+    }
+
+    @Test
+    public void testCheckmateEndsGame() throws Exception {
+        post("", null);
+        for (String move : new String[]{"f2f3", "e7e5", "g2g4"})
+            assertEquals(200, post("/1/moves", "{\"move\":\"" + move + "\"}").statusCode());
+        HttpResponse<String> mate = post("/1/moves", "{\"move\":\"d8h4\"}");
+        assertTrue(mate.body().contains("\"status\":\"CHECKMATE\""));
+        assertTrue(mate.body().contains("\"legalMoves\":[]"));
+        assertEquals(409, post("/1/moves", "{\"move\":\"a2a3\"}").statusCode());
+    }
+
+    @Test
+    public void testSessionsPlayIndependently() {
+        GameSession first = server.createSession(GameType.STANDARD);
+        GameSession second = server.createSession(GameType.STANDARD);
+        assertEquals(GameSession.OK, first.play("e2e4"));
+        assertEquals(Team.BLACK, first.getTurn());
+        assertEquals(Team.WHITE, second.getTurn());
+        assertEquals(GameSession.INVALID_MOVE, second.play("e2"));
+        assertEquals(GameSession.INVALID_MOVE, second.play("z9e4"));
+        assertEquals(GameSession.NOT_YOUR_PIECE, second.play("e3e4"));
+        assertEquals(2, server.getSessionCount());
+    }
+
+    @Test
+    public void testVirtualThreadsWhenAvailable() {
+        ExecutorService executor = GameServer.newVirtualThreadExecutor();
+        boolean available = Runtime.version().feature() >= 21;
+        assertEquals(available, executor != null);
+        assertEquals(available, server.usesVirtualThreads());
+        if (executor != null)
+            executor.shutdown();
+    }
+}
@@ -0,0 +1,185 @@
+package chess.tablebase;
+
+import chess.Fen;
+import chess.Game;
+import chess.Moves;
+import chess.Piece;
+import chess.PieceType;
+import chess.Team;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ryan Gisleson
+ */
+public class TablebaseTest {
+
+    private static Path directory;
+    private static TablebaseGenerator generator;
+
+    @BeforeClass
+    public static void generate() throws Exception {
+        directory = Files.createTempDirectory("tablebases");
+        generator = new TablebaseGenerator(directory);
+        for (String name : new String[]{"KQvK", "KRvK", "KAvK", "KSvK"})
+            generator.generate(Material.parse(name));
+        for (File file : directory.toFile().listFiles())
+            file.deleteOnExit();
+        directory.toFile().deleteOnExit();
+    }
+
+    @Test
+    public void testMaterial() {
+        assertEquals("KQRvKP", Material.parse("KRQvPK").toString());
+        assertEquals(Material.parse("KASvK"), Material.parse("KSAvK"));
+        assertEquals(3, Material.parse("KQvKR").getKing(Team.BLACK) + 1);
+        assertEquals("KvKR", Material.parse("KQvKR").without(1).toString());
+        assertTrue(Material.parse("KPvK").hasPawns());
+        for (String bad : new String[]{"KQK", "KQvR", "KKvK", "KXvK", "KQRBvKN"}) {
+            try {
+                Material.parse(bad);
+                fail(bad + " is not an endgame");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        assertEquals("KAvK", Material.of(Fen.parse("k7/8/8/8/8/8/8/A6K w - - 0 1")).toString());
+        assertNull(Material.of(Fen.parse(Fen.STANDARD)));
+        assertNull(Material.of(Fen.parse("8/8/8/8/8/8/8/7K w - - 0 1"))); // no black king
+    }
+
+    @Test
+    public void testIndexIsTheSameForMirroredPositions() {
+        TablebaseIndex index = new TablebaseIndex(Material.parse("KQvK"));
+        assertEquals(10L * 64 * 64 * 2, index.size());
+        int[] squares = {12, 50, 63};
+        int[] mirrored = new int[3];
+        int[] decoded = new int[3];
+        for (int i = 0; i < 3; i++) {
+            int x = squares[i] & 7;
+            int y = squares[i] >> 3;
+            mirrored[i] = (7 - y) * 8 + x; // upside down and turned
+            mirrored[i] = (mirrored[i] & 7) * 8 + (mirrored[i] >> 3);
+        }
+        long number = index.index(squares, true);
+        assertEquals(number, index.index(mirrored, true));
+        assertTrue(index.decode(number, decoded));
+        assertEquals(number, index.index(decoded, true));
+        assertEquals(number - 1, index.index(squares, false));
+
+        TablebaseIndex pawns = new TablebaseIndex(Material.parse("KPvK"));
+        assertEquals(32L * 64 * 64 * 2, pawns.size());
+        assertNotEquals(pawns.index(new int[]{12, 50, 63}, false), pawns.index(new int[]{52, 10, 7}, false));
+    }
+
+    @Test
+    public void testKnownLongestMates() throws Exception {
+        assertEquals(10, generator.generate(Material.parse("KQvK")).getLongest());
+        assertEquals(16, generator.generate(Material.parse("KRvK")).getLongest());
+        Tablebase reopened = Tablebase.open(directory.resolve("KRvK.tbl"));
+        assertEquals(16, reopened.getLongest());
+        assertEquals(Material.parse("KRvK"), reopened.getMaterial());
+    }
+
+    @Test
+    public void testProbe() {
+        Tablebases tablebases = new Tablebases(directory);
+        Game mateInOne = Fen.parse("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1");
+        int value = tablebases.probe(mateInOne);
+        assertTrue(Tablebase.isWin(value));
+        assertEquals(1, Tablebase.getDistance(value));
+        int best = tablebases.bestMove(mateInOne);
+        mateInOne.makeMove(best);
+        assertTrue(Tablebase.isLoss(tablebases.probe(mateInOne)));
+        assertEquals(0, Tablebase.getDistance(tablebases.probe(mateInOne)));
+        Piece king = mateInOne.getKing(Team.BLACK);
+        assertTrue(mateInOne.inCheckmate(king, king.getX(), king.getY()));
+
+        assertEquals(Tablebase.DRAW, tablebases.probe(Fen.parse("k7/8/1Q6/8/8/8/8/7K b - - 0 1"))); // stalemate
+        assertEquals(Tablebases.UNKNOWN, tablebases.probe(Fen.parse("k7/8/1K6/8/8/8/8/6BN w - - 0 1")));
+        assertEquals(Tablebases.UNKNOWN, tablebases.probe(Fen.parse(Fen.STANDARD)));
+        assertEquals(Moves.NONE, tablebases.bestMove(Fen.parse(Fen.STANDARD)));
+    }
+
+    @Test
+    public void testFairyTablesAgreeWithGameRules() {
+        Tablebases tablebases = new Tablebases(directory);
+        Random rand = new Random(11);
+        int[] moves = new int[Moves.MAX_MOVES];
+        for (PieceType type : new PieceType[]{PieceType.ARCHBISHOP, PieceType.SQUIRREL}) {
+            int checked = 0;
+            while (checked < 300) {
+                Game game = randomPosition(rand, type);
+                int value = tablebases.probe(game);
+                if (value == Tablebase.ILLEGAL)
+                    continue;
+                checked++;
+                // the result must follow from the results after each legal move, found by the Game's own rules
+                int count = game.getLegalMoves(game.getTurn(), moves);
+                int quickestLoss = Integer.MAX_VALUE;
+                int longestWin = -1;
+                boolean allWins = count > 0;
+                for (int i = 0; i < count; i++) {
+                    game.makeMove(moves[i]);
+                    int after = tablebases.probe(game);
+                    game.unmakeMove();
+                    assertNotEquals(Tablebase.ILLEGAL, after);
+                    if (Tablebase.isLoss(after))
+                        quickestLoss = Math.min(quickestLoss, Tablebase.getDistance(after));
+                    if (Tablebase.isWin(after))
+                        longestWin = Math.max(longestWin, Tablebase.getDistance(after));
+                    else
+                        allWins = false;
+                }
+                String fen = Fen.write(game);
+                if (quickestLoss != Integer.MAX_VALUE)
+                    assertEquals(fen, Tablebase.win(quickestLoss + 1), value);
+                else if (allWins)
+                    assertEquals(fen, Tablebase.loss(longestWin), value);
+                else if (count == 0)
+                    assertTrue(fen, value == Tablebase.DRAW || value == Tablebase.loss(0));
+                else
+                    assertEquals(fen, Tablebase.DRAW, value);
+            }
+        }
+    }
+
+    private static Game randomPosition(Random rand, PieceType type) {
+        Game game = new Game(8, 8);
+        Piece[] pieces = {PieceType.KING.create(Team.WHITE), type.create(Team.WHITE), PieceType.KING.create(Team.BLACK)};
+        for (Piece piece : pieces) {
+            int x, y;
+            do {
+                x = rand.nextInt(8);
+                y = rand.nextInt(8);
+            } while (game.getBoard().getPiece(x, y) != null);
+            game.addPiece(piece, x, y);
+        }
+        if (rand.nextBoolean())
+            game.nextTurn();
+        return game;
+    }
+
+    @Test
+    public void testSearchUsesTables() {
+        Tablebases tablebases = new Tablebases(directory);
+        Game game = Fen.parse("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        int value = tablebases.probe(game);
+        assertTrue(Tablebase.isWin(value));
+        assertTrue(Tablebase.getDistance(value) > 5); // far past what a shallow search sees
+
+        Search search = new Search(game);
+        search.setTablebases(tablebases);
+        SearchResult result = search.search(2, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertTrue(Search.isMateScore(result.getScore()));
+        assertEquals(Tablebase.getDistance(value), Search.getMateDistance(result.getScore()));
+    }
+}